@@ -0,0 +1,278 @@
+package com.example.falldetectionapp;
+
+/**
+ * Recognizes what the user is doing from the accelerometer magnitude, so
+ * detection can take the context of an impact into account.
+ *
+ * Samples only go into a ring buffer covering the last {@link #WINDOW_SECONDS}.
+ * Once per {@link #CLASSIFY_INTERVAL} the window is summarized in a single
+ * pass: its energy, the energy above the gait band (from the first
+ * difference) and a bank of Goertzel filters over the step cadence range.
+ * With a 4 s window evaluated once a second, that amortizes to about forty
+ * Goertzel steps per incoming sample, and adding a sample is a ring write.
+ *
+ * A new activity is only adopted when two classifications in a row agree,
+ * so a single impact cannot change the context it is judged in.
+ *
+ * {@link Activity#VEHICLE} needs real evidence, because it makes detection
+ * harder: besides high-frequency energy with little rotation, the window
+ * must have a narrow spectral peak in the vibration band (broadband
+ * jostling, fidgeting or noise spreads its energy) above the tremor band,
+ * and this must hold for {@link #VEHICLE_MIN_DURATION}. The peak search is
+ * a second Goertzel bank that only runs on windows that already look like
+ * a vehicle by the cheap features.
+ */
+public class ActivityRecognizer {
+
+    public enum Activity {
+        UNKNOWN,    // Not enough samples yet
+        STILL,      // Lying, sitting or standing without moving much
+        WALKING,    // Regular gait in the cadence band
+        STAIRS,     // Slower, heavier gait
+        VEHICLE,    // Sustained vibration with no gait and little rotation
+        ACTIVE      // Irregular motion that fits none of the above
+    }
+
+    static final float WINDOW_SECONDS = 4.0f;
+    static final long CLASSIFY_INTERVAL = 1000;     // One classification a second
+    private static final long MAX_GAP = 500;        // A longer pause in the samples restarts the window
+
+    private static final float CADENCE_MIN_HZ = 1.0f;
+    private static final float CADENCE_MAX_HZ = 3.0f;
+    private static final float CADENCE_STEP_HZ = 0.25f;   // The frequency resolution of a 4 s window
+    private static final int CADENCE_BINS = Math.round((CADENCE_MAX_HZ - CADENCE_MIN_HZ) / CADENCE_STEP_HZ) + 1;
+
+    private static final float STILL_RMS = 0.5f;            // m/s^2 of dynamic acceleration
+    private static final float GAIT_RATIO = 0.5f;           // Share of the energy at the cadence peak
+    private static final float STAIRS_RMS = 2.4f;           // Stairs bounce harder...
+    private static final float STAIRS_MAX_CADENCE = 1.8f;   // ...at a slower step rate
+    private static final float VEHICLE_MIN_FREQUENCY = 5.0f; // Hz; engine and road vibration
+    private static final float VEHICLE_MAX_RMS = 3.0f;
+    private static final float VEHICLE_MAX_GYRO = 1.0f;     // rad/s; a phone in a car barely rotates
+    private static final float VEHICLE_PEAK_MIN_HZ = 6.0f;  // Above pathological tremor (4-6 Hz)
+    private static final float VEHICLE_PEAK_MAX_HZ = 20.0f;
+    private static final float VEHICLE_PEAK_SHARE = 0.3f;   // Share of the window's energy in the peak
+    static final long VEHICLE_MIN_DURATION = 120000;        // Vehicle-like for 2 minutes before it counts
+    private static final long VEHICLE_GRACE = 10000;        // Shorter interruptions (bumps, stops) don't restart it
+    private static final int VEHICLE_BINS = Math.round((VEHICLE_PEAK_MAX_HZ - VEHICLE_PEAK_MIN_HZ) / CADENCE_STEP_HZ) + 1;
+
+    private final float[] magnitudes;
+    private final float[] gyroSq;
+    private final long[] timestamps;
+    private int head = 0;           // Next slot to write
+    private int filled = 0;
+    private long lastSample = Long.MIN_VALUE;
+    private long nextClassify = Long.MIN_VALUE;
+
+    // Goertzel state per cadence bin, reused for every classification
+    private final float[] coeff = new float[CADENCE_BINS];
+    private final float[] s1 = new float[CADENCE_BINS];
+    private final float[] s2 = new float[CADENCE_BINS];
+    private final float[] cadencePower = new float[CADENCE_BINS];
+    private final float[] vehicleCoeff = new float[VEHICLE_BINS];
+    private final float[] vehicleS1 = new float[VEHICLE_BINS];
+    private final float[] vehicleS2 = new float[VEHICLE_BINS];
+    private final float[] vehiclePower = new float[VEHICLE_BINS];
+    private long vehicleSince = -1;     // Start of the current vehicle-like stretch, or -1
+    private long lastVehicleLike = -1;
+    private Activity activity = Activity.UNKNOWN;
+    private Activity pending = Activity.UNKNOWN;
+
+    // Features of the last classification, for logging and tests
+    private float rms;
+    private float cadenceHz;
+    private float gaitRatio;
+    private float vibrationHz;
+    private float peakHz;
+    private float peakShare;
+
+    /**
+     * @param sampleRateHz expected sensor rate; sizes the window
+     */
+    public ActivityRecognizer(float sampleRateHz) {
+        int capacity = Math.max(16, Math.round(WINDOW_SECONDS * sampleRateHz));
+        magnitudes = new float[capacity];
+        gyroSq = new float[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * Add one sample.
+     *
+     * @param accelMagnitude  raw accelerometer magnitude
+     * @param gyroMagnitudeSq squared magnitude of the paired rotation rate
+     * @return true if the recognized activity changed with this sample
+     */
+    public boolean addSample(long timestampMs, float accelMagnitude, float gyroMagnitudeSq) {
+        if (lastSample == Long.MIN_VALUE || timestampMs < lastSample || timestampMs - lastSample > MAX_GAP) {
+            filled = 0;
+            nextClassify = timestampMs + CLASSIFY_INTERVAL;
+        }
+        lastSample = timestampMs;
+        magnitudes[head] = accelMagnitude;
+        gyroSq[head] = gyroMagnitudeSq;
+        timestamps[head] = timestampMs;
+        head = (head + 1) % magnitudes.length;
+        if (filled < magnitudes.length) filled++;
+
+        if (filled < magnitudes.length || timestampMs < nextClassify) return false;
+        nextClassify = timestampMs + CLASSIFY_INTERVAL;
+
+        Activity latest = classify(timestampMs);
+        boolean changed = latest == pending && latest != activity;
+        if (changed) activity = latest;
+        pending = latest;
+        return changed;
+    }
+
+    private Activity classify(long now) {
+        int n = filled;
+        int oldest = head;      // The window is full, so the oldest sample is the next to be overwritten
+        long span = timestamps[(oldest + n - 1) % n] - timestamps[oldest];
+        if (span <= 0) return Activity.UNKNOWN;
+        float rateHz = (n - 1) * 1000f / span;
+
+        double sum = 0, sumGyro = 0;
+        for (int i = 0; i < n; i++) {
+            sum += magnitudes[i];
+            sumGyro += gyroSq[i];
+        }
+        float mean = (float) (sum / n);
+
+        // One pass: variance, first-difference energy and the Goertzel recurrences
+        for (int k = 0; k < CADENCE_BINS; k++) {
+            float f = CADENCE_MIN_HZ + k * CADENCE_STEP_HZ;
+            coeff[k] = 2f * (float) Math.cos(2 * Math.PI * f / rateHz);
+            s1[k] = 0;
+            s2[k] = 0;
+        }
+        double variance = 0, diffEnergy = 0;
+        float previous = 0;
+        for (int i = 0; i < n; i++) {
+            float x = magnitudes[(oldest + i) % n] - mean;
+            variance += x * x;
+            if (i > 0) diffEnergy += (x - previous) * (x - previous);
+            previous = x;
+            for (int k = 0; k < CADENCE_BINS; k++) {
+                float s = x + coeff[k] * s1[k] - s2[k];
+                s2[k] = s1[k];
+                s1[k] = s;
+            }
+        }
+        variance /= n;
+        diffEnergy /= n - 1;
+
+        // Power of each bin in variance units: a sinusoid of amplitude A at the bin gives A^2 / 2
+        int peak = 0;
+        for (int k = 0; k < CADENCE_BINS; k++) {
+            float power = s1[k] * s1[k] + s2[k] * s2[k] - coeff[k] * s1[k] * s2[k];
+            cadencePower[k] = 2f * power / ((float) n * n);
+            if (cadencePower[k] > cadencePower[peak]) peak = k;
+        }
+        // A cadence between two bins splits its energy over both
+        float neighbour = Math.max(peak > 0 ? cadencePower[peak - 1] : 0,
+                peak < CADENCE_BINS - 1 ? cadencePower[peak + 1] : 0);
+
+        rms = (float) Math.sqrt(variance);
+        cadenceHz = CADENCE_MIN_HZ + peak * CADENCE_STEP_HZ;
+        gaitRatio = variance > 0 ? (float) ((cadencePower[peak] + neighbour) / variance) : 0;
+        // A sinusoid at f has a first-difference energy of 4 sin^2(pi f / rate) times its variance,
+        // so the ratio gives the frequency the energy is concentrated at
+        double ratio = variance > 0 ? Math.min(4.0, diffEnergy / variance) : 0;
+        vibrationHz = (float) (rateHz / Math.PI * Math.asin(Math.sqrt(ratio) / 2));
+        float gyroRms = (float) Math.sqrt(sumGyro / n);
+
+        if (rms < STILL_RMS) return Activity.STILL;
+        if (gaitRatio >= GAIT_RATIO) {
+            return rms >= STAIRS_RMS && cadenceHz <= STAIRS_MAX_CADENCE ? Activity.STAIRS : Activity.WALKING;
+        }
+        peakHz = 0;
+        peakShare = 0;
+        if (vibrationHz >= VEHICLE_MIN_FREQUENCY && rms <= VEHICLE_MAX_RMS && gyroRms <= VEHICLE_MAX_GYRO) {
+            findVibrationPeak(oldest, n, mean, rateHz, variance);
+        }
+        boolean vehicleLike = peakShare >= VEHICLE_PEAK_SHARE;
+        if (vehicleLike) {
+            if (vehicleSince < 0 || now - lastVehicleLike > VEHICLE_GRACE) vehicleSince = now;
+            lastVehicleLike = now;
+            if (now - vehicleSince >= VEHICLE_MIN_DURATION) return Activity.VEHICLE;
+        }
+        // Inside the grace period a bump keeps the vehicle context rather than reading as activity
+        if (activity == Activity.VEHICLE && now - lastVehicleLike <= VEHICLE_GRACE) return Activity.VEHICLE;
+        return Activity.ACTIVE;
+    }
+
+    // Strongest narrow peak in the vibration band, as a share of the window's variance
+    private void findVibrationPeak(int oldest, int n, float mean, float rateHz, double variance) {
+        float maxHz = Math.min(VEHICLE_PEAK_MAX_HZ, 0.45f * rateHz);
+        int bins = Math.min(VEHICLE_BINS, Math.round((maxHz - VEHICLE_PEAK_MIN_HZ) / CADENCE_STEP_HZ) + 1);
+        if (bins <= 0 || variance <= 0) return;
+        for (int k = 0; k < bins; k++) {
+            float f = VEHICLE_PEAK_MIN_HZ + k * CADENCE_STEP_HZ;
+            vehicleCoeff[k] = 2f * (float) Math.cos(2 * Math.PI * f / rateHz);
+            vehicleS1[k] = 0;
+            vehicleS2[k] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            float x = magnitudes[(oldest + i) % n] - mean;
+            for (int k = 0; k < bins; k++) {
+                float s = x + vehicleCoeff[k] * vehicleS1[k] - vehicleS2[k];
+                vehicleS2[k] = vehicleS1[k];
+                vehicleS1[k] = s;
+            }
+        }
+        int peak = 0;
+        for (int k = 0; k < bins; k++) {
+            float power = vehicleS1[k] * vehicleS1[k] + vehicleS2[k] * vehicleS2[k]
+                    - vehicleCoeff[k] * vehicleS1[k] * vehicleS2[k];
+            vehiclePower[k] = 2f * power / ((float) n * n);
+            if (vehiclePower[peak] < vehiclePower[k]) peak = k;
+        }
+        float neighbour = Math.max(peak > 0 ? vehiclePower[peak - 1] : 0,
+                peak < bins - 1 ? vehiclePower[peak + 1] : 0);
+        peakHz = VEHICLE_PEAK_MIN_HZ + peak * CADENCE_STEP_HZ;
+        peakShare = (float) ((vehiclePower[peak] + neighbour) / variance);
+    }
+
+    public Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * @return true if the current activity calls for stronger evidence before
+     *         a fall is reported; bumps in a vehicle look like impacts
+     */
+    public boolean raisesEvidenceBar() {
+        return activity == Activity.VEHICLE;
+    }
+
+    /** @return RMS of the dynamic acceleration in the last window (m/s^2) */
+    public float getRms() {
+        return rms;
+    }
+
+    /** @return strongest frequency in the cadence band in the last window */
+    public float getCadenceHz() {
+        return cadenceHz;
+    }
+
+    /** @return share of the last window's energy at the cadence peak */
+    public float getGaitRatio() {
+        return gaitRatio;
+    }
+
+    /** @return frequency the last window's energy is concentrated at */
+    public float getVibrationHz() {
+        return vibrationHz;
+    }
+
+    /** @return share of the last window's energy in its vibration peak, 0 if not searched */
+    public float getPeakShare() {
+        return peakShare;
+    }
+
+    /** @return frequency of the last window's vibration peak, 0 if not searched */
+    public float getPeakHz() {
+        return peakHz;
+    }
+}
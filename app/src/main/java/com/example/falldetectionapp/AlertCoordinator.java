@@ -0,0 +1,166 @@
+package com.example.falldetectionapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.widget.Toast;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single entry point for every outgoing alert in the process.
+ *
+ * Fall reports, test messages and SMS retries can come from any thread and
+ * any screen. They are put on a lock-free queue and handled one at a time
+ * on the main thread, so no two senders race. What happens to each request
+ * (merged into an incident, sent, held by the rate limit or refused) is
+ * decided by {@link AlertPolicy}; this class supplies the main-thread
+ * hand-off, the timer for held alerts, the SMS sending and the Toasts, and
+ * tells the reporter of a fall what became of it.
+ */
+public class AlertCoordinator {
+
+    /** What became of a reported alert. */
+    public enum Outcome {
+        SENT,       // Handed to the SMS service
+        NOT_SENT,   // Could not be sent, e.g. no contact set or SMS disabled
+        MERGED,     // Covered by an alert of the same incident; no message of its own
+        HELD,       // Waiting for the rate limit; SENT or MERGED follows later
+        REFUSED     // Test message over its limit
+    }
+
+    /** Receives the outcome of a fall report on the main thread. */
+    public interface OutcomeListener {
+        void onOutcome(Outcome outcome);
+    }
+
+    private static volatile AlertCoordinator instance;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ConcurrentLinkedQueue<AlertPolicy.Alert> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainPosted = new AtomicBoolean(false);
+    private final Runnable drain = this::drain;
+    private final AlertPolicy policy;          // Main thread only
+
+    private final Runnable releaseHeld = new Runnable() {
+        @Override
+        public void run() {
+            policy.releaseHeld(SystemClock.elapsedRealtime());
+        }
+    };
+
+    private AlertCoordinator(Context context) {
+        this.context = context.getApplicationContext();
+        policy = new AlertPolicy(new AlertPolicy.Actions() {
+            @Override
+            public boolean send(AlertPolicy.Alert alert) {
+                SMSHelper sms = SMSHelper.get(AlertCoordinator.this.context);
+                if (alert.simple) return sms.sendSimpleAlert(alert.alertId, alert.isTest());
+                return sms.sendAlert(alert.alertId, alert.isTest(),
+                        alert.hasLocation, alert.latitude, alert.longitude, alert.address);
+            }
+
+            @Override
+            public void scheduleRelease(long delayMs) {
+                handler.removeCallbacks(releaseHeld);
+                handler.postDelayed(releaseHeld, delayMs);
+            }
+
+            @Override
+            public void testRefused() {
+                Toast.makeText(AlertCoordinator.this.context, "Too many test messages - try again later",
+                        Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void retrying(int alertId) {
+                Toast.makeText(AlertCoordinator.this.context, "Retrying with simple message...",
+                        Toast.LENGTH_SHORT).show();
+            }
+        },
+                new TokenBucket(5, 60000),      // Alerts: burst of 5, then one a minute
+                new TokenBucket(2, 30000));     // Tests: burst of 2, then one per 30 s
+    }
+
+    public static AlertCoordinator get(Context context) {
+        AlertCoordinator coordinator = instance;
+        if (coordinator == null) {
+            synchronized (AlertCoordinator.class) {
+                coordinator = instance;
+                if (coordinator == null) {
+                    coordinator = new AlertCoordinator(context);
+                    instance = coordinator;
+                }
+            }
+        }
+        return coordinator;
+    }
+
+    /**
+     * Report a fall with the location found for it.
+     *
+     * @param detectionTime wall-clock time the fall was detected, used to merge detections
+     * @param listener      told on the main thread what became of the alert; may be null
+     */
+    public void reportFall(long detectionTime, double latitude, double longitude, String address,
+                           OutcomeListener listener) {
+        enqueue(new AlertPolicy.Alert(AlertPolicy.Type.FALL, detectionTime, true, latitude, longitude, address,
+                0, false, listener));
+    }
+
+    /**
+     * Report a fall for which no location could be found.
+     */
+    public void reportFall(long detectionTime, OutcomeListener listener) {
+        enqueue(new AlertPolicy.Alert(AlertPolicy.Type.FALL, detectionTime, false, 0, 0, "Location unavailable",
+                0, false, listener));
+    }
+
+    /**
+     * Send a test message to the emergency contact.
+     */
+    public void sendTest() {
+        enqueue(new AlertPolicy.Alert(AlertPolicy.Type.TEST, System.currentTimeMillis(), false, 0, 0,
+                "Test location", 0, false, null));
+    }
+
+    /**
+     * A detailed message failed; retry it once as a short message.
+     *
+     * @param test whether the failed message was a test message
+     */
+    void onSendFailed(int alertId, boolean test) {
+        enqueue(new AlertPolicy.Alert(test ? AlertPolicy.Type.RETRY_TEST : AlertPolicy.Type.RETRY_FALL,
+                System.currentTimeMillis(), false, 0, 0, null, alertId, true, null));
+    }
+
+    private void enqueue(AlertPolicy.Alert alert) {
+        queue.offer(alert);
+        if (drainPosted.compareAndSet(false, true)) {
+            handler.post(drain);
+        }
+    }
+
+    private void drain() {
+        drainPosted.set(false);
+        long now = SystemClock.elapsedRealtime();
+        AlertPolicy.Alert alert;
+        while ((alert = queue.poll()) != null) {
+            switch (alert.type) {
+                case FALL:
+                    policy.onFall(alert, now);
+                    break;
+                case TEST:
+                    policy.onTest(alert, now);
+                    break;
+                case RETRY_FALL:
+                case RETRY_TEST:
+                    policy.onRetry(alert, now);
+                    break;
+            }
+        }
+    }
+}
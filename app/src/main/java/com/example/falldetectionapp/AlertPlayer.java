@@ -0,0 +1,213 @@
+package com.example.falldetectionapp;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.util.Log;
+
+/**
+ * Low-latency alarm output: looping sound plus matching vibration.
+ *
+ * The alarm tone is synthesized once into a PCM buffer and loaded into a
+ * static-mode {@link AudioTrack} at construction, so starting the alarm is
+ * just {@code play()} with no decoding or file access. The volume steps up
+ * every {@link #VOLUME_STEP_INTERVAL}, and the vibration pulses follow the
+ * beeps with their amplitude raised on the same schedule. Call
+ * {@link #release()} when the owner is destroyed.
+ */
+public class AlertPlayer {
+
+    /** Told when the alarm stops on its own after {@link #MAX_ALARM_DURATION}. */
+    public interface Listener {
+        void onAlarmTimedOut();
+    }
+
+    private static final String TAG = "AlertPlayer";
+
+    private static final int SAMPLE_RATE = 22050;
+    private static final int BEEP_MS = 250;                 // Tone on, then the same time silent
+    private static final float TONE_LOW_HZ = 880f;
+    private static final float TONE_HIGH_HZ = 1320f;
+    private static final float[] VOLUME_STEPS = {0.25f, 0.5f, 0.75f, 1.0f};
+    private static final long VOLUME_STEP_INTERVAL = 3000;  // Raise the volume every 3 seconds
+    private static final long MAX_ALARM_DURATION = 120000;  // Stop on its own after 2 minutes
+
+    private static final int BEEP_FRAMES = SAMPLE_RATE * BEEP_MS / 1000;
+    private static final int LOOP_FRAMES = BEEP_FRAMES * 4;    // High beep, gap, low beep, gap
+
+    private final Listener listener;
+    private final Vibrator vibrator;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private AudioTrack track;
+    private boolean playing = false;
+    private int volumeStep = 0;
+
+    private final Runnable escalate = new Runnable() {
+        @Override
+        public void run() {
+            if (!playing || track == null) return;
+            if (volumeStep < VOLUME_STEPS.length - 1) {
+                volumeStep++;
+                setVolume(VOLUME_STEPS[volumeStep]);
+                handler.postDelayed(this, VOLUME_STEP_INTERVAL);
+            }
+        }
+    };
+
+    private final Runnable timeout = new Runnable() {
+        @Override
+        public void run() {
+            stop();
+            if (listener != null) listener.onAlarmTimedOut();
+        }
+    };
+
+    public AlertPlayer(Context context, Listener listener) {
+        this.listener = listener;
+        vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        try {
+            track = createTrack();
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to prepare alarm sound", e);
+            track = null;
+        }
+    }
+
+    /**
+     * Build the alarm loop (one high and one low beep with gaps) and load it
+     * into a static AudioTrack that loops forever.
+     */
+    private static AudioTrack createTrack() {
+        int beepFrames = BEEP_FRAMES;
+        int frames = LOOP_FRAMES;
+        short[] pcm = new short[frames];
+        int fade = SAMPLE_RATE / 200;   // 5 ms ramps avoid clicks at beep edges
+        for (int beep = 0; beep < 2; beep++) {
+            float hz = beep == 0 ? TONE_HIGH_HZ : TONE_LOW_HZ;
+            int offset = beep * beepFrames * 2;
+            for (int i = 0; i < beepFrames; i++) {
+                float envelope = Math.min(1f, Math.min(i, beepFrames - 1 - i) / (float) fade);
+                double phase = 2 * Math.PI * hz * i / SAMPLE_RATE;
+                pcm[offset + i] = (short) (Math.sin(phase) * envelope * Short.MAX_VALUE * 0.9);
+            }
+        }
+
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        AudioFormat format = new AudioFormat.Builder()
+                .setSampleRate(SAMPLE_RATE)
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                .build();
+        AudioTrack track = new AudioTrack(attributes, format, frames * 2,
+                AudioTrack.MODE_STATIC, AudioManager.AUDIO_SESSION_ID_GENERATE);
+        track.write(pcm, 0, frames);
+        track.setLoopPoints(0, frames, -1);
+        return track;
+    }
+
+    /**
+     * Start the escalating alarm.
+     *
+     * @param sound     play the alarm tone
+     * @param vibration run the vibration waveform
+     */
+    public void start(boolean sound, boolean vibration) {
+        if (playing) return;
+        playing = true;
+        volumeStep = 0;
+
+        if (sound && track != null) {
+            try {
+                setVolume(VOLUME_STEPS[0]);
+                track.setLoopPoints(0, LOOP_FRAMES, -1);
+                track.play();
+                handler.postDelayed(escalate, VOLUME_STEP_INTERVAL);
+                Log.d(TAG, "Alarm sound started");
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error playing alarm sound", e);
+            }
+        }
+        if (vibration) {
+            startVibration();
+        }
+        handler.postDelayed(timeout, MAX_ALARM_DURATION);
+    }
+
+    private void startVibration() {
+        if (vibrator == null) return;
+        try {
+            // Pulses follow the beeps, and the amplitude steps up with the volume; the last pulse repeats
+            int pulsesPerStep = (int) (VOLUME_STEP_INTERVAL / (2 * BEEP_MS));
+            int pulses = VOLUME_STEPS.length * pulsesPerStep;
+            long[] timings = new long[pulses * 2 + 1];
+            int[] amplitudes = new int[pulses * 2 + 1];
+            timings[0] = 0;
+            for (int i = 0; i < pulses; i++) {
+                timings[1 + i * 2] = BEEP_MS;
+                timings[2 + i * 2] = BEEP_MS;
+                amplitudes[1 + i * 2] = Math.round(255 * VOLUME_STEPS[i / pulsesPerStep]);
+                amplitudes[2 + i * 2] = 0;
+            }
+            int repeatFrom = timings.length - 2;
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                vibrator.vibrate(VibrationEffect.createWaveform(timings, amplitudes, repeatFrom));
+            } else {
+                vibrator.vibrate(timings, repeatFrom);
+            }
+            Log.d(TAG, "Alarm vibration started");
+        } catch (Exception e) {
+            Log.e(TAG, "Error triggering vibration", e);
+        }
+    }
+
+    private void setVolume(float volume) {
+        track.setVolume(volume);
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Silence the alarm. The sound stays loaded for the next {@link #start}.
+     */
+    public void stop() {
+        if (!playing) return;
+        playing = false;
+        handler.removeCallbacks(escalate);
+        handler.removeCallbacks(timeout);
+        if (track != null) {
+            try {
+                track.stop();
+                track.reloadStaticData();   // Rewind for the next start
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error stopping alarm sound", e);
+            }
+        }
+        if (vibrator != null) {
+            vibrator.cancel();
+        }
+    }
+
+    /**
+     * Stop the alarm and free the native audio resources.
+     */
+    public void release() {
+        stop();
+        if (track != null) {
+            track.release();
+            track = null;
+        }
+    }
+}
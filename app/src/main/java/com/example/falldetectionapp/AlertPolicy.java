@@ -0,0 +1,210 @@
+package com.example.falldetectionapp;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+
+/**
+ * The decisions behind {@link AlertCoordinator}: which alerts are merged,
+ * sent, held or refused, and when held ones are released.
+ *
+ * Falls detected within {@link #INCIDENT_WINDOW} of an incident's first
+ * detection are merged into that incident. An incident sends one alert,
+ * plus one follow-up if a later detection brings the location the first
+ * alert lacked. Each channel has a token bucket. Real alerts that hit their
+ * limit are held until a token frees up, never dropped; a newer alert for
+ * the same incident replaces the held one. Test messages over their limit
+ * are refused. A failed message is retried once as a simple message.
+ *
+ * Has no Android dependencies; side effects go through {@link Actions}.
+ * Not thread-safe; the coordinator calls it from the main thread.
+ */
+class AlertPolicy {
+
+    static final long INCIDENT_WINDOW = 120000;     // Detections within 2 minutes are one fall
+
+    enum Channel {
+        ALERT_SMS,      // Real fall alerts, including their retries
+        TEST_SMS        // Manual test messages; own budget so testing cannot use up the alert budget
+    }
+
+    enum Type { FALL, TEST, RETRY_FALL, RETRY_TEST }
+
+    /** One alert request; immutable so it can cross threads. */
+    static final class Alert {
+        final Type type;
+        final long time;            // Detection time (wall clock) for falls
+        final boolean hasLocation;
+        final double latitude, longitude;
+        final String address;
+        final int alertId;          // Set for retries; assigned by the policy otherwise
+        final boolean simple;
+        final AlertCoordinator.OutcomeListener listener;   // May be null
+
+        Alert(Type type, long time, boolean hasLocation, double latitude, double longitude, String address,
+              int alertId, boolean simple, AlertCoordinator.OutcomeListener listener) {
+            this.type = type;
+            this.time = time;
+            this.hasLocation = hasLocation;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.address = address;
+            this.alertId = alertId;
+            this.simple = simple;
+            this.listener = listener;
+        }
+
+        boolean isTest() {
+            return type == Type.TEST || type == Type.RETRY_TEST;
+        }
+
+        Alert withId(int id) {
+            return new Alert(type, time, hasLocation, latitude, longitude, address, id, simple, listener);
+        }
+    }
+
+    /** Side effects of the decisions. */
+    interface Actions {
+        /**
+         * Send the message now.
+         *
+         * @return false if it could not go out, e.g. no contact is set
+         */
+        boolean send(Alert alert);
+
+        /** Call {@link #releaseHeld} after this delay, replacing any earlier schedule. */
+        void scheduleRelease(long delayMs);
+
+        /** A test message was over its limit and not sent. */
+        void testRefused();
+
+        /** A failed message is being retried as a simple message. */
+        void retrying(int alertId);
+    }
+
+    private final Actions actions;
+    private final EnumMap<Channel, TokenBucket> buckets = new EnumMap<>(Channel.class);
+    private int nextAlertId = 1;
+    private int incidentId = 0;                 // Current incident, 0 before the first
+    private long incidentStart = 0;
+    private int incidentDetections = 0;
+    private boolean incidentSent = false;
+    private boolean incidentSentWithLocation = false;
+    private final ArrayList<Alert> held = new ArrayList<>();    // Alerts waiting for a token, oldest first
+    private final int[] retried = new int[8];   // Recently retried alert ids, so each is retried once
+    private int retriedHead = 0;
+
+    AlertPolicy(Actions actions, TokenBucket alertBucket, TokenBucket testBucket) {
+        this.actions = actions;
+        buckets.put(Channel.ALERT_SMS, alertBucket);
+        buckets.put(Channel.TEST_SMS, testBucket);
+    }
+
+    /**
+     * @param now monotonic time (ms) for the rate limits
+     */
+    void onFall(Alert alert, long now) {
+        boolean sameIncident = incidentId != 0
+                && alert.time >= incidentStart && alert.time - incidentStart <= INCIDENT_WINDOW;
+        if (!sameIncident) {
+            incidentId = nextAlertId++;
+            incidentStart = alert.time;
+            incidentDetections = 0;
+            incidentSent = false;
+            incidentSentWithLocation = false;
+        }
+        incidentDetections++;
+
+        if (incidentSentWithLocation || (incidentSent && !alert.hasLocation)) {
+            EventLog.log(EventLog.Event.INCIDENT_MERGED, incidentDetections, incidentId);
+            report(alert, AlertCoordinator.Outcome.MERGED);
+            return;
+        }
+        send(Channel.ALERT_SMS, alert.withId(incidentId), now);
+    }
+
+    void onTest(Alert alert, long now) {
+        send(Channel.TEST_SMS, alert.withId(nextAlertId++), now);
+    }
+
+    void onRetry(Alert alert, long now) {
+        for (int id : retried) {
+            if (id == alert.alertId) return;        // Every failed part of a multipart message reports
+        }
+        retried[retriedHead] = alert.alertId;
+        retriedHead = (retriedHead + 1) % retried.length;
+        EventLog.log(EventLog.Event.ALERT_RETRY, alert.alertId);
+        actions.retrying(alert.alertId);
+        send(alert.isTest() ? Channel.TEST_SMS : Channel.ALERT_SMS, alert, now);
+    }
+
+    /**
+     * Send held alerts as far as the alert budget allows.
+     */
+    void releaseHeld(long now) {
+        TokenBucket bucket = buckets.get(Channel.ALERT_SMS);
+        while (!held.isEmpty() && bucket.tryAcquire(now)) {
+            deliver(held.remove(0));
+        }
+        if (!held.isEmpty()) actions.scheduleRelease(bucket.nextTokenAt(now) - now);
+    }
+
+    /**
+     * @return number of alerts waiting for the rate limit
+     */
+    int heldCount() {
+        return held.size();
+    }
+
+    private void send(Channel channel, Alert alert, long now) {
+        // Alerts already held go first
+        if (channel == Channel.ALERT_SMS && !held.isEmpty()) {
+            hold(alert, now);
+            return;
+        }
+        if (!buckets.get(channel).tryAcquire(now)) {
+            if (channel == Channel.TEST_SMS) {
+                actions.testRefused();
+                report(alert, AlertCoordinator.Outcome.REFUSED);
+                return;
+            }
+            hold(alert, now);
+            return;
+        }
+        deliver(alert);
+    }
+
+    private void hold(Alert alert, long now) {
+        // A newer alert for the same incident replaces the held one, unless it would lose the location
+        for (int i = 0; i < held.size(); i++) {
+            Alert waiting = held.get(i);
+            if (waiting.alertId == alert.alertId && waiting.simple == alert.simple) {
+                if (alert.hasLocation || !waiting.hasLocation) {
+                    held.set(i, alert);
+                    report(waiting, AlertCoordinator.Outcome.MERGED);
+                    report(alert, AlertCoordinator.Outcome.HELD);
+                } else {
+                    report(alert, AlertCoordinator.Outcome.MERGED);
+                }
+                return;
+            }
+        }
+        held.add(alert);
+        long wait = buckets.get(Channel.ALERT_SMS).nextTokenAt(now) - now;
+        EventLog.log(EventLog.Event.ALERT_HELD, alert.alertId, wait);
+        report(alert, AlertCoordinator.Outcome.HELD);
+        actions.scheduleRelease(wait);
+    }
+
+    private void deliver(Alert alert) {
+        boolean sent = actions.send(alert);
+        if (sent && alert.type == Type.FALL && alert.alertId == incidentId) {
+            incidentSent = true;
+            if (alert.hasLocation) incidentSentWithLocation = true;
+        }
+        report(alert, sent ? AlertCoordinator.Outcome.SENT : AlertCoordinator.Outcome.NOT_SENT);
+    }
+
+    private static void report(Alert alert, AlertCoordinator.Outcome outcome) {
+        if (alert.listener != null) alert.listener.onOutcome(outcome);
+    }
+}
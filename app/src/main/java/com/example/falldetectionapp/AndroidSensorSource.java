@@ -0,0 +1,393 @@
+package com.example.falldetectionapp;
+
+import android.hardware.Sensor;
+import android.hardware.SensorDirectChannel;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.MemoryFile;
+import android.os.SystemClock;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The device's own accelerometer and gyroscope.
+ *
+ * Each accelerometer sample is paired with the gyroscope reading at its
+ * timestamp, interpolated from the recent gyroscope samples when the batch
+ * is delivered. A flush from the hub can hand over every accelerometer
+ * event before the gyroscope ones, so pairing on arrival would match an
+ * impact with rotation from up to a report latency earlier.
+ *
+ * The sensor hub may batch samples for up to the report latency; a flush is
+ * dispatched in one looper pass, so the samples are collected and handed to
+ * the listener in one batch from a drain posted behind them. Events arrive
+ * and are delivered on the handler's thread, and a full batch is delivered
+ * synchronously, so the listener paces the stream directly and nothing is
+ * queued or dropped here.
+ *
+ * On Android 8.0+ where both sensors can report into shared memory, they
+ * are read over a {@link SensorDirectChannel} instead: the hub writes
+ * events into a ring without waking the listener machinery, and the ring is
+ * polled once per report latency. Each poll copies only the new records
+ * into a preallocated mirror, which {@link DirectReportParser} reads in
+ * place, so no event objects are created. Elsewhere, or if the channel
+ * cannot be set up, the listeners are used. A channel that configures but
+ * stays silent for {@link #DIRECT_STALL_MS}, or that needs a
+ * {@link #restart}, is given up for the listeners as well.
+ *
+ * Both streams are watched by a {@link SensorHealthMonitor}, and sensor
+ * on-time is reported to {@link PowerStats}.
+ */
+public class AndroidSensorSource implements SensorSource, SensorEventListener {
+
+    private static final int BATCH_CAPACITY = 256;
+    private static final int GYRO_HISTORY = 2 * BATCH_CAPACITY;     // Covers a full batch at equal rates
+    private static final int DIRECT_RING_RECORDS = 1024;    // Shared ring size, about 100 KB
+    private static final int DIRECT_READ_RECORDS = 64;      // Records copied out of the ring at a time
+    private static final long DIRECT_MIN_POLL_MS = 20;
+    private static final long DIRECT_STALL_MS = 2000;      // No record from the hub for this long: it is not writing
+
+    private final SensorManager sensorManager;
+    private final Sensor accelerometer, gyroscope;
+    private final PowerStats powerStats;
+    private final Handler handler;
+    private final int samplingPeriodUs;
+    private int reportLatencyUs;
+
+    private final SensorHealthMonitor accelHealth, gyroHealth;  // null when the sensor is missing
+
+    private final SensorSampleBuffer gyroHistory = new SensorSampleBuffer(GYRO_HISTORY);
+    private final SampleBatch batch = new SampleBatch(BATCH_CAPACITY);
+    private Listener listener;
+    private boolean drainPosted = false;
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            drainPosted = false;
+            deliver();
+        }
+    };
+
+    // Direct channel state; the channel is null while the listeners are in use
+    private boolean directFailed = false;   // Set up once and failed; stay with the listeners
+    private MemoryFile directMemory;
+    private SensorDirectChannel directChannel;
+    private int accelToken, gyroToken;
+    private long directPollMs;
+    private byte[] directMirror;
+    private ByteBuffer directBuffer;
+    private DirectReportParser directParser;
+    private long directLastRecord;          // Elapsed time of the last poll that found records
+    private final Runnable directPoll = new Runnable() {
+        @RequiresApi(Build.VERSION_CODES.O)     // Only posted by startDirect
+        @Override
+        public void run() {
+            if (pollDirect() && SystemClock.elapsedRealtime() - directLastRecord <= DIRECT_STALL_MS) {
+                handler.postDelayed(this, directPollMs);
+            } else {
+                fallBackToListeners();
+            }
+        }
+    };
+
+    /**
+     * @param handler          thread that receives events and calls the listener
+     * @param samplingPeriodUs requested sampling period
+     * @param reportLatencyUs  how long the sensor hub may batch samples
+     */
+    public AndroidSensorSource(SensorManager sensorManager, PowerStats powerStats, Handler handler,
+                               int samplingPeriodUs, int reportLatencyUs) {
+        this.sensorManager = sensorManager;
+        this.powerStats = powerStats;
+        this.handler = handler;
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.reportLatencyUs = reportLatencyUs;
+        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+        gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        accelHealth = accelerometer != null
+                ? new SensorHealthMonitor(samplingPeriodUs, accelerometer.getMaximumRange()) : null;
+        gyroHealth = gyroscope != null
+                ? new SensorHealthMonitor(samplingPeriodUs, gyroscope.getMaximumRange()) : null;
+    }
+
+    public boolean hasAccelerometer() {
+        return accelerometer != null;
+    }
+
+    /**
+     * @return accelerometer stream health, or null if there is no accelerometer
+     */
+    public SensorHealthMonitor getAccelHealth() {
+        return accelHealth;
+    }
+
+    /**
+     * @return gyroscope stream health, or null if there is no gyroscope
+     */
+    public SensorHealthMonitor getGyroHealth() {
+        return gyroHealth;
+    }
+
+    /**
+     * Change how long the sensor hub may batch; takes effect on the next
+     * {@link #start} or {@link #restart}. Over a direct channel it sets how
+     * often the ring is polled instead, down to {@link #DIRECT_MIN_POLL_MS};
+     * as a restart leaves the direct channel, a latency changed for a
+     * recovery always reaches the listeners.
+     */
+    public void setReportLatencyUs(int reportLatencyUs) {
+        this.reportLatencyUs = reportLatencyUs;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        register();
+    }
+
+    /**
+     * @return true if the sensors are being read over a direct channel
+     */
+    public boolean isDirect() {
+        return directChannel != null;
+    }
+
+    @Override
+    public void stop() {
+        unregister();
+        handler.removeCallbacks(drain);
+        drainPosted = false;
+        deliver();
+        listener = null;
+    }
+
+    /**
+     * Re-register both sensors, delivering anything collected so far first.
+     * Recovers streams that some sensor hubs stop delivering. A direct
+     * channel that needed recovering is not trusted again; the listeners
+     * are used from then on.
+     */
+    public void restart() {
+        deliver();
+        if (isDirect()) {
+            directFailed = true;
+            EventLog.log(EventLog.Event.SENSOR_DIRECT_FAILED);
+        }
+        unregister();
+        register();
+    }
+
+    private void register() {
+        long now = SystemClock.elapsedRealtime();
+        gyroHistory.clear();
+        if (accelerometer != null) accelHealth.reset(now);
+        if (gyroscope != null) gyroHealth.reset(now);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && startDirect()) return;
+
+        if (accelerometer != null) {
+            if (sensorManager.registerListener(this, accelerometer, samplingPeriodUs, reportLatencyUs)) {
+                powerStats.sensorStarted(accelerometer, samplingPeriodUs);
+            }
+        }
+        if (gyroscope != null) {
+            if (sensorManager.registerListener(this, gyroscope, samplingPeriodUs, reportLatencyUs)) {
+                powerStats.sensorStarted(gyroscope, samplingPeriodUs);
+            }
+        }
+    }
+
+    private void unregister() {
+        if (isDirect() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            stopDirect();
+        } else {
+            sensorManager.unregisterListener(this);
+        }
+        if (accelerometer != null) powerStats.sensorStopped(accelerometer, samplingPeriodUs);
+        if (gyroscope != null) powerStats.sensorStopped(gyroscope, samplingPeriodUs);
+    }
+
+    // Start reading both sensors over a direct channel, if the device supports it
+    @RequiresApi(Build.VERSION_CODES.O)
+    private boolean startDirect() {
+        if (directFailed || accelerometer == null || gyroscope == null) {
+            return false;
+        }
+        int rateLevel = directRateLevel(samplingPeriodUs);
+        if (!supportsDirect(accelerometer, rateLevel) || !supportsDirect(gyroscope, rateLevel)) {
+            directFailed = true;
+            return false;
+        }
+        try {
+            directMemory = new MemoryFile("sensor_direct", DIRECT_RING_RECORDS * DirectReportParser.RECORD_SIZE);
+            directChannel = sensorManager.createDirectChannel(directMemory);
+            accelToken = directChannel.configure(accelerometer, rateLevel);
+            gyroToken = directChannel.configure(gyroscope, rateLevel);
+        } catch (IOException | RuntimeException e) {
+            accelToken = 0;
+            gyroToken = 0;
+        }
+        if (accelToken <= 0 || gyroToken <= 0) {
+            closeDirect();
+            directFailed = true;
+            EventLog.log(EventLog.Event.SENSOR_DIRECT_FAILED);
+            return false;
+        }
+
+        if (directMirror == null) {
+            directMirror = new byte[DIRECT_RING_RECORDS * DirectReportParser.RECORD_SIZE];
+            // The hub writes in its own byte order
+            directBuffer = ByteBuffer.wrap(directMirror).order(ByteOrder.nativeOrder());
+            directParser = new DirectReportParser(DIRECT_RING_RECORDS);
+        }
+        directParser.reset();
+        directLastRecord = SystemClock.elapsedRealtime();
+        // Poll once per report latency, but often enough that two sensors cannot lap the ring
+        long ringMs = DIRECT_RING_RECORDS * 1000L / (2 * directRateHz(rateLevel));
+        directPollMs = Math.max(DIRECT_MIN_POLL_MS, Math.min(reportLatencyUs / 1000, ringMs / 4));
+        handler.postDelayed(directPoll, directPollMs);
+
+        powerStats.sensorStarted(accelerometer, samplingPeriodUs);
+        powerStats.sensorStarted(gyroscope, samplingPeriodUs);
+        EventLog.log(EventLog.Event.SENSOR_DIRECT_STARTED, rateLevel);
+        return true;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private static boolean supportsDirect(Sensor sensor, int rateLevel) {
+        return sensor.isDirectChannelTypeSupported(SensorDirectChannel.TYPE_MEMORY_FILE)
+                && sensor.getHighestDirectReportRateLevel() >= rateLevel;
+    }
+
+    // Slowest direct report rate that is at least as fast as the requested period
+    @RequiresApi(Build.VERSION_CODES.O)
+    private static int directRateLevel(int samplingPeriodUs) {
+        if (samplingPeriodUs >= 20000) return SensorDirectChannel.RATE_NORMAL;     // Nominally 50 Hz
+        if (samplingPeriodUs >= 5000) return SensorDirectChannel.RATE_FAST;        // Nominally 200 Hz
+        return SensorDirectChannel.RATE_VERY_FAST;                                // Nominally 800 Hz
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private static int directRateHz(int rateLevel) {
+        if (rateLevel == SensorDirectChannel.RATE_VERY_FAST) return 800;
+        return rateLevel == SensorDirectChannel.RATE_FAST ? 200 : 50;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private void stopDirect() {
+        handler.removeCallbacks(directPoll);
+        pollDirect();
+        try {
+            directChannel.configure(accelerometer, SensorDirectChannel.RATE_STOP);
+            directChannel.configure(gyroscope, SensorDirectChannel.RATE_STOP);
+        } catch (RuntimeException e) {
+            // Closing the channel stops the sensors as well
+        }
+        EventLog.log(EventLog.Event.SENSOR_DIRECT_STOPPED, directParser.getLostRecords());
+        closeDirect();
+    }
+
+    // The ring could not be read or the hub stopped writing; carry on with the listeners
+    @RequiresApi(Build.VERSION_CODES.O)
+    private void fallBackToListeners() {
+        EventLog.log(EventLog.Event.SENSOR_DIRECT_FAILED);
+        closeDirect();
+        directFailed = true;
+        powerStats.sensorStopped(accelerometer, samplingPeriodUs);
+        powerStats.sensorStopped(gyroscope, samplingPeriodUs);
+        register();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private void closeDirect() {
+        if (directChannel != null) directChannel.close();
+        if (directMemory != null) directMemory.close();
+        directChannel = null;
+        directMemory = null;
+    }
+
+    /**
+     * Read every record the hub has written since the last poll.
+     *
+     * @return false if the shared memory could not be read
+     */
+    private boolean pollDirect() {
+        boolean ok = true;
+        boolean gyroSeen = false;
+        int read = 0;
+        try {
+            // Copy a chunk at the read position and parse it; a full chunk means more may follow
+            while (read < DIRECT_RING_RECORDS) {
+                int slot = directParser.getNextSlot();
+                int records = Math.min(DIRECT_READ_RECORDS, DIRECT_RING_RECORDS - slot);
+                int offset = slot * DirectReportParser.RECORD_SIZE;
+                directMemory.readBytes(directMirror, offset, offset, records * DirectReportParser.RECORD_SIZE);
+                int parsed = 0;
+                while (parsed < records && directParser.next(directBuffer)) {
+                    parsed++;
+                    float[] values = directParser.values;
+                    if (directParser.token == accelToken) {
+                        onAccel(directParser.timestampMs, values[0], values[1], values[2]);
+                    } else if (directParser.token == gyroToken) {
+                        onGyro(directParser.timestampMs, values[0], values[1], values[2]);
+                        gyroSeen = true;
+                    }
+                }
+                read += parsed;
+                if (parsed < records) break;
+            }
+        } catch (IOException e) {
+            ok = false;
+        }
+        if (read > 0) directLastRecord = SystemClock.elapsedRealtime();
+        if (gyroSeen) gyroHealth.onDelivery(directLastRecord);
+        deliver();
+        return ok;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        long timestampMs = event.timestamp / 1000000L;
+        float[] values = event.values;
+        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            onAccel(timestampMs, values[0], values[1], values[2]);
+            if (batch.count > 0 && !drainPosted) {
+                drainPosted = true;
+                handler.post(drain);
+            }
+        } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
+            onGyro(timestampMs, values[0], values[1], values[2]);
+            gyroHealth.onDelivery(SystemClock.elapsedRealtime());
+        }
+    }
+
+    private void onAccel(long timestampMs, float x, float y, float z) {
+        accelHealth.onSample(timestampMs, x, y, z);
+        batch.add(timestampMs, x, y, z, 0, 0, 0);      // Gyroscope filled in on delivery
+        if (batch.isFull()) deliver();
+    }
+
+    private void onGyro(long timestampMs, float x, float y, float z) {
+        gyroHistory.add(timestampMs, x, y, z);
+        gyroHealth.onSample(timestampMs, x, y, z);
+    }
+
+    private void deliver() {
+        if (batch.count == 0) return;
+        accelHealth.onDelivery(SystemClock.elapsedRealtime());
+        gyroHistory.interpolate(batch.timestamps, batch.count, batch.gx, batch.gy, batch.gz);
+        if (listener != null) listener.onSamples(batch);
+        batch.clear();
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Not used
+    }
+}
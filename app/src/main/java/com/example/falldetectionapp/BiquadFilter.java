@@ -0,0 +1,84 @@
+package com.example.falldetectionapp;
+
+/**
+ * Second-order IIR (biquad) filter in transposed direct form II.
+ *
+ * Coefficients follow the Audio EQ Cookbook low-pass and high-pass designs.
+ * On the first sample the internal state is set to the steady-state response
+ * for a constant input, so a low-pass starts at the input value and a
+ * high-pass starts at zero instead of ringing.
+ */
+public class BiquadFilter implements SignalFilter {
+
+    private static final float BUTTERWORTH_Q = 0.7071f;
+
+    private final float b0, b1, b2, a1, a2;
+    private float z1 = 0, z2 = 0;
+    private boolean primed = false;
+
+    private BiquadFilter(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = (float) (b0 / a0);
+        this.b1 = (float) (b1 / a0);
+        this.b2 = (float) (b2 / a0);
+        this.a1 = (float) (a1 / a0);
+        this.a2 = (float) (a2 / a0);
+    }
+
+    /**
+     * Butterworth low-pass filter.
+     *
+     * @param cutoffHz     -3 dB cutoff frequency
+     * @param sampleRateHz rate at which samples are fed
+     */
+    public static BiquadFilter lowPass(float cutoffHz, float sampleRateHz) {
+        double w0 = omega(cutoffHz, sampleRateHz);
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * BUTTERWORTH_Q);
+        return new BiquadFilter((1 - cos) / 2, 1 - cos, (1 - cos) / 2,
+                1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    /**
+     * Butterworth high-pass filter.
+     *
+     * @param cutoffHz     -3 dB cutoff frequency
+     * @param sampleRateHz rate at which samples are fed
+     */
+    public static BiquadFilter highPass(float cutoffHz, float sampleRateHz) {
+        double w0 = omega(cutoffHz, sampleRateHz);
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * BUTTERWORTH_Q);
+        return new BiquadFilter((1 + cos) / 2, -(1 + cos), (1 + cos) / 2,
+                1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    private static double omega(float cutoffHz, float sampleRateHz) {
+        if (cutoffHz <= 0 || cutoffHz >= sampleRateHz / 2) {
+            throw new IllegalArgumentException("Cutoff must be between 0 and the Nyquist frequency");
+        }
+        return 2 * Math.PI * cutoffHz / sampleRateHz;
+    }
+
+    @Override
+    public float filter(float value) {
+        if (!primed) {
+            // Start from the steady state for a constant input equal to the first sample
+            float dcGain = (b0 + b1 + b2) / (1 + a1 + a2);
+            float y = dcGain * value;
+            z2 = b2 * value - a2 * y;
+            z1 = b1 * value - a1 * y + z2;
+            primed = true;
+        }
+        float output = b0 * value + z1;
+        z1 = b1 * value - a1 * output + z2;
+        z2 = b2 * value - a2 * output;
+        return output;
+    }
+
+    @Override
+    public void reset() {
+        z1 = 0;
+        z2 = 0;
+        primed = false;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.falldetectionapp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Always-on flight recorder of the accelerometer and gyroscope streams.
+ *
+ * Samples are quantized (0.01 m/s^2, 0.001 rad/s) and written into blocks of
+ * up to {@link #BLOCK_SAMPLES} samples. The first sample of a block is stored
+ * as is and every later one as its difference from the previous sample;
+ * each value is zigzag-coded so small negative steps stay small, then
+ * written as a varint. A quiet sample takes 7 bytes instead of 28 as floats.
+ *
+ * Blocks live back to back in one byte array sized by the memory budget;
+ * when it is full the oldest blocks are overwritten, so the recorder holds
+ * as many minutes as the budget allows and never allocates while recording.
+ * {@link #freeze} copies the blocks around an incident out of the ring so
+ * they can be saved, and {@link #read} turns a saved file back into samples.
+ *
+ * Not thread-safe; add samples and freeze from the same thread.
+ */
+public class BlackBoxRecorder {
+
+    static final float ACCEL_SCALE = 100f;      // Stored in 0.01 m/s^2 steps
+    static final float GYRO_SCALE = 1000f;      // Stored in 0.001 rad/s steps
+    static final int BLOCK_SAMPLES = 128;
+    private static final int CHANNELS = 6;
+    private static final int MAX_SAMPLE_BYTES = 10 + CHANNELS * 5;  // Longest varints
+    private static final int MIN_SAMPLE_BYTES = 1 + CHANNELS;
+    private static final int FILE_MAGIC = 0x42424f58;               // "BBOX"
+    private static final int FORMAT_VERSION = 1;
+
+    private final byte[] arena;
+
+    // Closed blocks as a ring, oldest first
+    private final int[] blockOffset;
+    private final int[] blockLength;
+    private final int[] blockSamples;
+    private final long[] blockFirst;
+    private final long[] blockLast;
+    private int oldestBlock = 0;
+    private int blockCount = 0;
+
+    // Block being written; it always starts at openOffset and ends at writePos
+    private int openOffset = 0;
+    private int writePos = 0;
+    private int openSamples = 0;
+    private long openFirst;
+    private long lastTimestamp;
+    private final int[] last = new int[CHANNELS];
+    private final int[] current = new int[CHANNELS];
+
+    /**
+     * @param budgetBytes memory for the compressed samples
+     */
+    public BlackBoxRecorder(int budgetBytes) {
+        if (budgetBytes < 4 * BLOCK_SAMPLES * MAX_SAMPLE_BYTES) {
+            throw new IllegalArgumentException("Budget must hold at least four full blocks");
+        }
+        arena = new byte[budgetBytes];
+        int maxBlocks = budgetBytes / (BLOCK_SAMPLES * MIN_SAMPLE_BYTES) + 2;
+        blockOffset = new int[maxBlocks];
+        blockLength = new int[maxBlocks];
+        blockSamples = new int[maxBlocks];
+        blockFirst = new long[maxBlocks];
+        blockLast = new long[maxBlocks];
+    }
+
+    public void add(SampleBatch batch) {
+        for (int i = 0; i < batch.count; i++) {
+            add(batch.timestamps[i], batch.ax[i], batch.ay[i], batch.az[i], batch.gx[i], batch.gy[i], batch.gz[i]);
+        }
+    }
+
+    public void add(long timestampMs, float ax, float ay, float az, float gx, float gy, float gz) {
+        makeRoom();
+        current[0] = quantize(ax, ACCEL_SCALE);
+        current[1] = quantize(ay, ACCEL_SCALE);
+        current[2] = quantize(az, ACCEL_SCALE);
+        current[3] = quantize(gx, GYRO_SCALE);
+        current[4] = quantize(gy, GYRO_SCALE);
+        current[5] = quantize(gz, GYRO_SCALE);
+
+        if (openSamples == 0) {
+            openFirst = timestampMs;
+            putVarint(zigzag(timestampMs));
+            for (int c = 0; c < CHANNELS; c++) putVarint(zigzag(current[c]));
+        } else {
+            putVarint(zigzag(timestampMs - lastTimestamp));
+            for (int c = 0; c < CHANNELS; c++) putVarint(zigzag((long) current[c] - last[c]));
+        }
+        System.arraycopy(current, 0, last, 0, CHANNELS);
+        lastTimestamp = timestampMs;
+        if (++openSamples == BLOCK_SAMPLES) closeBlock();
+    }
+
+    private static int quantize(float value, float scale) {
+        float scaled = value * scale;
+        if (Float.isNaN(scaled)) return 0;
+        return Math.round(Math.max(Integer.MIN_VALUE / 2f, Math.min(Integer.MAX_VALUE / 2f, scaled)));
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            arena[writePos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        arena[writePos++] = (byte) value;
+    }
+
+    // Make sure the next sample fits contiguously after writePos
+    private void makeRoom() {
+        if (writePos + MAX_SAMPLE_BYTES > arena.length) {
+            closeBlock();
+            openOffset = 0;
+            writePos = 0;
+        }
+        // The oldest block is the first one ahead of the write position, if any is
+        while (blockCount > 0) {
+            int offset = blockOffset[oldestBlock];
+            if (offset < openOffset || offset >= writePos + MAX_SAMPLE_BYTES) break;
+            dropOldest();
+        }
+    }
+
+    private void closeBlock() {
+        if (openSamples == 0) return;
+        if (blockCount == blockOffset.length) dropOldest();
+        int slot = (oldestBlock + blockCount) % blockOffset.length;
+        blockOffset[slot] = openOffset;
+        blockLength[slot] = writePos - openOffset;
+        blockSamples[slot] = openSamples;
+        blockFirst[slot] = openFirst;
+        blockLast[slot] = lastTimestamp;
+        blockCount++;
+        openOffset = writePos;
+        openSamples = 0;
+    }
+
+    private void dropOldest() {
+        oldestBlock = (oldestBlock + 1) % blockOffset.length;
+        blockCount--;
+    }
+
+    /**
+     * @return number of samples held
+     */
+    public int getStoredSamples() {
+        int samples = openSamples;
+        for (int i = 0; i < blockCount; i++) samples += blockSamples[(oldestBlock + i) % blockOffset.length];
+        return samples;
+    }
+
+    /**
+     * @return compressed bytes held
+     */
+    public int getStoredBytes() {
+        int bytes = writePos - openOffset;
+        for (int i = 0; i < blockCount; i++) bytes += blockLength[(oldestBlock + i) % blockOffset.length];
+        return bytes;
+    }
+
+    /**
+     * @return timestamp of the oldest sample held, or -1 if empty
+     */
+    public long getOldestTimestamp() {
+        if (blockCount > 0) return blockFirst[oldestBlock];
+        return openSamples > 0 ? openFirst : -1;
+    }
+
+    /**
+     * Copy out the blocks overlapping a time range. Whole blocks are taken,
+     * so the snapshot can start and end a little outside the range.
+     */
+    public Snapshot freeze(long fromMs, long toMs) {
+        closeBlock();
+        Snapshot snapshot = new Snapshot();
+        for (int i = 0; i < blockCount; i++) {
+            int slot = (oldestBlock + i) % blockOffset.length;
+            if (blockLast[slot] < fromMs || blockFirst[slot] > toMs) continue;
+            byte[] data = new byte[blockLength[slot]];
+            System.arraycopy(arena, blockOffset[slot], data, 0, data.length);
+            snapshot.blocks.add(data);
+            snapshot.samples.add(blockSamples[slot]);
+        }
+        return snapshot;
+    }
+
+    /** Compressed blocks taken out of the recorder. */
+    public static final class Snapshot {
+        private final List<byte[]> blocks = new ArrayList<>();
+        private final List<Integer> samples = new ArrayList<>();
+
+        public int getSampleCount() {
+            int count = 0;
+            for (int s : samples) count += s;
+            return count;
+        }
+
+        /**
+         * Save the blocks as they are. Blocks on disk, so call it off the main thread.
+         *
+         * File layout (big-endian): int magic, int version, int block count,
+         * then per block int sample count, int byte length and the bytes.
+         */
+        public void writeTo(File file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(blocks.size());
+                for (int i = 0; i < blocks.size(); i++) {
+                    out.writeInt(samples.get(i));
+                    out.writeInt(blocks.get(i).length);
+                    out.write(blocks.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode a file saved by {@link Snapshot#writeTo}.
+     */
+    public static SampleBatch read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a black box recording: " + file);
+            }
+            int blocks = in.readInt();
+            List<byte[]> data = new ArrayList<>();
+            List<Integer> samples = new ArrayList<>();
+            int total = 0;
+            for (int b = 0; b < blocks; b++) {
+                int count = in.readInt();
+                int length = in.readInt();
+                if (count <= 0 || count > BLOCK_SAMPLES || length <= 0 || length > BLOCK_SAMPLES * MAX_SAMPLE_BYTES) {
+                    throw new IOException("Corrupt black box block " + b);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                data.add(bytes);
+                samples.add(count);
+                total += count;
+            }
+
+            SampleBatch batch = new SampleBatch(Math.max(1, total));
+            int[] position = new int[1];
+            int[] values = new int[CHANNELS];
+            for (int b = 0; b < blocks; b++) {
+                byte[] bytes = data.get(b);
+                position[0] = 0;
+                long timestamp = 0;
+                for (int s = 0; s < samples.get(b); s++) {
+                    timestamp = s == 0 ? unzigzag(getVarint(bytes, position))
+                            : timestamp + unzigzag(getVarint(bytes, position));
+                    for (int c = 0; c < CHANNELS; c++) {
+                        long value = unzigzag(getVarint(bytes, position));
+                        values[c] = s == 0 ? (int) value : (int) (values[c] + value);
+                    }
+                    batch.add(timestamp, values[0] / ACCEL_SCALE, values[1] / ACCEL_SCALE, values[2] / ACCEL_SCALE,
+                            values[3] / GYRO_SCALE, values[4] / GYRO_SCALE, values[5] / GYRO_SCALE);
+                }
+            }
+            return batch;
+        }
+    }
+
+    private static long getVarint(byte[] bytes, int[] position) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int index = position[0]++;
+            if (index >= bytes.length) throw new IOException("Truncated black box block");
+            byte b = bytes[index];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in black box block");
+    }
+
+    /**
+     * Write samples in the format {@link ReplaySensorSource} reads.
+     */
+    public static void writeCsv(SampleBatch batch, Writer out) throws IOException {
+        out.write("# timestamp_ms,ax,ay,az,gx,gy,gz\n");
+        for (int i = 0; i < batch.count; i++) {
+            out.write(String.format(Locale.US, "%d,%.2f,%.2f,%.2f,%.3f,%.3f,%.3f%n", batch.timestamps[i],
+                    batch.ax[i], batch.ay[i], batch.az[i], batch.gx[i], batch.gy[i], batch.gz[i]));
+        }
+    }
+}
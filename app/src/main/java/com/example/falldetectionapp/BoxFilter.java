@@ -0,0 +1,43 @@
+package com.example.falldetectionapp;
+
+/**
+ * Moving average over the last N samples using a running sum.
+ *
+ * Each sample costs one add and one subtract regardless of the window length.
+ * Until the window has filled, the average is taken over the samples seen so
+ * far instead of padding with zeros.
+ */
+public class BoxFilter implements SignalFilter {
+
+    private final float[] window;
+    private int index = 0;
+    private int filled = 0;
+    private double sum = 0;     // Double keeps the running sum from drifting
+
+    public BoxFilter(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Window length must be positive");
+        }
+        window = new float[length];
+    }
+
+    @Override
+    public float filter(float value) {
+        if (filled == window.length) {
+            sum -= window[index];
+        } else {
+            filled++;
+        }
+        window[index] = value;
+        sum += value;
+        index = (index + 1) % window.length;
+        return (float) (sum / filled);
+    }
+
+    @Override
+    public void reset() {
+        index = 0;
+        filled = 0;
+        sum = 0;
+    }
+}
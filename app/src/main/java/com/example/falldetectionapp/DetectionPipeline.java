@@ -0,0 +1,131 @@
+package com.example.falldetectionapp;
+
+/**
+ * Detection stages that run on every batch from a {@link SensorSource}: the
+ * {@link FallDetector}, the post-impact {@link FallConfirmation} and the
+ * recent-sample buffer that incident snippets are cut from.
+ *
+ * Free of Android dependencies, so any source can drive it, including a
+ * replay or socket source on a development machine. Not thread-safe; feed
+ * it from the source's delivery thread and the callbacks run there too.
+ */
+public class DetectionPipeline implements SensorSource.Listener {
+
+    public interface Callback {
+        /**
+         * The detector fired; the confirmation stage has just begun.
+         */
+        void onFallCandidate(long timestampMs);
+
+        /**
+         * Confirmation result after each sample while a candidate is pending.
+         */
+        void onConfirmationState(FallConfirmation.State state);
+
+        /**
+         * The samples around the last candidate are buffered and can be
+         * taken with {@link #copySnippet}.
+         */
+        void onSnippetReady(long candidateTimestampMs);
+
+        /**
+         * The source stopped by itself; see {@link SensorSource.Listener#onSourceEnded}.
+         */
+        void onSourceEnded(Exception error);
+    }
+
+    private final FallDetector detector;
+    private final FallConfirmation confirmation;
+    private final Callback callback;
+
+    // Sensor window kept for incident snippets
+    private final SensorSampleBuffer recentSamples;
+    private final long snippetBefore;
+    private final long snippetAfter;
+    private long candidateTime = 0;
+    private boolean snippetPending = false;
+
+    private boolean detectionEnabled = true;
+
+    /**
+     * @param snippetCapacity samples kept for snippets
+     * @param snippetBefore   snippet length before the candidate (ms)
+     * @param snippetAfter    snippet length after the candidate (ms)
+     */
+    public DetectionPipeline(FallDetector detector, FallConfirmation confirmation, Callback callback,
+                             int snippetCapacity, long snippetBefore, long snippetAfter) {
+        this.detector = detector;
+        this.confirmation = confirmation;
+        this.callback = callback;
+        this.recentSamples = new SensorSampleBuffer(snippetCapacity);
+        this.snippetBefore = snippetBefore;
+        this.snippetAfter = snippetAfter;
+    }
+
+    /**
+     * Turn the detector on or off, e.g. while the permissions needed to
+     * alert are missing. Confirmation of a pending candidate carries on.
+     */
+    public void setDetectionEnabled(boolean enabled) {
+        detectionEnabled = enabled;
+    }
+
+    @Override
+    public void onSamples(SampleBatch batch) {
+        boolean confirming = confirmation.isActive();
+        int detectedAt = -1;
+        if (!confirming && detectionEnabled) {
+            detectedAt = detector.detectFallBatch(batch);
+        }
+
+        // Confirmation stage only does real work while a candidate fall is pending
+        for (int i = 0; i < batch.count; i++) {
+            long t = batch.timestamps[i];
+            if (i == detectedAt) {
+                confirmation.begin(t, detector.raisesEvidenceBar());
+                candidateTime = t;
+                snippetPending = true;
+                callback.onFallCandidate(t);
+                confirming = true;
+            }
+            recentSamples.add(t, batch.ax[i], batch.ay[i], batch.az[i]);
+            if (snippetPending && t >= candidateTime + snippetAfter) {
+                finishSnippet();
+            }
+            FallConfirmation.State state = confirmation.onSample(t, batch.ax[i], batch.ay[i], batch.az[i]);
+            if (confirming) {
+                callback.onConfirmationState(state);
+                confirming = confirmation.isActive();
+            }
+        }
+    }
+
+    @Override
+    public void onSourceEnded(Exception error) {
+        callback.onSourceEnded(error);
+    }
+
+    /**
+     * Report the snippet of the last candidate now, with whatever part of the
+     * post-candidate window has arrived, if it has not been reported yet.
+     */
+    public void finishSnippet() {
+        if (!snippetPending) return;
+        snippetPending = false;
+        callback.onSnippetReady(candidateTime);
+    }
+
+    /**
+     * Copy the buffered samples around the last candidate, oldest first.
+     *
+     * @return number of samples copied
+     */
+    public int copySnippet(long[] timestampsOut, float[] xOut, float[] yOut, float[] zOut) {
+        return recentSamples.copy(candidateTime - snippetBefore, candidateTime + snippetAfter,
+                timestampsOut, xOut, yOut, zOut);
+    }
+
+    public FallDetector getDetector() {
+        return detector;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.falldetectionapp;
+
+/**
+ * Tunable parameters for a {@link FallDetector}.
+ *
+ * A detector copies the values it needs when it is constructed, so changing a
+ * config afterwards does not affect detectors that already exist.
+ */
+public class DetectorConfig {
+
+    public enum FilterType {
+        NONE,           // Raw magnitude
+        BOX,            // Running-sum moving average over filterWindow samples
+        EXPONENTIAL,    // Exponential moving average with filterAlpha
+        LOW_PASS,       // Butterworth biquad low-pass at filterCutoffHz
+        HIGH_PASS,      // Butterworth biquad high-pass at filterCutoffHz
+        MEDIAN          // Running median over filterWindow samples
+    }
+
+    private float fallThresholdHigh = 15.0f;    // High accel magnitude threshold
+    private float fallThresholdLow = 2.0f;      // Low accel threshold (impact)
+    private float impactThreshold = 12.0f;      // Impact threshold (high accel after fall)
+    private float gyroThreshold = 3.0f;         // Gyroscope angular velocity threshold (rad/s)
+    private int confirmationCount = 3;          // Number of confirmations for fall
+    private long fallCooldown = 10000;          // 10 seconds cooldown between falls
+    private long impactWindow = 2000;           // 2 seconds window for impact detection
+
+    private FilterType filterType = FilterType.BOX;
+    private int filterWindow = 5;               // Samples, for BOX and MEDIAN
+    private float filterAlpha = 0.3f;           // For EXPONENTIAL
+    private float filterCutoffHz = 5.0f;        // For LOW_PASS and HIGH_PASS
+    private float sampleRateHz = 50.0f;         // Expected sensor rate (SENSOR_DELAY_GAME)
+
+    private boolean orientationTracking = false; // Run the gravity/orientation estimator per sample
+    private boolean activityGating = false;     // Recognize the user's activity and ask for more evidence in a vehicle
+
+    public DetectorConfig copy() {
+        DetectorConfig copy = new DetectorConfig();
+        copy.fallThresholdHigh = fallThresholdHigh;
+        copy.fallThresholdLow = fallThresholdLow;
+        copy.impactThreshold = impactThreshold;
+        copy.gyroThreshold = gyroThreshold;
+        copy.confirmationCount = confirmationCount;
+        copy.fallCooldown = fallCooldown;
+        copy.impactWindow = impactWindow;
+        copy.filterType = filterType;
+        copy.filterWindow = filterWindow;
+        copy.filterAlpha = filterAlpha;
+        copy.filterCutoffHz = filterCutoffHz;
+        copy.sampleRateHz = sampleRateHz;
+        copy.orientationTracking = orientationTracking;
+        copy.activityGating = activityGating;
+        return copy;
+    }
+
+    /**
+     * Build a new instance of the smoothing filter selected by this config.
+     */
+    public SignalFilter createFilter() {
+        switch (filterType) {
+            case BOX:
+                return new BoxFilter(filterWindow);
+            case EXPONENTIAL:
+                return new ExponentialFilter(filterAlpha);
+            case LOW_PASS:
+                return BiquadFilter.lowPass(filterCutoffHz, sampleRateHz);
+            case HIGH_PASS:
+                return BiquadFilter.highPass(filterCutoffHz, sampleRateHz);
+            case MEDIAN:
+                return new MedianFilter(filterWindow);
+            case NONE:
+            default:
+                return null;
+        }
+    }
+
+    public float getFallThresholdHigh() { return fallThresholdHigh; }
+    public float getFallThresholdLow() { return fallThresholdLow; }
+    public float getImpactThreshold() { return impactThreshold; }
+    public float getGyroThreshold() { return gyroThreshold; }
+    public int getConfirmationCount() { return confirmationCount; }
+    public long getFallCooldown() { return fallCooldown; }
+    public long getImpactWindow() { return impactWindow; }
+    public FilterType getFilterType() { return filterType; }
+    public int getFilterWindow() { return filterWindow; }
+    public float getFilterAlpha() { return filterAlpha; }
+    public float getFilterCutoffHz() { return filterCutoffHz; }
+    public float getSampleRateHz() { return sampleRateHz; }
+    public boolean isOrientationTracking() { return orientationTracking; }
+    public boolean isActivityGating() { return activityGating; }
+
+    public DetectorConfig setFallThresholdHigh(float value) { fallThresholdHigh = value; return this; }
+    public DetectorConfig setFallThresholdLow(float value) { fallThresholdLow = value; return this; }
+    public DetectorConfig setImpactThreshold(float value) { impactThreshold = value; return this; }
+    public DetectorConfig setGyroThreshold(float value) { gyroThreshold = value; return this; }
+    public DetectorConfig setConfirmationCount(int value) { confirmationCount = value; return this; }
+    public DetectorConfig setFallCooldown(long value) { fallCooldown = value; return this; }
+    public DetectorConfig setImpactWindow(long value) { impactWindow = value; return this; }
+    public DetectorConfig setFilterType(FilterType value) { filterType = value; return this; }
+    public DetectorConfig setFilterWindow(int value) { filterWindow = value; return this; }
+    public DetectorConfig setFilterAlpha(float value) { filterAlpha = value; return this; }
+    public DetectorConfig setFilterCutoffHz(float value) { filterCutoffHz = value; return this; }
+    public DetectorConfig setSampleRateHz(float value) { sampleRateHz = value; return this; }
+    public DetectorConfig setOrientationTracking(boolean value) { orientationTracking = value; return this; }
+    public DetectorConfig setActivityGating(boolean value) { activityGating = value; return this; }
+}
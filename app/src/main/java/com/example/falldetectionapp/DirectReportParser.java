@@ -0,0 +1,108 @@
+package com.example.falldetectionapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads sensor events from the shared-memory ring of a
+ * {@code SensorDirectChannel}.
+ *
+ * The sensor hub writes fixed-size records one after another, wrapping at
+ * the end of the ring. Each record carries a counter that increases by one
+ * per record and is written last, so a record is new exactly when its
+ * counter is the next one expected. A counter that jumped ahead means the
+ * writer lapped the reader and the skipped records are counted as lost.
+ * Record layout, in native byte order:
+ * <pre>
+ *   int    record size (104)
+ *   int    report token of the sensor
+ *   int    sensor type
+ *   int    atomic counter
+ *   long   timestamp (ns, elapsedRealtimeNanos clock)
+ *   float  data[16]
+ *   int    reserved[4]
+ * </pre>
+ * Works on any {@link ByteBuffer} holding the ring, with absolute reads and
+ * no allocation, so it runs unchanged on a JVM against a synthetic buffer.
+ * After {@link #next} returns a record its fields are in {@link #token},
+ * {@link #timestampMs} and {@link #values}.
+ */
+public class DirectReportParser {
+
+    public static final int RECORD_SIZE = 104;
+    static final int OFFSET_SIZE = 0;
+    static final int OFFSET_TOKEN = 4;
+    static final int OFFSET_TYPE = 8;
+    static final int OFFSET_COUNTER = 12;
+    static final int OFFSET_TIMESTAMP = 16;
+    static final int OFFSET_DATA = 24;
+
+    private final int capacity;         // Records in the ring
+    private int nextSlot = 0;
+    private int expectedCounter = 1;    // The hub numbers records from 1
+    private long lostRecords = 0;
+
+    // The last record returned by next()
+    public int token;
+    public int type;
+    public long timestampMs;
+    public final float[] values = new float[3];
+
+    /**
+     * @param capacityRecords number of records the ring holds
+     */
+    public DirectReportParser(int capacityRecords) {
+        if (capacityRecords <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacityRecords;
+    }
+
+    /**
+     * Advance to the next unread record.
+     *
+     * @param ring buffer holding the whole ring, in native byte order
+     * @return false if no new record has been written yet
+     */
+    public boolean next(ByteBuffer ring) {
+        int base = nextSlot * RECORD_SIZE;
+        int counter = ring.getInt(base + OFFSET_COUNTER);
+        int ahead = counter - expectedCounter;      // Difference, so the counter may wrap
+        if (counter == 0 || ahead < 0 || ring.getInt(base + OFFSET_SIZE) != RECORD_SIZE) {
+            return false;
+        }
+        lostRecords += ahead;
+        expectedCounter = counter + 1;
+        nextSlot = nextSlot + 1 == capacity ? 0 : nextSlot + 1;
+
+        token = ring.getInt(base + OFFSET_TOKEN);
+        type = ring.getInt(base + OFFSET_TYPE);
+        timestampMs = ring.getLong(base + OFFSET_TIMESTAMP) / 1000000L;
+        values[0] = ring.getFloat(base + OFFSET_DATA);
+        values[1] = ring.getFloat(base + OFFSET_DATA + 4);
+        values[2] = ring.getFloat(base + OFFSET_DATA + 8);
+        return true;
+    }
+
+    /**
+     * @return ring slot the next record will be read from
+     */
+    public int getNextSlot() {
+        return nextSlot;
+    }
+
+    /**
+     * @return records overwritten before they could be read
+     */
+    public long getLostRecords() {
+        return lostRecords;
+    }
+
+    /**
+     * Start over for a freshly configured channel.
+     */
+    public void reset() {
+        nextSlot = 0;
+        expectedCounter = 1;
+        lostRecords = 0;
+    }
+}
@@ -21,9 +21,9 @@ public class EmergencyContactsActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_contacts); // Make sure this XML file exists in res/layout
 
-        // Initialize helpers
-        smsHelper = new SMSHelper(this);
-        locationHelper = new LocationHelper(this);
+        // Shared with MainActivity, so no second set of SMS receivers is registered
+        smsHelper = SMSHelper.get(this);
+        locationHelper = LocationHelper.get(this);
 
         // Find views
         contactInput = findViewById(R.id.contactInput);
@@ -73,4 +73,11 @@ public class EmergencyContactsActivity extends AppCompatActivity {
         // Back button
         backButton.setOnClickListener(v -> finish());
     }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // The SMS switch is written with a delay; don't lose it if the app is killed
+        SettingsStore.get(this).flush();
+    }
 }
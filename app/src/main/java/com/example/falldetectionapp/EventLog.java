@@ -0,0 +1,201 @@
+package com.example.falldetectionapp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * In-memory ring of recent app events for diagnostics.
+ *
+ * Each entry is a fixed {@link Event} plus up to two primitive arguments
+ * and a timestamp, stored in parallel arrays, so logging allocates nothing
+ * and builds no strings. Text is only produced when the log is dumped,
+ * which happens when an alert goes out and when the user exports a report.
+ * The oldest entries are overwritten once the ring is full.
+ */
+public final class EventLog {
+
+    static final int CAPACITY = 2048;
+
+    /**
+     * Every loggable event. The argument kinds are 'd' for an integer,
+     * 'f' for a float, 'b' for a boolean, 'h' for a sensor health status and
+     * 'a' for a recognized activity.
+     */
+    public enum Event {
+        ACTIVITY_CREATED("Main screen created", ""),
+        SENSORS_STARTED("Sensors started", ""),
+        SENSORS_STOPPED("Sensors stopped", ""),
+        SENSOR_RECOVERY("Sensor stream %s, re-registering (attempt %d)", "hd"),
+        SENSOR_DIRECT_STARTED("Sensors read over a direct channel at rate level %d", "d"),
+        SENSOR_DIRECT_STOPPED("Direct channel closed, %d records lost", "d"),
+        SENSOR_DIRECT_FAILED("Direct channel unavailable, using sensor listeners", ""),
+        PERMISSIONS_RESULT("Permissions answered: %d granted, %d denied", "dd"),
+        ACTIVITY_CHANGED("Activity now %s", "a"),
+        FALL_SUPPRESSED("Fall pattern ignored while %s", "a"),
+        FALL_PATTERN("Fall pattern after %d ms of free fall, %d confirmations", "dd"),
+        FALL_CANDIDATE("Possible fall, score %.3f", "f"),
+        FALL_REJECTED("Movement after impact, fall not confirmed", ""),
+        FALL_CANCELLED("Pending alert cancelled by user", ""),
+        FALL_CONFIRMED("Fall confirmed, contact set %b, SMS enabled %b", "bb"),
+        ALARM_STOPPED("Alarm stopped by user", ""),
+        LOCATION_FOUND("Location found", ""),
+        LOCATION_FAILED("Location unavailable", ""),
+        INCIDENT_MERGED("Detection %d merged into alert %d", "dd"),
+        ALERT_HELD("Alert %d held by rate limit for %d ms", "dd"),
+        ALERT_RETRY("Alert %d retried as a simple message", "d"),
+        SMS_SEND("Sending alert %d, %d characters", "dd"),
+        SMS_SIMPLE_SEND("Sending alert %d as a simple message, %d characters", "dd"),
+        SMS_SENT_RESULT("Alert %d send result %d", "dd"),
+        SMS_DELIVERY_RESULT("Alert %d delivery result %d", "dd");
+
+        final String format;
+        final String kinds;
+
+        Event(String format, String kinds) {
+            this.format = format;
+            this.kinds = kinds;
+        }
+    }
+
+    private static final long[] times = new long[CAPACITY];
+    private static final Event[] events = new Event[CAPACITY];
+    private static final long[] firstArgs = new long[CAPACITY];
+    private static final long[] secondArgs = new long[CAPACITY];
+    private static long written = 0;        // Entries ever logged; the next slot is written % CAPACITY
+
+    private EventLog() {
+    }
+
+    public static void log(Event event) {
+        log(event, 0, 0);
+    }
+
+    public static void log(Event event, long arg) {
+        log(event, arg, 0);
+    }
+
+    /** Float arguments are stored as their bits. */
+    public static void log(Event event, float arg) {
+        log(event, Float.floatToRawIntBits(arg), 0);
+    }
+
+    public static void log(Event event, boolean first, boolean second) {
+        log(event, first ? 1 : 0, second ? 1 : 0);
+    }
+
+    public static synchronized void log(Event event, long first, long second) {
+        int slot = (int) (written % CAPACITY);
+        times[slot] = System.currentTimeMillis();
+        events[slot] = event;
+        firstArgs[slot] = first;
+        secondArgs[slot] = second;
+        written++;
+    }
+
+    /**
+     * @return number of entries currently held
+     */
+    public static synchronized int size() {
+        return (int) Math.min(written, CAPACITY);
+    }
+
+    /**
+     * Write the held entries, oldest first, one per line.
+     */
+    public static void dump(Appendable out) throws IOException {
+        // Copy under the lock, format outside it so logging is never blocked on text
+        long[] t;
+        Event[] e;
+        long[] a;
+        long[] b;
+        long dropped;
+        synchronized (EventLog.class) {
+            int count = size();
+            int start = (int) ((written - count) % CAPACITY);
+            t = new long[count];
+            e = new Event[count];
+            a = new long[count];
+            b = new long[count];
+            for (int i = 0; i < count; i++) {
+                int slot = (start + i) % CAPACITY;
+                t[i] = times[slot];
+                e[i] = events[slot];
+                a[i] = firstArgs[slot];
+                b[i] = secondArgs[slot];
+            }
+            dropped = written - count;
+        }
+
+        SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        if (dropped > 0) out.append("(").append(Long.toString(dropped)).append(" older events overwritten)\n");
+        for (int i = 0; i < e.length; i++) {
+            out.append(time.format(new Date(t[i]))).append(' ')
+                    .append(format(e[i], a[i], b[i])).append('\n');
+        }
+    }
+
+    static String format(Event event, long first, long second) {
+        Object[] args = new Object[event.kinds.length()];
+        for (int i = 0; i < args.length; i++) {
+            long raw = i == 0 ? first : second;
+            switch (event.kinds.charAt(i)) {
+                case 'f':
+                    args[i] = Float.intBitsToFloat((int) raw);
+                    break;
+                case 'b':
+                    args[i] = raw != 0;
+                    break;
+                case 'h':
+                    SensorHealthMonitor.Status[] statuses = SensorHealthMonitor.Status.values();
+                    args[i] = raw >= 0 && raw < statuses.length ? statuses[(int) raw] : raw;
+                    break;
+                case 'a':
+                    ActivityRecognizer.Activity[] activities = ActivityRecognizer.Activity.values();
+                    args[i] = raw >= 0 && raw < activities.length ? activities[(int) raw] : raw;
+                    break;
+                default:
+                    args[i] = raw;
+                    break;
+            }
+        }
+        return String.format(Locale.US, event.format, args);
+    }
+
+    /**
+     * Human-readable log, e.g. for a shared report.
+     */
+    public static String getReport() {
+        StringBuilder sb = new StringBuilder("Event log\n");
+        try {
+            dump(sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Overwrite {@code file} with the current log. Blocks on disk, so call
+     * it off the main thread.
+     *
+     * @return true if the file was written
+     */
+    public static boolean flush(File file) {
+        try (Writer out = new FileWriter(file)) {
+            dump(out);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Forget every entry; for tests. */
+    static synchronized void clear() {
+        written = 0;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.falldetectionapp;
+
+/**
+ * Exponential moving average: y = y + alpha * (x - y).
+ *
+ * The first sample initializes the output directly so there is no warm-up bias.
+ */
+public class ExponentialFilter implements SignalFilter {
+
+    private final float alpha;
+    private float output = 0;
+    private boolean primed = false;
+
+    /**
+     * @param alpha smoothing factor in (0, 1]; larger values follow the input more closely
+     */
+    public ExponentialFilter(float alpha) {
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    @Override
+    public float filter(float value) {
+        if (!primed) {
+            output = value;
+            primed = true;
+        } else {
+            output += alpha * (value - output);
+        }
+        return output;
+    }
+
+    @Override
+    public void reset() {
+        primed = false;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.falldetectionapp;
+
+/**
+ * Keeps several overlapping fall candidates for {@link FallDetector}, each
+ * with its own phase, timing and evidence.
+ *
+ * A run of low-g samples opens a candidate in {@link Phase#FREE_FALL}. A
+ * spike of high acceleration with rotation either continues the impact of
+ * a candidate whose spike is still going, takes over a recent free fall,
+ * or opens a candidate of its own, so a second spike is judged on its own
+ * rather than topping up the first. Samples after the spike that reach the
+ * impact or low-g level confirm every candidate still within its impact
+ * window. Candidates come from a pool allocated up front; when every slot
+ * is in use the least recently active candidate is recycled.
+ *
+ * Not thread-safe; used from the detector's thread.
+ */
+class FallCandidateTracker {
+
+    enum Phase {
+        FREE_FALL,      // Low-g samples, no impact yet
+        IMPACT,         // High acceleration with rotation is under way
+        POST_IMPACT     // Spike over; collecting confirmations until the impact window closes
+    }
+
+    static final class Candidate {
+        Phase phase;
+        long freeFallStart = -1;    // First low-g sample, or -1 if the candidate began with the impact
+        long freeFallEnd = -1;      // Latest low-g sample before the impact
+        long impactStart;
+        long lastSpike;
+        float peak;                 // Highest magnitude seen during the impact
+        int confirmations;
+        boolean inUse;
+
+        /** @return free-fall time before the impact in ms, 0 if there was none */
+        long freeFallDuration() {
+            return freeFallStart < 0 ? 0 : freeFallEnd - freeFallStart;
+        }
+
+        private long lastActivity() {
+            return phase == Phase.FREE_FALL ? freeFallEnd : lastSpike;
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 4;
+    static final long SPIKE_GAP = 150;          // Spike samples closer than this belong to the same impact
+    static final long FREE_FALL_LEAD = 1000;    // An impact this soon after a free fall ends it
+
+    private final Candidate[] pool;
+    private final long impactWindow;
+    private final int confirmationCount;
+
+    FallCandidateTracker(int capacity, long impactWindow, int confirmationCount) {
+        pool = new Candidate[capacity];
+        for (int i = 0; i < capacity; i++) pool[i] = new Candidate();
+        this.impactWindow = impactWindow;
+        this.confirmationCount = confirmationCount;
+    }
+
+    /**
+     * Advance every candidate by one sample.
+     *
+     * @param magnitude   smoothed accelerometer magnitude
+     * @param spike       magnitude above the fall threshold together with rotation
+     * @param lowG        magnitude below the low threshold
+     * @param impactLevel magnitude above the impact threshold
+     * @return the candidate with the most confirmations once it has enough, otherwise null
+     */
+    Candidate onSample(long timestamp, float magnitude, boolean spike, boolean lowG, boolean impactLevel) {
+        expire(timestamp);
+
+        if (spike) {
+            Candidate own = find(Phase.IMPACT, timestamp, SPIKE_GAP);
+            if (own == null) {
+                own = find(Phase.FREE_FALL, timestamp, FREE_FALL_LEAD);
+                if (own == null) {
+                    own = obtain();
+                    own.freeFallStart = -1;
+                    own.freeFallEnd = -1;
+                }
+                own.phase = Phase.IMPACT;
+                own.impactStart = timestamp;
+                own.peak = 0;
+            }
+            own.lastSpike = timestamp;
+            own.peak = Math.max(own.peak, magnitude);
+            own.confirmations++;
+            // The spike sample is itself at impact level
+            if (lowG || impactLevel) own.confirmations++;
+        } else {
+            if (lowG) {
+                Candidate falling = find(Phase.FREE_FALL, timestamp, FREE_FALL_LEAD);
+                if (falling == null) {
+                    falling = obtain();
+                    falling.phase = Phase.FREE_FALL;
+                    falling.freeFallStart = timestamp;
+                }
+                falling.freeFallEnd = timestamp;
+            }
+            for (Candidate c : pool) {
+                if (!c.inUse || c.phase == Phase.FREE_FALL) continue;
+                if (c.phase == Phase.IMPACT && timestamp - c.lastSpike > SPIKE_GAP) c.phase = Phase.POST_IMPACT;
+                if ((lowG || impactLevel) && timestamp - c.lastSpike < impactWindow) c.confirmations++;
+            }
+        }
+
+        Candidate best = null;
+        for (Candidate c : pool) {
+            if (c.inUse && c.confirmations >= confirmationCount
+                    && (best == null || c.confirmations > best.confirmations)) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private void expire(long timestamp) {
+        for (Candidate c : pool) {
+            if (!c.inUse) continue;
+            long age = timestamp - c.lastActivity();
+            if (age > (c.phase == Phase.FREE_FALL ? FREE_FALL_LEAD : impactWindow)) c.inUse = false;
+        }
+    }
+
+    // Most recently active candidate in the given phase, if it was active within maxAge
+    private Candidate find(Phase phase, long timestamp, long maxAge) {
+        Candidate found = null;
+        for (Candidate c : pool) {
+            if (c.inUse && c.phase == phase && timestamp - c.lastActivity() <= maxAge
+                    && (found == null || c.lastActivity() > found.lastActivity())) {
+                found = c;
+            }
+        }
+        return found;
+    }
+
+    private Candidate obtain() {
+        Candidate slot = null;
+        for (Candidate c : pool) {
+            if (!c.inUse) {
+                slot = c;
+                break;
+            }
+            if (slot == null || c.lastActivity() < slot.lastActivity()) slot = c;
+        }
+        slot.inUse = true;
+        slot.confirmations = 0;
+        return slot;
+    }
+
+    void release(Candidate candidate) {
+        candidate.inUse = false;
+    }
+
+    void clear() {
+        for (Candidate c : pool) c.inUse = false;
+    }
+
+    /**
+     * @return number of candidates currently tracked
+     */
+    int activeCount() {
+        int count = 0;
+        for (Candidate c : pool) {
+            if (c.inUse) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.falldetectionapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Learned fall scorer that backs up the threshold detector.
+ *
+ * Keeps a sliding window of accelerometer and gyroscope magnitudes (two
+ * channels, one entry per sample) and runs a {@link QuantizedModel} over the
+ * window when asked for a score. Adding a sample is two array writes; the
+ * network only runs when {@link FallDetector} has a candidate fall.
+ */
+public class FallClassifier {
+
+    private static final String TAG = "FallClassifier";
+    public static final String DEFAULT_ASSET = "fall_model.fdqm";
+    private static final int CHANNELS = 2;     // Accel magnitude, gyro magnitude
+
+    private final QuantizedModel model;
+    private final float[] window;              // Ring of [sample][channel]
+    private final int windowLength;
+    private int head = 0;
+    private int filled = 0;
+
+    public FallClassifier(QuantizedModel model) {
+        if (model.getChannels() != CHANNELS) {
+            throw new IllegalArgumentException("Model must take " + CHANNELS + " channels");
+        }
+        this.model = model;
+        this.windowLength = model.getWindowLength();
+        this.window = new float[windowLength * CHANNELS];
+    }
+
+    /**
+     * Load the classifier from an APK asset.
+     *
+     * @return the classifier, or null if the asset is missing or invalid
+     */
+    public static FallClassifier fromAsset(Context context, String assetName) {
+        try (InputStream in = context.getAssets().open(assetName)) {
+            FallClassifier classifier = new FallClassifier(QuantizedModel.load(in));
+            Log.d(TAG, "Loaded fall model " + assetName);
+            return classifier;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.d(TAG, "No usable fall model (" + e.getMessage() + ") - using thresholds only");
+            return null;
+        }
+    }
+
+    /**
+     * Append one sample to the window.
+     */
+    public void addSample(float accelMagnitude, float gyroMagnitude) {
+        int base = head * CHANNELS;
+        window[base] = accelMagnitude;
+        window[base + 1] = gyroMagnitude;
+        head = (head + 1) % windowLength;
+        if (filled < windowLength) filled++;
+    }
+
+    public boolean isReady() {
+        return filled == windowLength;
+    }
+
+    /**
+     * Score the current window.
+     *
+     * @return probability of a fall in [0, 1]; 1 if the window is not full yet,
+     *         so an unfilled classifier never vetoes the threshold detector
+     */
+    public float score() {
+        if (!isReady()) return 1f;
+
+        // Copy the ring in chronological order into the model input
+        int index = head;
+        for (int t = 0; t < windowLength; t++) {
+            int base = index * CHANNELS;
+            model.setInput(t * CHANNELS, window[base]);
+            model.setInput(t * CHANNELS + 1, window[base + 1]);
+            index = (index + 1) % windowLength;
+        }
+
+        float[] out = model.run();
+        if (out.length == 1) {
+            return (float) (1 / (1 + Math.exp(-out[0])));
+        }
+        // Softmax probability of class 1 (fall) against all classes
+        float max = out[0];
+        for (float v : out) max = Math.max(max, v);
+        double sum = 0;
+        for (float v : out) sum += Math.exp(v - max);
+        return (float) (Math.exp(out[1] - max) / sum);
+    }
+
+    public void reset() {
+        head = 0;
+        filled = 0;
+    }
+}
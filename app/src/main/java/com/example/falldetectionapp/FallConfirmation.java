@@ -0,0 +1,165 @@
+package com.example.falldetectionapp;
+
+/**
+ * Post-impact confirmation stage.
+ *
+ * After {@link FallDetector} reports a candidate fall, this stage watches the
+ * following seconds of accelerometer data and only confirms the fall if the
+ * device comes to rest (lying-still inactivity) in an orientation that differs
+ * from the one it had before the impact. Getting up, walking away or picking
+ * the phone back up rejects the candidate.
+ *
+ * In a vehicle the engine and road vibration pass for lying still, so a
+ * candidate begun with a raised evidence bar must end close to lying down
+ * ({@link #STRICT_ORIENTATION_CHANGE_DEG}); a phone thrown off a seat or a
+ * passenger jolted in theirs ends only partly tilted.
+ *
+ * The stage is an incremental state machine: while idle, each sample is only
+ * appended to a small ring buffer (used to recover the pre-impact orientation),
+ * and while observing it only updates running sums.
+ */
+public class FallConfirmation {
+
+    public enum State {
+        IDLE,       // No candidate fall being checked
+        SETTLING,   // Ignoring the bounce right after the impact
+        OBSERVING,  // Accumulating post-impact statistics
+        CONFIRMED,  // User is lying still in a changed orientation
+        REJECTED    // User moved or orientation did not change
+    }
+
+    private static final float GRAVITY = 9.81f;
+
+    private static final long SETTLE_TIME = 1000;              // Ignore 1 second of post-impact bounce
+    private static final long OBSERVATION_TIME = 3000;         // Watch 3 seconds for inactivity
+    private static final long REFERENCE_START = 2500;          // Pre-impact reference window start (ms before trigger)
+    private static final long REFERENCE_END = 1000;            // Pre-impact reference window end (ms before trigger)
+    private static final float INACTIVITY_STDDEV = 1.0f;       // Max std deviation of accel magnitude when lying still
+    private static final float INACTIVITY_MEAN_TOLERANCE = 2.0f; // Max deviation of mean magnitude from gravity
+    private static final float ORIENTATION_CHANGE_DEG = 45.0f; // Min tilt between pre- and post-fall orientation
+    static final float STRICT_ORIENTATION_CHANGE_DEG = 75.0f;  // Min tilt when the evidence bar is raised
+    private static final int HISTORY_CAPACITY = 512;           // ~2.5 seconds at 200 Hz
+
+    private final SensorSampleBuffer history = new SensorSampleBuffer(HISTORY_CAPACITY);
+    private final float[] reference = new float[3];
+    private boolean hasReference = false;
+
+    private State state = State.IDLE;
+    private long triggerTime = 0;
+    private float minOrientationChange = ORIENTATION_CHANGE_DEG;
+
+    // Running sums over the observation window
+    private int sampleCount = 0;
+    private double sumMagnitude = 0;
+    private double sumMagnitudeSq = 0;
+    private double sumX = 0, sumY = 0, sumZ = 0;
+
+    /**
+     * Feed an accelerometer sample. Call this for every sample, whether or not
+     * a candidate fall is being checked.
+     *
+     * @param timestampMs sample time in milliseconds (same clock as {@link #begin(long)})
+     * @return the current state after consuming the sample
+     */
+    public State onSample(long timestampMs, float x, float y, float z) {
+        if (state == State.IDLE) {
+            history.add(timestampMs, x, y, z);
+            return state;
+        }
+
+        if (state == State.SETTLING) {
+            if (timestampMs - triggerTime < SETTLE_TIME) return state;
+            state = State.OBSERVING;
+        }
+
+        if (state == State.OBSERVING) {
+            float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+            sampleCount++;
+            sumMagnitude += magnitude;
+            sumMagnitudeSq += magnitude * magnitude;
+            sumX += x;
+            sumY += y;
+            sumZ += z;
+
+            if (timestampMs - triggerTime >= SETTLE_TIME + OBSERVATION_TIME) {
+                state = evaluate();
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Start checking a candidate fall reported at the given time.
+     */
+    public void begin(long timestampMs) {
+        begin(timestampMs, false);
+    }
+
+    /**
+     * Start checking a candidate fall reported at the given time.
+     *
+     * @param raisedBar ask for a stronger orientation change, see {@link FallDetector#raisesEvidenceBar}
+     */
+    public void begin(long timestampMs, boolean raisedBar) {
+        triggerTime = timestampMs;
+        minOrientationChange = raisedBar ? STRICT_ORIENTATION_CHANGE_DEG : ORIENTATION_CHANGE_DEG;
+        hasReference = history.mean(timestampMs - REFERENCE_START, timestampMs - REFERENCE_END, reference) > 0;
+        sampleCount = 0;
+        sumMagnitude = 0;
+        sumMagnitudeSq = 0;
+        sumX = sumY = sumZ = 0;
+        state = State.SETTLING;
+    }
+
+    /**
+     * Force a verdict with whatever has been observed so far, e.g. when the
+     * countdown expires but sensor delivery stopped. With no post-impact data
+     * the fall cannot be ruled out, so it is confirmed.
+     *
+     * @return the final state
+     */
+    public State resolve() {
+        if (state == State.SETTLING || state == State.OBSERVING) {
+            state = sampleCount == 0 ? State.CONFIRMED : evaluate();
+        }
+        return state;
+    }
+
+    /**
+     * Abandon the current candidate and go back to idle monitoring.
+     */
+    public void reset() {
+        state = State.IDLE;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isActive() {
+        return state != State.IDLE;
+    }
+
+    private State evaluate() {
+        double mean = sumMagnitude / sampleCount;
+        double variance = Math.max(0, sumMagnitudeSq / sampleCount - mean * mean);
+        boolean inactive = Math.sqrt(variance) < INACTIVITY_STDDEV
+                && Math.abs(mean - GRAVITY) < INACTIVITY_MEAN_TOLERANCE;
+        if (!inactive) return State.REJECTED;
+
+        // Without a pre-impact reference the orientation check cannot reject the fall
+        if (!hasReference) return State.CONFIRMED;
+
+        double postX = sumX / sampleCount;
+        double postY = sumY / sampleCount;
+        double postZ = sumZ / sampleCount;
+        double dot = postX * reference[0] + postY * reference[1] + postZ * reference[2];
+        double norms = Math.sqrt(postX * postX + postY * postY + postZ * postZ)
+                * Math.sqrt(reference[0] * reference[0] + reference[1] * reference[1] + reference[2] * reference[2]);
+        if (norms == 0) return State.CONFIRMED;
+
+        double angle = Math.toDegrees(Math.acos(Math.max(-1, Math.min(1, dot / norms))));
+        return angle >= minOrientationChange ? State.CONFIRMED : State.REJECTED;
+    }
+}
@@ -2,22 +2,60 @@ package com.example.falldetectionapp;
 
 public class FallDetector {
 
-    private static final float FALL_THRESHOLD_HIGH = 15.0f;    // High accel magnitude threshold
-    private static final float FALL_THRESHOLD_LOW = 2.0f;      // Low accel threshold (impact)
-    private static final float IMPACT_THRESHOLD = 12.0f;       // Impact threshold (high accel after fall)
-    private static final float GYRO_THRESHOLD = 3.0f;          // Gyroscope angular velocity threshold (rad/s)
-    private static final int CONFIRMATION_COUNT = 3;           // Number of confirmations for fall
-    private static final long FALL_COOLDOWN = 10000;           // 10 seconds cooldown between falls
-
-    private int fallConfirmations = 0;
+    static final float VEHICLE_SCORE_PENALTY = 0.25f;   // Taken off the classifier score while in a vehicle
+
+    // Thresholds copied from the DetectorConfig (see there for defaults); the first four
+    // can later be adapted by a ThresholdCalibrator
+    private float fallThresholdHigh;
+    private final float fallThresholdLow;
+    private float impactThreshold;
+    private float gyroThreshold;
+    private float gyroThresholdSq;
+    private final long fallCooldown;
+
     private long lastFallTime = 0;
-    private boolean highAccelDetected = false;
-    private long highAccelTime = 0;
-    private static final long IMPACT_WINDOW = 2000;            // 2 seconds window for impact detection
 
-    // Moving average for noise reduction on accelerometer
-    private float[] accelHistory = new float[5];
-    private int historyIndex = 0;
+    // Overlapping candidate falls, each gathering its own confirmations
+    private final FallCandidateTracker candidates;
+
+    // Smoothing filter for noise reduction on accelerometer (null = unfiltered)
+    private final SignalFilter accelFilter;
+
+    // Gravity/orientation estimate for detection stages that need posture (null = disabled)
+    private final OrientationTracker orientationTracker;
+
+    // What the user is doing, which can raise the evidence a fall needs (null = disabled)
+    private final ActivityRecognizer activityRecognizer;
+
+    // Optional learned scorer that must agree before a threshold detection is reported
+    private FallClassifier classifier;
+    private float classifierMinScore = 0.5f;
+    private float lastScore = Float.NaN;    // Classifier score of the last reported fall
+
+    // Optional per-user threshold adaptation (null = fixed thresholds)
+    private ThresholdCalibrator calibrator;
+
+    // Scratch buffers for batch processing, grown on demand and then reused
+    private float[] batchAccelMagnitude = new float[0];
+    private float[] batchGyroMagnitudeSq = new float[0];
+
+    public FallDetector() {
+        this(new DetectorConfig());
+    }
+
+    public FallDetector(DetectorConfig config) {
+        fallThresholdHigh = config.getFallThresholdHigh();
+        fallThresholdLow = config.getFallThresholdLow();
+        impactThreshold = config.getImpactThreshold();
+        gyroThreshold = config.getGyroThreshold();
+        gyroThresholdSq = gyroThreshold * gyroThreshold;
+        fallCooldown = config.getFallCooldown();
+        candidates = new FallCandidateTracker(FallCandidateTracker.DEFAULT_CAPACITY,
+                config.getImpactWindow(), config.getConfirmationCount());
+        accelFilter = config.createFilter();
+        orientationTracker = config.isOrientationTracking() ? new OrientationTracker() : null;
+        activityRecognizer = config.isActivityGating() ? new ActivityRecognizer(config.getSampleRateHz()) : null;
+    }
 
     /**
      * Detect fall using both accelerometer and gyroscope data.
@@ -36,85 +74,195 @@ public class FallDetector {
                         accelValues[2] * accelValues[2]
         );
 
-        // Apply moving average filter to smooth accelerometer data
-        totalAccel = applyMovingAverage(totalAccel);
-
-        // Process gyroscope data for angular velocity magnitude
-        boolean gyroFallDetected = processGyroscopeData(gyroValues, GYRO_THRESHOLD);
+        // Squared angular velocity magnitude; comparing squares avoids the sqrt
+        float gyroMagnitudeSq = gyroValues[0] * gyroValues[0] +
+                gyroValues[1] * gyroValues[1] +
+                gyroValues[2] * gyroValues[2];
 
         long currentTime = System.currentTimeMillis();
-
-        // Check for high acceleration indicating potential fall start
-        if (totalAccel > FALL_THRESHOLD_HIGH && gyroFallDetected) {
-            highAccelDetected = true;
-            highAccelTime = currentTime;
-            fallConfirmations++;
+        if (classifier != null) {
+            classifier.addSample(totalAccel, (float) Math.sqrt(gyroMagnitudeSq));
+        }
+        if (orientationTracker != null) {
+            orientationTracker.update(currentTime, accelValues[0], accelValues[1], accelValues[2],
+                    gyroValues[0], gyroValues[1], gyroValues[2]);
         }
 
-        // Check for impact (low or high acceleration) after high acceleration
-        if (highAccelDetected && (currentTime - highAccelTime) < IMPACT_WINDOW) {
-            if (totalAccel < FALL_THRESHOLD_LOW || totalAccel > IMPACT_THRESHOLD) {
-                fallConfirmations++;
-            }
+        return processSample(totalAccel, gyroMagnitudeSq, currentTime);
+    }
+
+    /**
+     * Detect falls over a batch of samples, e.g. a sensor hub flush.
+     *
+     * Input is structure-of-arrays: index i of every array describes the same
+     * sample. Magnitudes for the whole batch are computed first in plain loops
+     * without branches so the JIT can vectorize them; the gyroscope check
+     * compares squared magnitudes and needs no square root. The accelerometer
+     * magnitude keeps its square root because the smoothing filter averages
+     * linear magnitudes.
+     *
+     * @param xs          accelerometer X values
+     * @param ys          accelerometer Y values
+     * @param zs          accelerometer Z values
+     * @param gxs         gyroscope X values paired with each accelerometer sample
+     * @param gys         gyroscope Y values paired with each accelerometer sample
+     * @param gzs         gyroscope Z values paired with each accelerometer sample
+     * @param timestamps  sample times in milliseconds, in increasing order
+     * @param count       number of valid samples in the arrays
+     * @return index of the first sample at which a fall was detected, or -1
+     */
+    public int detectFallBatch(float[] xs, float[] ys, float[] zs,
+                               float[] gxs, float[] gys, float[] gzs,
+                               long[] timestamps, int count) {
+        if (batchAccelMagnitude.length < count) {
+            batchAccelMagnitude = new float[count];
+            batchGyroMagnitudeSq = new float[count];
         }
+        float[] accelMagnitude = batchAccelMagnitude;
+        float[] gyroMagnitudeSq = batchGyroMagnitudeSq;
 
-        // Reset state if impact window has passed without confirmation
-        if (currentTime - highAccelTime > IMPACT_WINDOW) {
-            highAccelDetected = false;
-            fallConfirmations = 0;
+        for (int i = 0; i < count; i++) {
+            accelMagnitude[i] = (float) Math.sqrt(xs[i] * xs[i] + ys[i] * ys[i] + zs[i] * zs[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            gyroMagnitudeSq[i] = gxs[i] * gxs[i] + gys[i] * gys[i] + gzs[i] * gzs[i];
         }
 
-        // Confirm fall if pattern detected with cooldown to avoid repeated alerts
-        if (fallConfirmations >= CONFIRMATION_COUNT) {
-            if (currentTime - lastFallTime > FALL_COOLDOWN) {
-                lastFallTime = currentTime;
-                fallConfirmations = 0;
-                highAccelDetected = false;
-                return true;
+        int detectedAt = -1;
+        for (int i = 0; i < count; i++) {
+            if (classifier != null) {
+                classifier.addSample(accelMagnitude[i], (float) Math.sqrt(gyroMagnitudeSq[i]));
+            }
+            if (orientationTracker != null) {
+                orientationTracker.update(timestamps[i], xs[i], ys[i], zs[i], gxs[i], gys[i], gzs[i]);
+            }
+            if (processSample(accelMagnitude[i], gyroMagnitudeSq[i], timestamps[i]) && detectedAt < 0) {
+                detectedAt = i;
             }
         }
+        return detectedAt;
+    }
 
-        return false;
+    /**
+     * Detect falls over a collected {@link SampleBatch}.
+     *
+     * @return index of the first sample at which a fall was detected, or -1
+     */
+    public int detectFallBatch(SampleBatch batch) {
+        return detectFallBatch(batch.ax, batch.ay, batch.az, batch.gx, batch.gy, batch.gz,
+                batch.timestamps, batch.count);
     }
 
     /**
-     * Calculate moving average for accelerometer noise reduction.
-     * @param newValue New acceleration magnitude value
-     * @return Smoothed acceleration magnitude
+     * Advance the detection state machine by one sample.
+     *
+     * @param totalAccel      raw accelerometer magnitude
+     * @param gyroMagnitudeSq squared magnitude of the paired rotation rate
+     * @param currentTime     sample time in milliseconds
+     * @return true if fall detected, false otherwise
      */
-    private float applyMovingAverage(float newValue) {
-        accelHistory[historyIndex] = newValue;
-        historyIndex = (historyIndex + 1) % accelHistory.length;
+    private boolean processSample(float totalAccel, float gyroMagnitudeSq, long currentTime) {
+        // Context is judged on the raw magnitude; smoothing would hide vibration
+        if (activityRecognizer != null && activityRecognizer.addSample(currentTime, totalAccel, gyroMagnitudeSq)) {
+            EventLog.log(EventLog.Event.ACTIVITY_CHANGED, activityRecognizer.getActivity().ordinal());
+        }
+
+        // Smooth accelerometer data with the configured filter
+        if (accelFilter != null) {
+            totalAccel = accelFilter.filter(totalAccel);
+        }
 
-        float sum = 0;
-        for (float value : accelHistory) {
-            sum += value;
+        // Learn from the same signal the thresholds are compared against
+        if (calibrator != null && calibrator.addSample(currentTime, totalAccel, gyroMagnitudeSq)) {
+            applyCalibration();
         }
+        // High acceleration with rotation starts or continues an impact; low-g and
+        // impact-level samples confirm the candidates whose impact window is open
+        boolean spike = totalAccel > fallThresholdHigh && gyroMagnitudeSq > gyroThresholdSq;
+        FallCandidateTracker.Candidate candidate = candidates.onSample(currentTime, totalAccel, spike,
+                totalAccel < fallThresholdLow, totalAccel > impactThreshold);
 
-        return sum / accelHistory.length;
+        // Confirm fall if pattern detected with cooldown to avoid repeated alerts
+        if (candidate == null || currentTime - lastFallTime <= fallCooldown) {
+            return false;
+        }
+        // A loaded classifier can veto the threshold pattern (NaN never does). In a vehicle its
+        // score is marked down; without one, FallConfirmation asks for more (raisesEvidenceBar)
+        float score = classifier != null ? classifier.score() : Float.NaN;
+        boolean raisedBar = raisesEvidenceBar();
+        if (raisedBar) score -= VEHICLE_SCORE_PENALTY;
+        if (score < classifierMinScore) {
+            if (raisedBar) EventLog.log(EventLog.Event.FALL_SUPPRESSED, activityRecognizer.getActivity().ordinal());
+            candidates.release(candidate);
+            return false;
+        }
+        EventLog.log(EventLog.Event.FALL_PATTERN, candidate.freeFallDuration(), candidate.confirmations);
+        // Candidates overlapping the reported one are the same fall
+        candidates.clear();
+        lastScore = score;
+        lastFallTime = currentTime;
+        if (calibrator != null) calibrator.onDetection(currentTime);
+        return true;
     }
 
     /**
-     * Process gyroscope data to detect abnormal rotation.
+     * Attach a learned classifier that backs up the thresholds: a threshold
+     * detection is only reported if the classifier scores the surrounding
+     * window at least {@code minScore}.
      *
-     * @param gyroValues float array with gyroscope X, Y, Z angular velocity values (rad/s)
-     * @param threshold Threshold magnitude for rotation to be considered abnormal
-     * @return true if abnormal rotation detected, false otherwise
+     * @param classifier classifier to use, or null to rely on thresholds only
+     * @param minScore   minimum fall probability in [0, 1]
      */
-    private boolean processGyroscopeData(float[] gyroValues, float threshold) {
-        if (gyroValues == null || gyroValues.length < 3) {
-            return false;
-        }
+    public void setClassifier(FallClassifier classifier, float minScore) {
+        this.classifier = classifier;
+        this.classifierMinScore = minScore;
+    }
 
-        // Calculate magnitude of angular velocity vector
-        float rotationMagnitude = (float) Math.sqrt(
-                gyroValues[0] * gyroValues[0] +
-                        gyroValues[1] * gyroValues[1] +
-                        gyroValues[2] * gyroValues[2]
-        );
+    /**
+     * Let a calibrator adapt the fall, impact and gyro thresholds to the
+     * user's everyday motion. Its current thresholds take effect immediately.
+     *
+     * @param calibrator calibrator to feed, or null to keep the current thresholds fixed
+     */
+    public void setCalibrator(ThresholdCalibrator calibrator) {
+        this.calibrator = calibrator;
+        if (calibrator != null) applyCalibration();
+    }
 
-        // Return true if rotation magnitude exceeds threshold
-        return rotationMagnitude > threshold;
+    private void applyCalibration() {
+        fallThresholdHigh = calibrator.getFallThresholdHigh();
+        impactThreshold = calibrator.getImpactThreshold();
+        gyroThreshold = calibrator.getGyroThreshold();
+        gyroThresholdSq = gyroThreshold * gyroThreshold;
+    }
+
+    /**
+     * @return classifier score of the most recently reported fall, or NaN if no classifier is attached
+     */
+    public float getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return the gravity/orientation estimate, or null if orientation tracking is disabled in the config
+     */
+    public OrientationTracker getOrientationTracker() {
+        return orientationTracker;
+    }
+
+    /**
+     * @return the user's current activity, or UNKNOWN if activity gating is disabled in the config
+     */
+    public ActivityRecognizer.Activity getActivity() {
+        return activityRecognizer != null ? activityRecognizer.getActivity() : ActivityRecognizer.Activity.UNKNOWN;
+    }
+
+    /**
+     * @return true if the current activity calls for stronger evidence of a fall,
+     *         which {@link FallConfirmation#begin(long, boolean)} should ask for
+     */
+    public boolean raisesEvidenceBar() {
+        return activityRecognizer != null && activityRecognizer.raisesEvidenceBar();
     }
 
     /**
@@ -0,0 +1,72 @@
+package com.example.falldetectionapp;
+
+/**
+ * One entry in the fall-event history: a detection, what became of it, and
+ * optionally the sensor window around the impact.
+ *
+ * Events that belong to the same incident share {@link #incidentTimeMs}, the
+ * time the detector fired.
+ */
+public class FallEvent {
+
+    /** Event kinds. Stored by ordinal, so only ever append new values. */
+    public enum Type {
+        DETECTED,               // Detector fired, countdown started
+        CANCELLED,              // User cancelled during the countdown
+        REJECTED,               // Post-impact movement ruled the fall out
+        ALERT_SENT,             // Alert sent with a location
+        ALERT_SENT_NO_LOCATION, // Alert sent without a location
+        ALERT_MERGED,           // Covered by an earlier alert of the same incident
+        ALERT_HELD,             // Waiting for the alert rate limit
+        ALERT_NOT_SENT          // No message went out, e.g. no contact set
+    }
+
+    public final Type type;
+    public final long timestampMs;          // Wall-clock time the event was recorded
+    public final long incidentTimeMs;       // Wall-clock time the detector fired
+    public final double latitude;           // NaN if unknown
+    public final double longitude;          // NaN if unknown
+    public final String address;            // Empty if unknown
+    public final float confidence;          // Classifier score, NaN if detection was threshold-only
+
+    // Accelerometer snippet; times are milliseconds relative to the incident. Empty if none was stored.
+    public final int[] snippetTimes;
+    public final float[] snippetX;
+    public final float[] snippetY;
+    public final float[] snippetZ;
+
+    private static final int[] NO_TIMES = new int[0];
+    private static final float[] NO_VALUES = new float[0];
+
+    public FallEvent(Type type, long timestampMs, long incidentTimeMs, double latitude, double longitude,
+                     String address, float confidence,
+                     int[] snippetTimes, float[] snippetX, float[] snippetY, float[] snippetZ) {
+        this.type = type;
+        this.timestampMs = timestampMs;
+        this.incidentTimeMs = incidentTimeMs;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.address = address == null ? "" : address;
+        this.confidence = confidence;
+        boolean hasSnippet = snippetTimes != null;
+        this.snippetTimes = hasSnippet ? snippetTimes : NO_TIMES;
+        this.snippetX = hasSnippet ? snippetX : NO_VALUES;
+        this.snippetY = hasSnippet ? snippetY : NO_VALUES;
+        this.snippetZ = hasSnippet ? snippetZ : NO_VALUES;
+    }
+
+    /**
+     * Event without location or sensor data, e.g. a cancellation.
+     */
+    public FallEvent(Type type, long timestampMs, long incidentTimeMs, float confidence) {
+        this(type, timestampMs, incidentTimeMs, Double.NaN, Double.NaN, "", confidence, null, null, null, null);
+    }
+
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    public int snippetLength() {
+        return snippetTimes.length;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.falldetectionapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistent, time-indexed history of fall events.
+ *
+ * Events are appended to a data file as length-prefixed records; a separate
+ * index file holds one fixed-size (time, offset) entry per record. Because
+ * the index is sorted by time, a range query binary-searches it and then
+ * reads only the matching records, so history screens and exports never load
+ * the whole file. Sensor snippets are quantized, delta-coded and deflated.
+ *
+ * If the process dies mid-write, the next open truncates the torn record and
+ * re-indexes any complete records the index is missing.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *   int    body length, then the body:
+ *   byte   format version (1), byte event type ordinal
+ *   long   timestamp, long incident time
+ *   double latitude, double longitude (NaN if unknown)
+ *   float  confidence, UTF address
+ *   int    snippet sample count, then if non-zero: int blob length, deflated blob of
+ *          per-sample time deltas (int) and x/y/z deltas (short, 0.01 m/s^2 steps)
+ * </pre>
+ */
+public class FallEventStore {
+
+    private static final String TAG = "FallEventStore";
+
+    private static final String DATA_FILE = "fall_events.dat";
+    private static final String INDEX_FILE = "fall_events.idx";
+    private static final int INDEX_ENTRY_SIZE = 16;         // long time, long data offset
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_RECORD_SIZE = 1 << 20;     // Anything larger is treated as corruption
+    private static final float SNIPPET_SCALE = 100f;        // Snippet values stored in 0.01 m/s^2 steps
+    private static final int SNIPPET_LIMIT = 16000;         // +-160 m/s^2 keeps every delta within a short
+
+    /** Receives events from {@link #forEach}. */
+    public interface Visitor {
+        /** @return false to stop the query early */
+        boolean onEvent(FallEvent event);
+    }
+
+    private static volatile FallEventStore instance;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Object lock = new Object();
+
+    // Guarded by 'lock'
+    private long lastIndexedTime = Long.MIN_VALUE;
+
+    FallEventStore(File dir) {
+        dataFile = new File(dir, DATA_FILE);
+        indexFile = new File(dir, INDEX_FILE);
+        synchronized (lock) {
+            try {
+                recover();
+            } catch (IOException e) {
+                Log.e(TAG, "Fall event history could not be checked", e);
+            }
+        }
+    }
+
+    public static FallEventStore get(Context context) {
+        FallEventStore store = instance;
+        if (store == null) {
+            synchronized (FallEventStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new FallEventStore(context.getApplicationContext().getFilesDir());
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Append an event on the store's background thread.
+     */
+    public void record(FallEvent event) {
+        io.execute(() -> {
+            try {
+                append(event);
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving fall event", e);
+            }
+        });
+    }
+
+    /**
+     * Append an event on the calling thread.
+     */
+    void append(FallEvent event) throws IOException {
+        byte[] record = encode(event);
+        synchronized (lock) {
+            long offset = dataFile.length();
+            try (FileOutputStream out = new FileOutputStream(dataFile, true)) {
+                out.write(record);
+            }
+            // Keep the index sorted even if the wall clock steps backwards
+            long key = Math.max(event.timestampMs, lastIndexedTime);
+            writeIndexEntry(key, offset);
+            lastIndexedTime = key;
+        }
+    }
+
+    /**
+     * Number of events recorded in [fromMs, toMs), answered from the index alone.
+     */
+    public long count(long fromMs, long toMs) throws IOException {
+        synchronized (lock) {
+            if (!indexFile.exists()) return 0;
+            try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+                long entries = index.length() / INDEX_ENTRY_SIZE;
+                return Math.max(0, lowerBound(index, entries, toMs) - lowerBound(index, entries, fromMs));
+            }
+        }
+    }
+
+    /**
+     * Stream the events recorded in [fromMs, toMs), oldest first. Does file
+     * I/O; call it off the main thread.
+     *
+     * @param withSnippets decode the sensor snippets; pass false for list views
+     */
+    public void forEach(long fromMs, long toMs, boolean withSnippets, Visitor visitor) throws IOException {
+        synchronized (lock) {
+            if (!indexFile.exists() || !dataFile.exists()) return;
+            try (RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+                 RandomAccessFile data = new RandomAccessFile(dataFile, "r")) {
+                long entries = index.length() / INDEX_ENTRY_SIZE;
+                for (long i = lowerBound(index, entries, fromMs); i < entries; i++) {
+                    index.seek(i * INDEX_ENTRY_SIZE);
+                    long time = index.readLong();
+                    long offset = index.readLong();
+                    if (time >= toMs) break;
+
+                    data.seek(offset);
+                    int length = data.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) throw new IOException("Bad record at " + offset);
+                    byte[] body = new byte[length];
+                    data.readFully(body);
+                    if (!visitor.onEvent(decode(body, withSnippets))) return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collect the events recorded in [fromMs, toMs), oldest first.
+     */
+    public List<FallEvent> query(long fromMs, long toMs, boolean withSnippets) throws IOException {
+        List<FallEvent> events = new ArrayList<>();
+        forEach(fromMs, toMs, withSnippets, event -> {
+            events.add(event);
+            return true;
+        });
+        return events;
+    }
+
+    // First index entry with time >= timeMs
+    private static long lowerBound(RandomAccessFile index, long entries, long timeMs) throws IOException {
+        long lo = 0, hi = entries;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            index.seek(mid * INDEX_ENTRY_SIZE);
+            if (index.readLong() < timeMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void writeIndexEntry(long time, long offset) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(indexFile, true))) {
+            out.writeLong(time);
+            out.writeLong(offset);
+        }
+    }
+
+    /**
+     * Bring the index and data file back in step after an interrupted write.
+     */
+    private void recover() throws IOException {
+        if (!dataFile.exists()) {
+            indexFile.delete();
+            return;
+        }
+        long dataLength = dataFile.length();
+        long scanFrom = 0;
+
+        if (indexFile.exists()) {
+            try (RandomAccessFile index = new RandomAccessFile(indexFile, "rw");
+                 RandomAccessFile data = new RandomAccessFile(dataFile, "r")) {
+                long entries = index.length() / INDEX_ENTRY_SIZE;
+                // Drop trailing entries that point at missing or torn records
+                while (entries > 0) {
+                    index.seek((entries - 1) * INDEX_ENTRY_SIZE);
+                    long time = index.readLong();
+                    long offset = index.readLong();
+                    long end = recordEnd(data, offset, dataLength);
+                    if (end > 0) {
+                        lastIndexedTime = time;
+                        scanFrom = end;
+                        break;
+                    }
+                    entries--;
+                }
+                index.setLength(entries * INDEX_ENTRY_SIZE);
+            }
+        }
+
+        // Index complete records written after the last indexed one, then cut any torn tail
+        long offset = scanFrom;
+        try (RandomAccessFile data = new RandomAccessFile(dataFile, "rw")) {
+            while (offset < dataLength) {
+                long end = recordEnd(data, offset, dataLength);
+                if (end < 0) break;
+                data.seek(offset + 4);
+                byte[] head = new byte[2 + 8];
+                data.readFully(head);
+                long time = new DataInputStream(new ByteArrayInputStream(head, 2, 8)).readLong();
+                long key = Math.max(time, lastIndexedTime);
+                writeIndexEntry(key, offset);
+                lastIndexedTime = key;
+                offset = end;
+            }
+            if (offset < dataLength) {
+                Log.w(TAG, "Truncating torn fall event record");
+                data.setLength(offset);
+            }
+        }
+    }
+
+    // End offset of the record at 'offset', or -1 if it is incomplete or implausible
+    private static long recordEnd(RandomAccessFile data, long offset, long dataLength) throws IOException {
+        if (offset < 0 || offset + 4 > dataLength) return -1;
+        data.seek(offset);
+        int length = data.readInt();
+        if (length < 10 || length > MAX_RECORD_SIZE) return -1;
+        long end = offset + 4 + length;
+        return end <= dataLength ? end : -1;
+    }
+
+    private static byte[] encode(FallEvent event) throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(128);
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeByte(FORMAT_VERSION);
+        body.writeByte(event.type.ordinal());
+        body.writeLong(event.timestampMs);
+        body.writeLong(event.incidentTimeMs);
+        body.writeDouble(event.latitude);
+        body.writeDouble(event.longitude);
+        body.writeFloat(event.confidence);
+        body.writeUTF(event.address);
+        int count = event.snippetLength();
+        body.writeInt(count);
+        if (count > 0) {
+            byte[] blob = compressSnippet(event);
+            body.writeInt(blob.length);
+            body.write(blob);
+        }
+        body.flush();
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(bodyBytes.size() + 4);
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeInt(bodyBytes.size());
+        bodyBytes.writeTo(out);
+        out.flush();
+        return record.toByteArray();
+    }
+
+    private static FallEvent decode(byte[] bytes, boolean withSnippet) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) throw new IOException("Unsupported fall event version " + version);
+        int typeIndex = in.readByte();
+        FallEvent.Type[] types = FallEvent.Type.values();
+        if (typeIndex < 0 || typeIndex >= types.length) throw new IOException("Unknown fall event type " + typeIndex);
+        long timestamp = in.readLong();
+        long incident = in.readLong();
+        double latitude = in.readDouble();
+        double longitude = in.readDouble();
+        float confidence = in.readFloat();
+        String address = in.readUTF();
+        int count = in.readInt();
+
+        int[] times = null;
+        float[] xs = null, ys = null, zs = null;
+        if (withSnippet && count > 0) {
+            byte[] blob = new byte[in.readInt()];
+            in.readFully(blob);
+            times = new int[count];
+            xs = new float[count];
+            ys = new float[count];
+            zs = new float[count];
+            decompressSnippet(blob, times, xs, ys, zs);
+        }
+        return new FallEvent(types[typeIndex], timestamp, incident, latitude, longitude, address, confidence,
+                times, xs, ys, zs);
+    }
+
+    private static byte[] compressSnippet(FallEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            // Channel by channel so each delta stream is smooth
+            int previous = 0;
+            for (int t : event.snippetTimes) {
+                out.writeInt(t - previous);
+                previous = t;
+            }
+            writeDeltas(out, event.snippetX);
+            writeDeltas(out, event.snippetY);
+            writeDeltas(out, event.snippetZ);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeDeltas(DataOutputStream out, float[] values) throws IOException {
+        int previous = 0;
+        for (float value : values) {
+            int q = Math.max(-SNIPPET_LIMIT, Math.min(SNIPPET_LIMIT, Math.round(value * SNIPPET_SCALE)));
+            out.writeShort(q - previous);
+            previous = q;
+        }
+    }
+
+    private static void decompressSnippet(byte[] blob, int[] times, float[] xs, float[] ys, float[] zs)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(blob)))) {
+            int previous = 0;
+            for (int i = 0; i < times.length; i++) {
+                previous += in.readInt();
+                times[i] = previous;
+            }
+            readDeltas(in, xs);
+            readDeltas(in, ys);
+            readDeltas(in, zs);
+        }
+    }
+
+    private static void readDeltas(DataInputStream in, float[] values) throws IOException {
+        int previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            previous += in.readShort();
+            values[i] = previous / SNIPPET_SCALE;
+        }
+    }
+}
@@ -17,11 +17,18 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 
+/**
+ * One-shot location lookups for alerts. A single instance is shared by the
+ * whole process; each request keeps its own listener, so screens using it
+ * at the same time do not interfere.
+ */
 public class LocationHelper {
 
-    private Context context;
-    private LocationManager locationManager;
-    private Geocoder geocoder;
+    private static volatile LocationHelper instance;
+
+    private final Context context;
+    private final LocationManager locationManager;
+    private Geocoder geocoder;      // Created on first lookup, off the start-up path
 
     private static final int LOCATION_TIMEOUT = 30000;       // 30 seconds timeout
     private static final int LOCATION_CHECK_INTERVAL = 5000; // check every 5 seconds
@@ -31,15 +38,27 @@ public class LocationHelper {
         void onLocationError(String error);
     }
 
-    private Location lastKnownLocation = null;
-    private Handler handler = new Handler(Looper.getMainLooper());
-    private Runnable checkLocationRunnable;
-    private LocationListener locationListener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final PowerStats powerStats;
+
+    private LocationHelper(Context context) {
+        this.context = context.getApplicationContext();
+        this.locationManager = (LocationManager) this.context.getSystemService(Context.LOCATION_SERVICE);
+        this.powerStats = PowerStats.get(context);
+    }
 
-    public LocationHelper(Context context) {
-        this.context = context;
-        this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
-        this.geocoder = new Geocoder(context, Locale.getDefault());
+    public static LocationHelper get(Context context) {
+        LocationHelper helper = instance;
+        if (helper == null) {
+            synchronized (LocationHelper.class) {
+                helper = instance;
+                if (helper == null) {
+                    helper = new LocationHelper(context);
+                    instance = helper;
+                }
+            }
+        }
+        return helper;
     }
 
     public void getCurrentLocation(LocationCallback callback) {
@@ -53,28 +72,30 @@ public class LocationHelper {
             return;
         }
 
-        lastKnownLocation = null; // reset previous location
-
-        locationListener = new LocationListener() {
+        final Location[] lastKnownLocation = new Location[1];
+        final LocationListener locationListener = new LocationListener() {
             @Override
             public void onLocationChanged(Location location) {
-                lastKnownLocation = location;
+                lastKnownLocation[0] = location;
             }
             @Override public void onStatusChanged(String provider, int status, Bundle extras) {}
             @Override public void onProviderEnabled(String provider) {}
             @Override public void onProviderDisabled(String provider) {}
         };
 
+        // Request location updates from GPS if enabled, else from Network provider
+        final String provider;
         try {
-            // Request location updates from GPS if enabled, else from Network provider
             if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 0, 0, locationListener);
+                provider = LocationManager.GPS_PROVIDER;
             } else if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 0, 0, locationListener);
+                provider = LocationManager.NETWORK_PROVIDER;
             } else {
                 callback.onLocationError("No location providers available");
                 return;
             }
+            locationManager.requestLocationUpdates(provider, 0, 0, locationListener);
+            powerStats.locationStarted(provider);
         } catch (SecurityException e) {
             callback.onLocationError("Security exception: " + e.getMessage());
             return;
@@ -83,15 +104,15 @@ public class LocationHelper {
         final long startTime = System.currentTimeMillis();
 
         // Runnable to check location every 5 seconds
-        checkLocationRunnable = new Runnable() {
+        Runnable checkLocationRunnable = new Runnable() {
             @Override
             public void run() {
-                if (lastKnownLocation != null) {
+                if (lastKnownLocation[0] != null) {
                     // Got location! Stop updates and callback
-                    locationManager.removeUpdates(locationListener);
+                    stopUpdates(locationListener, provider);
 
-                    double lat = lastKnownLocation.getLatitude();
-                    double lon = lastKnownLocation.getLongitude();
+                    double lat = lastKnownLocation[0].getLatitude();
+                    double lon = lastKnownLocation[0].getLongitude();
                     String address = getAddressFromLocation(lat, lon);
 
                     callback.onLocationReceived(lat, lon, address);
@@ -99,7 +120,7 @@ public class LocationHelper {
                     // No location yet, check timeout
                     if (System.currentTimeMillis() - startTime >= LOCATION_TIMEOUT) {
                         // Timeout reached, stop updates and callback error
-                        locationManager.removeUpdates(locationListener);
+                        stopUpdates(locationListener, provider);
                         callback.onLocationError("Location request timed out");
                     } else {
                         // Not timed out, schedule next check after 5 seconds
@@ -113,6 +134,11 @@ public class LocationHelper {
         handler.post(checkLocationRunnable);
     }
 
+    private void stopUpdates(LocationListener listener, String provider) {
+        locationManager.removeUpdates(listener);
+        powerStats.locationStopped(provider);
+    }
+
     private boolean hasLocationPermission() {
         return ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
                 == PackageManager.PERMISSION_GRANTED ||
@@ -126,6 +152,9 @@ public class LocationHelper {
     }
 
     private String getAddressFromLocation(double latitude, double longitude) {
+        if (geocoder == null) {
+            geocoder = new Geocoder(context, Locale.getDefault());
+        }
         try {
             List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
             if (addresses != null && !addresses.isEmpty()) {
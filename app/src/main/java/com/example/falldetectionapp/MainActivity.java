@@ -2,45 +2,103 @@ package com.example.falldetectionapp;
 
 import android.Manifest;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
-import android.media.MediaPlayer;
-import android.os.Build;
 import android.os.Bundle;
-import android.os.VibrationEffect;
-import android.os.Vibrator;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class MainActivity extends AppCompatActivity implements SensorEventListener {
+public class MainActivity extends AppCompatActivity implements SensorSource.Listener, DetectionPipeline.Callback {
 
     private static final String TAG = "MainActivity";
 
-    private SensorManager sensorManager;
-    private Sensor accelerometer, gyroscope;
+    private AndroidSensorSource sensorSource;
+    private DetectionPipeline pipeline;
 
     private TextView accelDataX, accelDataY, accelDataZ;
 
     private TextView gyroDataX, gyroDataY, gyroDataZ;
     private TextView statusText;
+    private TextView sensorWarningText;
 
-    private Button settingsBtn, contactsBtn, testBtn;
+    private Button settingsBtn, contactsBtn, testBtn, cancelAlertBtn;
 
     private FallDetector fallDetector;
-    private LocationHelper locationHelper;
-    private SMSHelper smsHelper;
+    private final FallConfirmation fallConfirmation = new FallConfirmation();
+    private SettingsStore settings;
+    private AlertPlayer alertPlayer;
+    private PowerStats powerStats;
+
+    // Work that is not needed for the first frame or the first sample
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+
+    // Samples delivered in one sensor flush are detected in one pass
+    private static final int SAMPLING_PERIOD_US = 20000;       // 50 Hz, the SENSOR_DELAY_GAME rate
+    private static final int MAX_REPORT_LATENCY_US = 500000;   // Let the sensor hub batch up to 0.5 s
+
+    // Stream health is checked on a timer; a degraded stream is re-registered before the user is warned
+    private static final long HEALTH_CHECK_INTERVAL = 2000;
+    private static final int MAX_RECOVERY_ATTEMPTS = 3;
+    private int recoveryAttempts = 0;
+    private static final long BATCHING_RESTORE_DELAY = 600000;  // Healthy this long before batching again
+    private long unbatchedSince = -1;       // When recovery turned hardware batching off, or -1
+    private final Runnable healthCheck = new Runnable() {
+        @Override
+        public void run() {
+            checkSensorHealth();
+        }
+    };
+
+    // Pre-alert countdown, cancellable by the user
+    private static final int ALERT_COUNTDOWN_SECONDS = 15;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int countdownRemaining = 0;
+    private final Runnable countdownTick = new Runnable() {
+        @Override
+        public void run() {
+            onCountdownTick();
+        }
+    };
+
+    // Incident being tracked for the event history
+    private static final long SNIPPET_BEFORE = 3000;           // Sensor window saved before the trigger (ms)
+    private static final long SNIPPET_AFTER = 1000;            // ...and after it
+    private static final int SNIPPET_CAPACITY = 256;           // ~5 seconds at 50 Hz
+    private long incidentTime = 0;          // Wall-clock time the detector fired
+    private float incidentScore = Float.NaN;
+    private long incidentSensorTime = 0;    // Sensor-clock time the detector fired
+
+    // Flight recorder of the last few minutes of sensor data, saved with each alert
+    private static final int BLACK_BOX_BUDGET = 256 * 1024;    // ~10 minutes at 50 Hz, ~3 at 200 Hz
+    private static final long BLACK_BOX_BEFORE = 120000;       // Recording saved before the trigger (ms)
+    private static final String BLACK_BOX_DIR = "blackbox";
+    private static final int BLACK_BOX_FILES = 20;             // Older recordings are deleted
+    private final BlackBoxRecorder blackBox = new BlackBoxRecorder(BLACK_BOX_BUDGET);
+
+    // Per-user threshold calibration, persisted between sessions
+    private static final String CALIBRATION_FILE = "threshold_calibration.bin";
+    static final String EVENT_LOG_FILE = "event_log.txt";
+    private ThresholdCalibrator calibrator;     // Attached once loaded in the background
+
+    private static final float FALL_MODEL_MIN_SCORE = 0.5f;    // Classifier veto threshold, if a model is bundled
 
     private static final int PERMISSION_REQUEST_CODE = 100;
     private static final String[] REQUIRED_PERMISSIONS = {
@@ -51,23 +109,91 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.mark("activity onCreate");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        StartupTrace.mark("content view");
+
+        settings = SettingsStore.get(this);
+        powerStats = PowerStats.get(this);
 
         initViews();
-        initSensors();
 
-        fallDetector = new FallDetector();
-        locationHelper = new LocationHelper(this);
-        smsHelper = new SMSHelper(this);
+        // Monitoring starts on plain thresholds; the model and the user's calibration follow.
+        // Riding in a vehicle makes a fall need more evidence
+        DetectorConfig detectorConfig = new DetectorConfig().setActivityGating(true);
+        fallDetector = new FallDetector(detectorConfig);
+        pipeline = new DetectionPipeline(fallDetector, fallConfirmation, this,
+                SNIPPET_CAPACITY, SNIPPET_BEFORE, SNIPPET_AFTER);
+        initSensors();
+        background.execute(() -> loadDetectorState(detectorConfig));
+        background.execute(() -> FallEventStore.get(this));    // Opening checks the history files
 
         if (!hasAllPermissions()) {
             requestPermissions();
         }
 
         setupButtons();
+        watchFirstFrame();
+
+        StartupTrace.mark("activity created");
+        EventLog.log(EventLog.Event.ACTIVITY_CREATED);
+    }
+
+    // Runs on the background executor; the results are attached on the main thread
+    private void loadDetectorState(DetectorConfig detectorConfig) {
+        FallClassifier classifier = FallClassifier.fromAsset(this, FallClassifier.DEFAULT_ASSET);
+        ThresholdCalibrator loaded = new ThresholdCalibrator(detectorConfig);
+        try {
+            loaded.load(new File(getFilesDir(), CALIBRATION_FILE));
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable threshold calibration", e);
+        }
+        mainHandler.post(() -> {
+            fallDetector.setClassifier(classifier, FALL_MODEL_MIN_SCORE);
+            fallDetector.setCalibrator(loaded);
+            calibrator = loaded;
+            StartupTrace.mark("detector state loaded");
+        });
+    }
+
+    private void watchFirstFrame() {
+        final View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Runs right after the traversal that draws this frame
+                mainHandler.postAtFrontOfQueue(MainActivity.this::onFirstFrame);
+                return true;
+            }
+        });
+    }
+
+    private void onFirstFrame() {
+        StartupTrace.firstFrame();
+        // Prepared well before any alert so the alarm starts without delay
+        mainHandler.post(this::alertPlayer);
+    }
+
+    private AlertPlayer alertPlayer() {
+        if (alertPlayer == null) {
+            alertPlayer = new AlertPlayer(this, this::onAlarmTimedOut);
+        }
+        return alertPlayer;
+    }
 
-        Log.d(TAG, "MainActivity created");
+    // Shared process-wide and created on first use
+    private SMSHelper smsHelper() {
+        return SMSHelper.get(this);
+    }
+
+    private LocationHelper locationHelper() {
+        return LocationHelper.get(this);
+    }
+
+    private FallEventStore eventStore() {
+        return FallEventStore.get(this);
     }
 
     private void initViews() {
@@ -80,27 +206,25 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         gyroDataZ = findViewById(R.id.gyroDataZ);
 
         statusText = findViewById(R.id.statusText);
+        sensorWarningText = findViewById(R.id.sensorWarningText);
 
         settingsBtn = findViewById(R.id.settingsBtn);
         contactsBtn = findViewById(R.id.contactsBtn);
-
+        cancelAlertBtn = findViewById(R.id.cancelAlertBtn);
     }
 
     private void initSensors() {
-        sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
-        accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
-        gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        SensorManager sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
+        sensorSource = new AndroidSensorSource(sensorManager, powerStats, mainHandler,
+                SAMPLING_PERIOD_US, MAX_REPORT_LATENCY_US);
+        if (!sensorSource.hasAccelerometer()) {
+            showSensorWarning("No accelerometer found - falls cannot be detected");
+        }
     }
 
+    // Cached in SettingsStore; refreshed in onResume and onRequestPermissionsResult
     private boolean hasAllPermissions() {
-        for (String permission : REQUIRED_PERMISSIONS) {
-            if (ContextCompat.checkSelfPermission(this, permission) != PackageManager.PERMISSION_GRANTED) {
-                Log.d(TAG, "Missing permission: " + permission);
-                return false;
-            }
-        }
-        Log.d(TAG, "All permissions granted");
-        return true;
+        return settings.hasAllPermissions();
     }
 
     private void requestPermissions() {
@@ -127,6 +251,14 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             }
         });
 
+        cancelAlertBtn.setOnClickListener(v -> {
+            if (fallConfirmation.isActive()) {
+                cancelPendingAlert();
+            } else {
+                stopAlarm();
+            }
+        });
+
         // Test SMS button (optional)
         if (testBtn != null) {
             testBtn.setOnClickListener(v -> testSMS());
@@ -138,7 +270,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         Log.d(TAG, "Testing SMS manually");
 
         // Check if emergency contact is set
-        if (!smsHelper.isContactSet()) {
+        if (!smsHelper().isContactSet()) {
             Toast.makeText(this, "Please set emergency contact first", Toast.LENGTH_LONG).show();
             return;
         }
@@ -150,157 +282,370 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             return;
         }
 
-        smsHelper.testSMS();
+        smsHelper().testSMS();
     }
 
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            updateAccelDisplay(event.values);
-            if (hasAllPermissions() && fallDetector.detectFall(event.values, null)) {
-                handleFallDetected();
-            }
-        } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
-            updateGyroDisplay(event.values);
+    public void onSamples(SampleBatch batch) {
+        StartupTrace.firstSample();
+        long cpuStart = Debug.threadCpuTimeNanos();
+        int last = batch.count - 1;
+        updateAccelDisplay(batch.ax[last], batch.ay[last], batch.az[last]);
+        updateGyroDisplay(batch.gx[last], batch.gy[last], batch.gz[last]);
+        blackBox.add(batch);
+        pipeline.onSamples(batch);
+        powerStats.onBatch(batch.count, Debug.threadCpuTimeNanos() - cpuStart, batch.isFull());
+    }
+
+    @Override
+    public void onSourceEnded(Exception error) {
+        // The device sensors only stop when unregistered
+        Log.w(TAG, "Sensor source ended", error);
+    }
+
+    @Override
+    public void onFallCandidate(long timestampMs) {
+        incidentTime = System.currentTimeMillis();
+        incidentSensorTime = timestampMs;
+        incidentScore = fallDetector.getLastScore();
+        EventLog.log(EventLog.Event.FALL_CANDIDATE, incidentScore);
+        countdownRemaining = ALERT_COUNTDOWN_SECONDS;
+        cancelAlertBtn.setText("I am OK - Cancel Alert");
+        cancelAlertBtn.setVisibility(View.VISIBLE);
+        mainHandler.removeCallbacks(countdownTick);
+        mainHandler.post(countdownTick);
+    }
+
+    @Override
+    public void onConfirmationState(FallConfirmation.State state) {
+        if (state == FallConfirmation.State.REJECTED) {
+            EventLog.log(EventLog.Event.FALL_REJECTED);
+            recordOutcome(FallEvent.Type.REJECTED);
+            stopCountdown("Movement detected - alert cancelled.");
         }
     }
 
-    private void updateAccelDisplay(float[] values) {
-        accelDataX.setText(String.format(Locale.getDefault(), "X-axis: %.2f", values[0]));
-        accelDataY.setText(String.format(Locale.getDefault(), "Y-axis: %.2f", values[1]));
-        accelDataZ.setText(String.format(Locale.getDefault(), "Z-axis: %.2f", values[2]));
+    private void onCountdownTick() {
+        if (countdownRemaining > 0) {
+            statusText.setText(String.format(Locale.getDefault(),
+                    "Possible fall! Alerting in %d s...", countdownRemaining));
+            countdownRemaining--;
+            mainHandler.postDelayed(countdownTick, 1000);
+            return;
+        }
+
+        // Countdown expired: alert only if the post-impact check confirmed the fall
+        if (fallConfirmation.resolve() == FallConfirmation.State.CONFIRMED) {
+            cancelAlertBtn.setVisibility(View.GONE);
+            fallConfirmation.reset();
+            handleFallDetected();
+        } else {
+            recordOutcome(FallEvent.Type.REJECTED);
+            stopCountdown("Movement detected - alert cancelled.");
+        }
     }
 
-    private void updateGyroDisplay(float[] values) {
-        gyroDataX.setText(String.format(Locale.getDefault(), "X-rotation: %.2f", values[0]));
-        gyroDataY.setText(String.format(Locale.getDefault(), "Y-rotation: %.2f", values[1]));
-        gyroDataZ.setText(String.format(Locale.getDefault(), "Z-rotation: %.2f", values[2]));
+    private void cancelPendingAlert() {
+        EventLog.log(EventLog.Event.FALL_CANCELLED);
+        recordOutcome(FallEvent.Type.CANCELLED);
+        stopCountdown("Alert cancelled. Monitoring...");
     }
 
-    private void handleFallDetected() {
-        Log.d(TAG, "Fall detected - starting alert process");
+    // Save the detection with the sensor window around the impact
+    @Override
+    public void onSnippetReady(long candidateTimestampMs) {
+        long[] times = new long[SNIPPET_CAPACITY];
+        float[] xs = new float[SNIPPET_CAPACITY];
+        float[] ys = new float[SNIPPET_CAPACITY];
+        float[] zs = new float[SNIPPET_CAPACITY];
+        int count = pipeline.copySnippet(times, xs, ys, zs);
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (int) (times[i] - candidateTimestampMs);
+        }
+        eventStore().record(new FallEvent(FallEvent.Type.DETECTED, incidentTime, incidentTime,
+                Double.NaN, Double.NaN, "", incidentScore, offsets,
+                Arrays.copyOf(xs, count), Arrays.copyOf(ys, count), Arrays.copyOf(zs, count)));
+    }
 
-        runOnUiThread(() -> statusText.setText("Fall detected! Sending alert..."));
+    private void recordOutcome(FallEvent.Type type) {
+        pipeline.finishSnippet();
+        eventStore().record(new FallEvent(type, System.currentTimeMillis(), incidentTime, incidentScore));
+    }
 
-        // Get user settings from SharedProfiles
-        SharedPreferences prefs = getSharedPreferences("FallDetectionPrefs", MODE_PRIVATE);
-        boolean soundEnabled = prefs.getBoolean("sound_enabled", true);
-        boolean vibrationEnabled = prefs.getBoolean("vibration_enabled", true);
+    private void stopAlarm() {
+        EventLog.log(EventLog.Event.ALARM_STOPPED);
+        alertPlayer().stop();
+        hideAlarmButton();
+    }
 
-        // Check if emergency contact is set
-        String contact = smsHelper.getContact();
-        Log.d(TAG, "Emergency contact: " + (contact.isEmpty() ? "NOT SET" : "SET"));
+    private void onAlarmTimedOut() {
+        // A new countdown may have taken the button over meanwhile
+        if (!fallConfirmation.isActive()) hideAlarmButton();
+    }
+
+    private void hideAlarmButton() {
+        cancelAlertBtn.setVisibility(View.GONE);
+        cancelAlertBtn.setText("I am OK - Cancel Alert");
+    }
+
+    private void stopCountdown(String status) {
+        mainHandler.removeCallbacks(countdownTick);
+        fallConfirmation.reset();
+        cancelAlertBtn.setVisibility(View.GONE);
+        statusText.setText(status);
+    }
+
+    private void updateAccelDisplay(float x, float y, float z) {
+        accelDataX.setText(String.format(Locale.getDefault(), "X-axis: %.2f", x));
+        accelDataY.setText(String.format(Locale.getDefault(), "Y-axis: %.2f", y));
+        accelDataZ.setText(String.format(Locale.getDefault(), "Z-axis: %.2f", z));
+    }
+
+    private void updateGyroDisplay(float x, float y, float z) {
+        gyroDataX.setText(String.format(Locale.getDefault(), "X-rotation: %.2f", x));
+        gyroDataY.setText(String.format(Locale.getDefault(), "Y-rotation: %.2f", y));
+        gyroDataZ.setText(String.format(Locale.getDefault(), "Z-rotation: %.2f", z));
+    }
 
-        // Check if SMS is enabled
-        boolean smsEnabled = smsHelper.isSMSEnabled();
-        Log.d(TAG, "SMS enabled: " + smsEnabled);
+    private void handleFallDetected() {
+        runOnUiThread(() -> statusText.setText("Fall detected! Sending alert..."));
 
-        // Sound alert
-        if (soundEnabled) playAlertSound();
+        // Get user settings from the in-memory settings store
+        boolean soundEnabled = settings.isSoundEnabled();
+        boolean vibrationEnabled = settings.isVibrationEnabled();
 
-        // Vibration alert
-        if (vibrationEnabled) triggerVibration();
+        // Record whether an SMS can go out at all
+        EventLog.log(EventLog.Event.FALL_CONFIRMED, !smsHelper().getContact().isEmpty(), smsHelper().isSMSEnabled());
 
-        // Try location
-        locationHelper.getCurrentLocation(new LocationHelper.LocationCallback() {
+        // Sound and vibration alarm, stoppable from the same button as the countdown
+        if (soundEnabled || vibrationEnabled) {
+            alertPlayer().start(soundEnabled, vibrationEnabled);
+            cancelAlertBtn.setText("Stop Alarm");
+            cancelAlertBtn.setVisibility(View.VISIBLE);
+        }
+
+        // Try location; the outcome is saved against this incident
+        pipeline.finishSnippet();
+        final long incident = incidentTime;
+        final float score = incidentScore;
+        saveBlackBox(incident);
+        locationHelper().getCurrentLocation(new LocationHelper.LocationCallback() {
             @Override
             public void onLocationReceived(double latitude, double longitude, String address) {
-                Log.d(TAG, "Location received, sending SMS with location");
-                smsHelper.sendAlert(latitude, longitude, address);
-                runOnUiThread(() -> statusText.setText("Fall alert sent with location."));
+                EventLog.log(EventLog.Event.LOCATION_FOUND);
+                AlertCoordinator.get(MainActivity.this).reportFall(incident, latitude, longitude, address,
+                        outcome -> recordAlertOutcome(outcome, incident, score, true, latitude, longitude, address));
+                flushEventLog();
             }
 
             @Override
             public void onLocationError(String error) {
-                Log.d(TAG, "Location error: " + error + " - sending SMS without location");
-                smsHelper.sendAlert(); // fallback
-                runOnUiThread(() -> statusText.setText("Fall alert sent (no location)."));
+                EventLog.log(EventLog.Event.LOCATION_FAILED);
+                AlertCoordinator.get(MainActivity.this).reportFall(incident,
+                        outcome -> recordAlertOutcome(outcome, incident, score, false, 0, 0, null));
+                flushEventLog();
             }
         });
     }
 
-    private void playAlertSound() {
-        try {
-            MediaPlayer mediaPlayer = MediaPlayer.create(this, android.provider.Settings.System.DEFAULT_NOTIFICATION_URI);
-            if (mediaPlayer != null) {
-                mediaPlayer.start();
-                Log.d(TAG, "Alert sound played");
-            }
-        } catch (Exception e) {
-            Toast.makeText(this, "Unable to play alert sound", Toast.LENGTH_SHORT).show();
-            Log.e(TAG, "Error playing alert sound", e);
+    // Save and show what the coordinator actually did with the alert; runs on the main thread
+    private void recordAlertOutcome(AlertCoordinator.Outcome outcome, long incident, float score,
+                                    boolean hasLocation, double latitude, double longitude, String address) {
+        FallEvent.Type type;
+        String status;
+        switch (outcome) {
+            case SENT:
+                type = hasLocation ? FallEvent.Type.ALERT_SENT : FallEvent.Type.ALERT_SENT_NO_LOCATION;
+                status = hasLocation ? "Fall alert sent with location." : "Fall alert sent (no location).";
+                break;
+            case MERGED:
+                type = FallEvent.Type.ALERT_MERGED;
+                status = "Fall alert already sent for this fall.";
+                break;
+            case HELD:
+                type = FallEvent.Type.ALERT_HELD;
+                status = "Fall alert queued - too many alerts, sending shortly.";
+                break;
+            default:
+                type = FallEvent.Type.ALERT_NOT_SENT;
+                status = "Fall alert could not be sent.";
+                break;
         }
+        long now = System.currentTimeMillis();
+        eventStore().record(hasLocation
+                ? new FallEvent(type, now, incident, latitude, longitude, address, score, null, null, null, null)
+                : new FallEvent(type, now, incident, score));
+        statusText.setText(status);
     }
 
-    private void triggerVibration() {
-        try {
-            Vibrator vibrator = (Vibrator) getSystemService(VIBRATOR_SERVICE);
-            if (vibrator != null) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    vibrator.vibrate(VibrationEffect.createOneShot(1000, VibrationEffect.DEFAULT_AMPLITUDE));
+    @Override
+    protected void onResume() {
+        super.onResume();
+        settings.refreshPermissions();
+        pipeline.setDetectionEnabled(hasAllPermissions());
+        recoveryAttempts = 0;
+        // Give hardware batching another chance each time monitoring starts
+        sensorSource.setReportLatencyUs(MAX_REPORT_LATENCY_US);
+        unbatchedSince = -1;
+        sensorSource.start(this);
+        StartupTrace.mark("sensors registered");
+        if (sensorSource.hasAccelerometer()) {
+            mainHandler.postDelayed(healthCheck, HEALTH_CHECK_INTERVAL);
+        }
+        EventLog.log(EventLog.Event.SENSORS_STARTED);
+    }
+
+    private void checkSensorHealth() {
+        long now = SystemClock.elapsedRealtime();
+        SensorHealthMonitor gyroHealth = sensorSource.getGyroHealth();
+        SensorHealthMonitor.Status status = sensorSource.getAccelHealth().check(now);
+        SensorHealthMonitor.Status gyroStatus = gyroHealth != null ? gyroHealth.check(now) : SensorHealthMonitor.Status.OK;
+        if (status == SensorHealthMonitor.Status.OK) status = gyroStatus;
+
+        switch (status) {
+            case OK:
+                recoveryAttempts = 0;
+                hideSensorWarning();
+                if (unbatchedSince >= 0 && now - unbatchedSince >= BATCHING_RESTORE_DELAY) {
+                    // Stable for a while without batching; turn it back on to save power
+                    unbatchedSince = -1;
+                    sensorSource.setReportLatencyUs(MAX_REPORT_LATENCY_US);
+                    sensorSource.restart();
+                }
+                break;
+            case STARTING:
+                break;
+            case SATURATED:
+                // Re-registering cannot widen the range
+                showSensorWarning("Motion sensor is at its range limit - hard impacts may be missed");
+                break;
+            default:
+                if (recoveryAttempts < MAX_RECOVERY_ATTEMPTS) {
+                    recoveryAttempts++;
+                    // Later attempts also turn off hardware batching, which some sensor hubs handle badly
+                    if (recoveryAttempts > 1) {
+                        sensorSource.setReportLatencyUs(0);
+                        unbatchedSince = now;
+                    }
+                    EventLog.log(EventLog.Event.SENSOR_RECOVERY, status.ordinal(), recoveryAttempts);
+                    sensorSource.restart();
                 } else {
-                    vibrator.vibrate(1000);
+                    showSensorWarning(describeSensorProblem(status));
                 }
-                Log.d(TAG, "Vibration triggered");
-            }
-        } catch (Exception e) {
-            Toast.makeText(this, "Unable to trigger vibration", Toast.LENGTH_SHORT).show();
-            Log.e(TAG, "Error triggering vibration", e);
+                break;
         }
+        mainHandler.postDelayed(healthCheck, HEALTH_CHECK_INTERVAL);
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        if (accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
-        }
-        if (gyroscope != null) {
-            sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+    private String describeSensorProblem(SensorHealthMonitor.Status status) {
+        switch (status) {
+            case STALLED:
+                return "Motion sensor stopped responding - fall detection is paused";
+            case STUCK:
+                return "Motion sensor readings are frozen - fall detection may not work";
+            case SLOW:
+                return String.format(Locale.getDefault(), "Motion sensor running at %.0f Hz (needs %.0f) - falls may be missed",
+                        sensorSource.getAccelHealth().getMeasuredRateHz(),
+                        sensorSource.getAccelHealth().getExpectedRateHz());
+            default:
+                return "Motion sensor timing is unreliable - falls may be missed";
         }
-        Log.d(TAG, "Sensor listeners registered");
+    }
+
+    private void showSensorWarning(String message) {
+        sensorWarningText.setText(message);
+        sensorWarningText.setVisibility(View.VISIBLE);
+    }
+
+    private void hideSensorWarning() {
+        sensorWarningText.setVisibility(View.GONE);
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        sensorManager.unregisterListener(this);
-        Log.d(TAG, "Sensor listeners unregistered");
+        sensorSource.stop();
+        mainHandler.removeCallbacks(healthCheck);
+        powerStats.flush();
+        saveCalibration();
+        EventLog.log(EventLog.Event.SENSORS_STOPPED);
+    }
+
+    // Everything from before the impact up to now, so the countdown after it is included
+    private void saveBlackBox(long incident) {
+        BlackBoxRecorder.Snapshot snapshot = blackBox.freeze(incidentSensorTime - BLACK_BOX_BEFORE, Long.MAX_VALUE);
+        File dir = new File(getFilesDir(), BLACK_BOX_DIR);
+        background.execute(() -> {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                Log.e(TAG, "Unable to create black box directory");
+                return;
+            }
+            try {
+                snapshot.writeTo(new File(dir, "incident_" + incident + ".bin"));
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving black box recording", e);
+            }
+            File[] saved = dir.listFiles();
+            if (saved != null && saved.length > BLACK_BOX_FILES) {
+                Arrays.sort(saved, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+                for (int i = 0; i < saved.length - BLACK_BOX_FILES; i++) {
+                    if (!saved[i].delete()) Log.w(TAG, "Unable to delete old black box recording");
+                }
+            }
+        });
+    }
+
+    // Posted behind the coordinator's queue so the log includes the alert being sent
+    private void flushEventLog() {
+        File file = new File(getFilesDir(), EVENT_LOG_FILE);
+        mainHandler.post(() -> {
+            if (background.isShutdown()) return;
+            background.execute(() -> {
+                if (!EventLog.flush(file)) Log.w(TAG, "Unable to save event log");
+            });
+        });
+    }
+
+    private void saveCalibration() {
+        if (calibrator == null) return;     // Still loading; nothing new learned yet
+        try {
+            calibrator.save(new File(getFilesDir(), CALIBRATION_FILE));
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving threshold calibration", e);
+        }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (smsHelper != null) {
-            smsHelper.unregisterReceivers();
+        mainHandler.removeCallbacks(countdownTick);
+        if (alertPlayer != null) {
+            alertPlayer.release();
         }
+        background.shutdown();
         Log.d(TAG, "MainActivity destroyed");
     }
 
-    @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Not used
-    }
-
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
 
         if (requestCode == PERMISSION_REQUEST_CODE) {
-            boolean allGranted = true;
+            settings.refreshPermissions();
+            pipeline.setDetectionEnabled(hasAllPermissions());
+            int denied = 0;
             for (int i = 0; i < grantResults.length; i++) {
                 if (grantResults[i] != PackageManager.PERMISSION_GRANTED) {
                     Toast.makeText(this, "Permission denied: " + permissions[i], Toast.LENGTH_SHORT).show();
-                    Log.w(TAG, "Permission denied: " + permissions[i]);
-                    allGranted = false;
+                    denied++;
                 }
             }
+            EventLog.log(EventLog.Event.PERMISSIONS_RESULT, grantResults.length - denied, denied);
 
-            if (allGranted) {
-                Log.d(TAG, "All permissions granted");
+            if (denied == 0) {
                 Toast.makeText(this, "All permissions granted", Toast.LENGTH_SHORT).show();
             } else {
-                Log.w(TAG, "Some permissions denied - app functionality may be limited");
                 Toast.makeText(this, "Some permissions denied - app functionality may be limited", Toast.LENGTH_LONG).show();
             }
         }
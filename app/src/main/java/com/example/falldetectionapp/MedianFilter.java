@@ -0,0 +1,64 @@
+package com.example.falldetectionapp;
+
+/**
+ * Running median of the last N samples.
+ *
+ * Keeps the window both in arrival order and sorted; each sample removes the
+ * oldest value from the sorted copy and inserts the new one, which is O(N)
+ * with tiny constants for the short windows used for spike rejection.
+ * Until the window has filled, the median is taken over the samples seen so far.
+ */
+public class MedianFilter implements SignalFilter {
+
+    private final float[] window;   // Arrival order
+    private final float[] sorted;   // First 'filled' entries kept sorted
+    private int index = 0;
+    private int filled = 0;
+
+    public MedianFilter(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Window length must be positive");
+        }
+        window = new float[length];
+        sorted = new float[length];
+    }
+
+    @Override
+    public float filter(float value) {
+        int size = filled;
+        if (filled == window.length) {
+            // Remove the value that is about to be overwritten
+            int pos = indexOf(window[index], size);
+            System.arraycopy(sorted, pos + 1, sorted, pos, size - pos - 1);
+            size--;
+        } else {
+            filled++;
+        }
+        window[index] = value;
+        index = (index + 1) % window.length;
+
+        // Insert the new value keeping the array sorted
+        int pos = size;
+        while (pos > 0 && sorted[pos - 1] > value) {
+            sorted[pos] = sorted[pos - 1];
+            pos--;
+        }
+        sorted[pos] = value;
+
+        int mid = filled / 2;
+        return (filled % 2 == 1) ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+
+    private int indexOf(float value, int size) {
+        for (int i = 0; i < size; i++) {
+            if (sorted[i] == value) return i;
+        }
+        return size - 1;
+    }
+
+    @Override
+    public void reset() {
+        index = 0;
+        filled = 0;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.falldetectionapp;
+
+/**
+ * Incremental gravity and orientation estimator (complementary filter).
+ *
+ * The gravity vector in the device frame is propagated with the gyroscope
+ * rate and blended with the accelerometer reading, which is trusted only
+ * while its magnitude is close to 1 g. From the estimate it derives the
+ * linear (gravity-free) acceleration and the tilt relative to a slowly
+ * adapting reference orientation, e.g. upright before a fall vs. lying after.
+ *
+ * All state is kept in primitive fields; {@link #update} never allocates.
+ */
+public class OrientationTracker {
+
+    private static final float GRAVITY = 9.81f;
+    private static final float GRAVITY_TIME_CONSTANT = 1.0f;      // Seconds; how long gyro integration is trusted
+    private static final float REFERENCE_TIME_CONSTANT = 30.0f;   // Seconds; how fast the reference posture adapts
+    private static final float ACCEL_TRUST_BAND = 3.0f;           // Accel used for correction only within 1 g +/- this
+    private static final float MAX_DT = 0.1f;                     // Larger gaps are treated as a restart of integration
+
+    private static final float TRUST_MIN_SQ = (GRAVITY - ACCEL_TRUST_BAND) * (GRAVITY - ACCEL_TRUST_BAND);
+    private static final float TRUST_MAX_SQ = (GRAVITY + ACCEL_TRUST_BAND) * (GRAVITY + ACCEL_TRUST_BAND);
+
+    private float gravityX, gravityY, gravityZ;
+    private float linearX, linearY, linearZ;
+    private float referenceX, referenceY, referenceZ;
+    private boolean referenceFrozen = false;
+
+    private long lastTimestamp = 0;
+    private boolean initialized = false;
+
+    /**
+     * Consume one paired accelerometer/gyroscope sample.
+     *
+     * @param timestampMs sample time in milliseconds
+     * @param ax accelerometer X (m/s^2)
+     * @param gx gyroscope X (rad/s)
+     */
+    public void update(long timestampMs, float ax, float ay, float az, float gx, float gy, float gz) {
+        if (!initialized) {
+            gravityX = referenceX = ax;
+            gravityY = referenceY = ay;
+            gravityZ = referenceZ = az;
+            linearX = linearY = linearZ = 0;
+            lastTimestamp = timestampMs;
+            initialized = true;
+            return;
+        }
+
+        float dt = (timestampMs - lastTimestamp) / 1000f;
+        lastTimestamp = timestampMs;
+        if (dt <= 0 || dt > MAX_DT) dt = 0;
+
+        // Rotate the gravity estimate by the gyro rate: dg/dt = g x omega (device frame)
+        float predictedX = gravityX + (gravityY * gz - gravityZ * gy) * dt;
+        float predictedY = gravityY + (gravityZ * gx - gravityX * gz) * dt;
+        float predictedZ = gravityZ + (gravityX * gy - gravityY * gx) * dt;
+
+        // Correct towards the accelerometer only while it plausibly measures gravity alone
+        float accelSq = ax * ax + ay * ay + az * az;
+        if (dt > 0 && accelSq > TRUST_MIN_SQ && accelSq < TRUST_MAX_SQ) {
+            float alpha = GRAVITY_TIME_CONSTANT / (GRAVITY_TIME_CONSTANT + dt);
+            gravityX = alpha * predictedX + (1 - alpha) * ax;
+            gravityY = alpha * predictedY + (1 - alpha) * ay;
+            gravityZ = alpha * predictedZ + (1 - alpha) * az;
+        } else {
+            gravityX = predictedX;
+            gravityY = predictedY;
+            gravityZ = predictedZ;
+        }
+
+        linearX = ax - gravityX;
+        linearY = ay - gravityY;
+        linearZ = az - gravityZ;
+
+        if (!referenceFrozen && dt > 0) {
+            float beta = dt / (REFERENCE_TIME_CONSTANT + dt);
+            referenceX += beta * (gravityX - referenceX);
+            referenceY += beta * (gravityY - referenceY);
+            referenceZ += beta * (gravityZ - referenceZ);
+        }
+    }
+
+    /**
+     * Stop the reference orientation from adapting, e.g. while a candidate
+     * fall is being checked, so the post-fall tilt is measured against the
+     * posture before the fall.
+     */
+    public void setReferenceFrozen(boolean frozen) {
+        referenceFrozen = frozen;
+    }
+
+    /**
+     * Take the current gravity estimate as the reference orientation.
+     */
+    public void captureReference() {
+        referenceX = gravityX;
+        referenceY = gravityY;
+        referenceZ = gravityZ;
+    }
+
+    public void reset() {
+        initialized = false;
+        referenceFrozen = false;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public float getGravityX() { return gravityX; }
+    public float getGravityY() { return gravityY; }
+    public float getGravityZ() { return gravityZ; }
+
+    public float getLinearX() { return linearX; }
+    public float getLinearY() { return linearY; }
+    public float getLinearZ() { return linearZ; }
+
+    /**
+     * @return squared magnitude of the linear acceleration; compare against squared thresholds
+     */
+    public float getLinearMagnitudeSq() {
+        return linearX * linearX + linearY * linearY + linearZ * linearZ;
+    }
+
+    public float getLinearMagnitude() {
+        return (float) Math.sqrt(getLinearMagnitudeSq());
+    }
+
+    /**
+     * Angle between the current gravity estimate and the reference orientation.
+     * Computed on demand, so callers that never ask pay nothing for it.
+     *
+     * @return tilt in degrees (0 to 180)
+     */
+    public float getTiltDegrees() {
+        float dot = gravityX * referenceX + gravityY * referenceY + gravityZ * referenceZ;
+        float norms = (float) Math.sqrt(
+                (gravityX * gravityX + gravityY * gravityY + gravityZ * gravityZ)
+                        * (referenceX * referenceX + referenceY * referenceY + referenceZ * referenceZ));
+        if (norms == 0) return 0;
+        float cos = Math.max(-1f, Math.min(1f, dot / norms));
+        return (float) Math.toDegrees(Math.acos(cos));
+    }
+}
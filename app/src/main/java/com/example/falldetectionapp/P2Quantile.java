@@ -0,0 +1,136 @@
+package com.example.falldetectionapp;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of one quantile using the P-square algorithm
+ * (Jain &amp; Chlamtac, 1985).
+ *
+ * Keeps five markers whose heights are nudged towards the target quantile
+ * with piecewise-parabolic interpolation as values arrive, so memory and the
+ * cost per value are constant no matter how long the stream runs.
+ */
+public class P2Quantile {
+
+    private final double p;
+    private final double[] heights = new double[5];
+    private final double[] positions = new double[5];
+    private final double[] desired = new double[5];
+    private final double[] increments = new double[5];
+    private long count = 0;
+
+    /**
+     * @param p quantile to track, in (0, 1)
+     */
+    public P2Quantile(double p) {
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("Quantile must be in (0, 1)");
+        }
+        this.p = p;
+        increments[0] = 0;
+        increments[1] = p / 2;
+        increments[2] = p;
+        increments[3] = (1 + p) / 2;
+        increments[4] = 1;
+    }
+
+    public void add(double x) {
+        if (count < 5) {
+            heights[(int) count] = x;
+            count++;
+            if (count == 5) {
+                Arrays.sort(heights);
+                for (int i = 0; i < 5; i++) positions[i] = i + 1;
+                desired[0] = 1;
+                desired[1] = 1 + 2 * p;
+                desired[2] = 1 + 4 * p;
+                desired[3] = 3 + 2 * p;
+                desired[4] = 5;
+            }
+            return;
+        }
+        count++;
+
+        // Find the cell containing x, stretching the extremes if needed
+        int k;
+        if (x < heights[0]) {
+            heights[0] = x;
+            k = 0;
+        } else if (x >= heights[4]) {
+            heights[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (k < 3 && x >= heights[k + 1]) k++;
+        }
+        for (int i = k + 1; i < 5; i++) positions[i]++;
+        for (int i = 0; i < 5; i++) desired[i] += increments[i];
+
+        // Move the middle markers back towards their desired positions
+        for (int i = 1; i <= 3; i++) {
+            double d = desired[i] - positions[i];
+            if ((d >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int step = d > 0 ? 1 : -1;
+                double candidate = parabolic(i, step);
+                if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                    heights[i] = candidate;
+                } else {
+                    heights[i] += step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+                }
+                positions[i] += step;
+            }
+        }
+    }
+
+    private double parabolic(int i, int d) {
+        double below = positions[i] - positions[i - 1];
+        double above = positions[i + 1] - positions[i];
+        return heights[i] + d / (positions[i + 1] - positions[i - 1])
+                * ((below + d) * (heights[i + 1] - heights[i]) / above
+                + (above - d) * (heights[i] - heights[i - 1]) / below);
+    }
+
+    /**
+     * @return current estimate, or NaN if nothing has been added yet
+     */
+    public double get() {
+        if (count == 0) return Double.NaN;
+        if (count < 5) {
+            double[] sorted = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+        }
+        return heights[2];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getQuantile() {
+        return p;
+    }
+
+    /**
+     * Marker state for persisting the sketch; see {@link #restore}.
+     */
+    public double[] getState() {
+        double[] state = new double[16];
+        state[0] = count;
+        System.arraycopy(heights, 0, state, 1, 5);
+        System.arraycopy(positions, 0, state, 6, 5);
+        System.arraycopy(desired, 0, state, 11, 5);
+        return state;
+    }
+
+    public void restore(double[] state) {
+        if (state.length != 16) {
+            throw new IllegalArgumentException("Bad sketch state");
+        }
+        count = (long) state[0];
+        System.arraycopy(state, 1, heights, 0, 5);
+        System.arraycopy(state, 6, positions, 0, 5);
+        System.arraycopy(state, 11, desired, 0, 5);
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.falldetectionapp;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide power accounting for the monitoring pipeline.
+ *
+ * Tracks what the app costs in battery terms: how long each sensor is
+ * registered and at what rate, how many batch flushes (wakeups) are
+ * delivered, how long a location provider is active, how long wake locks
+ * are held and how much CPU time detection uses. Values are aggregated into
+ * hourly buckets; completed buckets are appended to a small text file in the
+ * app's files directory and the last week is kept for {@link #buildReport()}.
+ *
+ * Durations are measured with {@link SystemClock#elapsedRealtime()}, so time
+ * spent in deep sleep while a sensor stays registered is counted as on-time.
+ */
+public class PowerStats {
+
+    private static final String TAG = "PowerStats";
+
+    public static final String FLUSHES = "flushes";                 // Batch drains (one wakeup each)
+    public static final String FULL_FLUSHES = "full_flushes";       // Drains forced by a full batch
+    public static final String SAMPLES = "samples";
+    public static final String DETECTION_CPU_US = "detection_cpu_us";
+    public static final String LOCATION_PREFIX = "location:";       // Followed by the provider name
+    public static final String SENSOR_PREFIX = "sensor:";           // Followed by name@period
+    public static final String WAKELOCK_PREFIX = "wakelock:";       // Followed by the wake lock tag
+
+    private static final String STORE_FILE = "power_stats.txt";
+    private static final String CURRENT_FILE = "power_stats_current.txt";
+    private static final String REPORT_FILE = "power_report.txt";
+    private static final long HOUR_MS = 3600000;
+    private static final int MAX_HOURS = 7 * 24;        // Buckets kept on disk
+
+    private static volatile PowerStats instance;
+
+    private final File storeFile;
+    private final File currentFile;
+    private final File reportFile;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    // Current hour, guarded by 'this'
+    private long bucketStart;
+    private final Map<String, Long> bucket = new HashMap<>();
+    private final Map<String, Long> openSince = new HashMap<>();    // Interval metric -> elapsedRealtime at start
+
+    // Batch counters are plain fields; they are folded into the bucket on roll-over and flush
+    private long flushes, fullFlushes, samples, detectionCpuNanos;
+
+    private PowerStats(Context context) {
+        File dir = context.getApplicationContext().getFilesDir();
+        storeFile = new File(dir, STORE_FILE);
+        currentFile = new File(dir, CURRENT_FILE);
+        reportFile = new File(dir, REPORT_FILE);
+        bucketStart = hourStart(System.currentTimeMillis());
+        io.execute(this::restoreCurrent);
+    }
+
+    public static PowerStats get(Context context) {
+        PowerStats stats = instance;
+        if (stats == null) {
+            synchronized (PowerStats.class) {
+                stats = instance;
+                if (stats == null) {
+                    stats = new PowerStats(context);
+                    instance = stats;
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Name of the on-time metric for a sensor registered at the given period.
+     */
+    public static String sensorMetric(Sensor sensor, int samplingPeriodUs) {
+        return SENSOR_PREFIX + sensor.getName().replace(' ', '_') + "@" + samplingPeriodUs + "us";
+    }
+
+    /**
+     * Record one delivered sensor batch and the thread CPU time spent detecting on it.
+     *
+     * @param full true if the batch was drained because it filled up
+     */
+    public synchronized void onBatch(int sampleCount, long cpuNanos, boolean full) {
+        rollIfNeeded();
+        flushes++;
+        if (full) fullFlushes++;
+        samples += sampleCount;
+        detectionCpuNanos += cpuNanos;
+    }
+
+    public void sensorStarted(Sensor sensor, int samplingPeriodUs) {
+        begin(sensorMetric(sensor, samplingPeriodUs));
+    }
+
+    public void sensorStopped(Sensor sensor, int samplingPeriodUs) {
+        end(sensorMetric(sensor, samplingPeriodUs));
+    }
+
+    public void locationStarted(String provider) {
+        begin(LOCATION_PREFIX + provider);
+    }
+
+    public void locationStopped(String provider) {
+        end(LOCATION_PREFIX + provider);
+    }
+
+    public void wakeLockAcquired(String tag) {
+        begin(WAKELOCK_PREFIX + tag);
+    }
+
+    public void wakeLockReleased(String tag) {
+        end(WAKELOCK_PREFIX + tag);
+    }
+
+    /**
+     * Start timing an interval metric (in milliseconds). Starting one that is
+     * already open has no effect.
+     */
+    public synchronized void begin(String metric) {
+        rollIfNeeded();
+        if (!openSince.containsKey(metric)) {
+            openSince.put(metric, SystemClock.elapsedRealtime());
+        }
+    }
+
+    /**
+     * Stop timing an interval metric and add the elapsed time to the current hour.
+     */
+    public synchronized void end(String metric) {
+        rollIfNeeded();
+        Long since = openSince.remove(metric);
+        if (since != null) {
+            add(metric, SystemClock.elapsedRealtime() - since);
+        }
+    }
+
+    private void add(String metric, long value) {
+        Long old = bucket.get(metric);
+        bucket.put(metric, old == null ? value : old + value);
+    }
+
+    /**
+     * Close the current bucket if the wall-clock hour has changed. Open
+     * intervals are split at the hour boundary.
+     */
+    private void rollIfNeeded() {
+        long now = System.currentTimeMillis();
+        long hour = hourStart(now);
+        if (hour == bucketStart) return;
+
+        long nowElapsed = SystemClock.elapsedRealtime();
+        long boundaryElapsed = nowElapsed - Math.max(0, now - hour);
+        for (Map.Entry<String, Long> open : openSince.entrySet()) {
+            long split = Math.max(open.getValue(), boundaryElapsed);
+            add(open.getKey(), split - open.getValue());
+            open.setValue(split);
+        }
+        foldCounters();
+
+        final String lines = serialize(bucketStart, bucket);
+        io.execute(() -> {
+            append(lines);
+            currentFile.delete();
+        });
+        bucket.clear();
+        bucketStart = hour;
+    }
+
+    private void foldCounters() {
+        if (flushes > 0) add(FLUSHES, flushes);
+        if (fullFlushes > 0) add(FULL_FLUSHES, fullFlushes);
+        if (samples > 0) add(SAMPLES, samples);
+        if (detectionCpuNanos >= 1000) add(DETECTION_CPU_US, detectionCpuNanos / 1000);
+        flushes = fullFlushes = samples = 0;
+        detectionCpuNanos %= 1000;     // Carry the sub-microsecond remainder
+    }
+
+    /**
+     * Save the current hour so it survives the process being killed, e.g.
+     * when the monitoring screen is paused. Open intervals keep running.
+     */
+    public synchronized void flush() {
+        rollIfNeeded();
+        foldCounters();
+        long nowElapsed = SystemClock.elapsedRealtime();
+        for (Map.Entry<String, Long> open : openSince.entrySet()) {
+            add(open.getKey(), nowElapsed - open.getValue());
+            open.setValue(nowElapsed);
+        }
+        final String lines = serialize(bucketStart, bucket);
+        io.execute(() -> write(currentFile, lines, false));
+    }
+
+    /**
+     * Read back a saved current bucket: merged if it is still the same hour,
+     * otherwise moved to the store as a completed bucket.
+     */
+    private void restoreCurrent() {
+        Map<Long, Map<String, Long>> saved = read(currentFile);
+        currentFile.delete();
+        for (Map.Entry<Long, Map<String, Long>> entry : saved.entrySet()) {
+            synchronized (this) {
+                if (entry.getKey() == bucketStart) {
+                    for (Map.Entry<String, Long> metric : entry.getValue().entrySet()) {
+                        add(metric.getKey(), metric.getValue());
+                    }
+                    continue;
+                }
+            }
+            append(serialize(entry.getKey(), entry.getValue()));
+        }
+        trimStore();
+    }
+
+    private void trimStore() {
+        Map<Long, Map<String, Long>> stored = read(storeFile);
+        if (stored.size() <= MAX_HOURS) return;
+        StringBuilder sb = new StringBuilder();
+        int skip = stored.size() - MAX_HOURS;
+        for (Map.Entry<Long, Map<String, Long>> entry : stored.entrySet()) {
+            if (skip-- > 0) continue;
+            sb.append(serialize(entry.getKey(), entry.getValue()));
+        }
+        write(storeFile, sb.toString(), false);
+    }
+
+    /** Receives an exported report on the stats' background thread. */
+    public interface ReportCallback {
+        /**
+         * @param report the report text, or null if it could not be written
+         */
+        void onReport(String report);
+    }
+
+    /**
+     * Build a plain-text report of the stored hours plus the current one:
+     * one section per hour, then totals over the whole period. Runs on the
+     * io thread, behind any queued writes.
+     */
+    private String buildReport() {
+        Map<Long, Map<String, Long>> hours = read(storeFile);
+        for (Map.Entry<Long, Map<String, Long>> entry : read(currentFile).entrySet()) {
+            hours.put(entry.getKey(), entry.getValue());
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:00", Locale.US);
+        Map<String, Long> totals = new TreeMap<>();
+        StringBuilder sb = new StringBuilder("Fall Detection power report\n");
+        sb.append("Generated ").append(new Date()).append("\n\n");
+        for (Map.Entry<Long, Map<String, Long>> entry : hours.entrySet()) {
+            sb.append(format.format(new Date(entry.getKey()))).append('\n');
+            appendMetrics(sb, entry.getValue());
+            for (Map.Entry<String, Long> metric : entry.getValue().entrySet()) {
+                Long old = totals.get(metric.getKey());
+                totals.put(metric.getKey(), old == null ? metric.getValue() : old + metric.getValue());
+            }
+        }
+        sb.append("Total over ").append(hours.size()).append(" hour(s)\n");
+        appendMetrics(sb, totals);
+        return sb.toString();
+    }
+
+    private static void appendMetrics(StringBuilder sb, Map<String, Long> metrics) {
+        for (Map.Entry<String, Long> metric : new TreeMap<>(metrics).entrySet()) {
+            String name = metric.getKey();
+            long value = metric.getValue();
+            sb.append("  ").append(name).append(": ");
+            if (name.startsWith(SENSOR_PREFIX) || name.startsWith(LOCATION_PREFIX)
+                    || name.startsWith(WAKELOCK_PREFIX)) {
+                sb.append(String.format(Locale.US, "%.1f min", value / 60000.0));
+            } else if (name.equals(DETECTION_CPU_US)) {
+                sb.append(String.format(Locale.US, "%.1f ms", value / 1000.0));
+            } else {
+                sb.append(value);
+            }
+            sb.append('\n');
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Build the report and save a copy in the files directory, off the
+     * calling thread. The callback runs on a background thread.
+     */
+    public void exportReport(final ReportCallback callback) {
+        flush();
+        // Queued behind the flush on the single io thread, so the files are current
+        io.execute(() -> {
+            String report = buildReport();
+            callback.onReport(write(reportFile, report, false) ? report : null);
+        });
+    }
+
+    // Store format: one "hourStartMs metric value" line per metric
+    private static String serialize(long hour, Map<String, Long> metrics) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> metric : metrics.entrySet()) {
+            sb.append(hour).append(' ').append(metric.getKey())
+                    .append(' ').append(metric.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Map<Long, Map<String, Long>> read(File file) {
+        Map<Long, Map<String, Long>> hours = new TreeMap<>();
+        if (!file.exists()) return hours;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3) continue;
+                try {
+                    long hour = Long.parseLong(parts[0]);
+                    long value = Long.parseLong(parts[2]);
+                    Map<String, Long> metrics = hours.get(hour);
+                    if (metrics == null) {
+                        metrics = new HashMap<>();
+                        hours.put(hour, metrics);
+                    }
+                    Long old = metrics.get(parts[1]);
+                    metrics.put(parts[1], old == null ? value : old + value);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Skipping bad power stats line");
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading " + file.getName(), e);
+        }
+        return hours;
+    }
+
+    private void append(String lines) {
+        write(storeFile, lines, true);
+    }
+
+    private static boolean write(File file, String text, boolean append) {
+        try (Writer writer = new FileWriter(file, append)) {
+            writer.write(text);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + file.getName(), e);
+            return false;
+        }
+    }
+
+    private static long hourStart(long timeMs) {
+        // Bucket on local hours so the report lines up with the user's day
+        long offset = TimeZone.getDefault().getOffset(timeMs);
+        return (timeMs + offset) / HOUR_MS * HOUR_MS - offset;
+    }
+}
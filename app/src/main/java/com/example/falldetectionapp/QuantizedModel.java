@@ -0,0 +1,258 @@
+package com.example.falldetectionapp;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Small int8 inference engine for quantized MLP and 1D-CNN fall classifiers.
+ *
+ * Weights are symmetric int8, activations are int8 with a per-tensor zero
+ * point, and accumulation is int32. Each layer rescales its accumulator with
+ * a fixed-point multiplier and shift, so the inner loops are pure integer
+ * multiply-accumulate. The input zero point is folded into the biases at
+ * load time. All activation buffers are allocated once when the model is
+ * loaded; {@link #run} never allocates.
+ *
+ * Model file layout (big-endian, see {@link #load}):
+ * <pre>
+ *   int   magic 'FDQM', int version (1)
+ *   int   window length, int channels
+ *   float input scale, int input zero point
+ *   int   layer count, then per layer:
+ *     byte type (0 = dense, 1 = conv1d), byte activation (0 = none, 1 = relu)
+ *     dense:  int inputs, int outputs
+ *     conv1d: int input channels, int output channels, int kernel, int stride
+ *     int8[]  weights (dense: [out][in], conv1d: [out][kernel][in])
+ *     int32[] biases [out]
+ *     int multiplier, int shift, int output zero point, float output scale
+ * </pre>
+ */
+public class QuantizedModel {
+
+    public static final int MAGIC = 0x4644514D;     // "FDQM"
+    public static final int VERSION = 1;
+
+    public static final int LAYER_DENSE = 0;
+    public static final int LAYER_CONV1D = 1;
+    public static final int ACTIVATION_NONE = 0;
+    public static final int ACTIVATION_RELU = 1;
+
+    private static final int MAX_LAYERS = 16;
+    private static final int MAX_TENSOR_SIZE = 1 << 16;
+
+    private static class Layer {
+        int type;
+        boolean relu;
+        int inLength, inChannels;       // Input shape (dense: inLength = 1)
+        int outLength, outChannels;     // Output shape (dense: outLength = 1)
+        int kernel, stride;
+        byte[] weights;
+        int[] biases;                   // Input zero point already folded in
+        int multiplier, shift;
+        int outZeroPoint;
+        float outScale;
+    }
+
+    private final int windowLength;
+    private final int channels;
+    private final float inputScale;
+    private final int inputZeroPoint;
+    private final Layer[] layers;
+
+    // Ping-pong activation buffers sized for the largest tensor
+    private final byte[] bufferA;
+    private final byte[] bufferB;
+    private final byte[] input;
+    private final float[] output;
+
+    private QuantizedModel(int windowLength, int channels, float inputScale, int inputZeroPoint, Layer[] layers) {
+        this.windowLength = windowLength;
+        this.channels = channels;
+        this.inputScale = inputScale;
+        this.inputZeroPoint = inputZeroPoint;
+        this.layers = layers;
+
+        int maxSize = windowLength * channels;
+        for (Layer layer : layers) {
+            maxSize = Math.max(maxSize, layer.outLength * layer.outChannels);
+        }
+        bufferA = new byte[maxSize];
+        bufferB = new byte[maxSize];
+        input = new byte[windowLength * channels];
+        Layer last = layers[layers.length - 1];
+        output = new float[last.outLength * last.outChannels];
+    }
+
+    /**
+     * Parse a model file.
+     *
+     * @throws IOException if the stream is not a valid model of a supported version
+     */
+    public static QuantizedModel load(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) throw new IOException("Not a quantized model file");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported model version " + version);
+
+        int windowLength = in.readInt();
+        int channels = in.readInt();
+        float inputScale = in.readFloat();
+        int inputZeroPoint = in.readInt();
+        checkSize(windowLength * (long) channels, "input");
+
+        int layerCount = in.readInt();
+        if (layerCount <= 0 || layerCount > MAX_LAYERS) throw new IOException("Bad layer count " + layerCount);
+
+        Layer[] layers = new Layer[layerCount];
+        int length = windowLength;
+        int width = channels;
+        int zeroPoint = inputZeroPoint;
+        for (int l = 0; l < layerCount; l++) {
+            Layer layer = new Layer();
+            layer.type = in.readByte();
+            layer.relu = in.readByte() == ACTIVATION_RELU;
+
+            int fanIn;
+            if (layer.type == LAYER_DENSE) {
+                int inputs = in.readInt();
+                int outputs = in.readInt();
+                if (inputs != length * width) {
+                    throw new IOException("Layer " + l + " expects " + inputs + " inputs, got " + length * width);
+                }
+                layer.inLength = 1;
+                layer.inChannels = inputs;
+                layer.outLength = 1;
+                layer.outChannels = outputs;
+                layer.kernel = 1;
+                layer.stride = 1;
+                fanIn = inputs;
+            } else if (layer.type == LAYER_CONV1D) {
+                layer.inChannels = in.readInt();
+                layer.outChannels = in.readInt();
+                layer.kernel = in.readInt();
+                layer.stride = in.readInt();
+                if (layer.inChannels != width || layer.kernel <= 0 || layer.stride <= 0 || layer.kernel > length) {
+                    throw new IOException("Layer " + l + " has an incompatible conv1d shape");
+                }
+                layer.inLength = length;
+                layer.outLength = (length - layer.kernel) / layer.stride + 1;
+                fanIn = layer.kernel * layer.inChannels;
+            } else {
+                throw new IOException("Unknown layer type " + layer.type);
+            }
+            checkSize(layer.outLength * (long) layer.outChannels, "layer " + l);
+            checkSize(fanIn * (long) layer.outChannels, "layer " + l + " weights");
+
+            layer.weights = new byte[fanIn * layer.outChannels];
+            in.readFully(layer.weights);
+            layer.biases = new int[layer.outChannels];
+            for (int o = 0; o < layer.outChannels; o++) {
+                // Fold the input zero point: sum((x - zp) * w) = sum(x * w) - zp * sum(w)
+                int weightSum = 0;
+                for (int k = 0; k < fanIn; k++) weightSum += layer.weights[o * fanIn + k];
+                layer.biases[o] = in.readInt() - zeroPoint * weightSum;
+            }
+            layer.multiplier = in.readInt();
+            layer.shift = in.readInt();
+            if (layer.shift < 1 || layer.shift > 62) throw new IOException("Layer " + l + " has a bad shift");
+            layer.outZeroPoint = in.readInt();
+            layer.outScale = in.readFloat();
+
+            layers[l] = layer;
+            length = layer.outLength;
+            width = layer.outChannels;
+            zeroPoint = layer.outZeroPoint;
+        }
+        return new QuantizedModel(windowLength, channels, inputScale, inputZeroPoint, layers);
+    }
+
+    private static void checkSize(long size, String what) throws IOException {
+        if (size <= 0 || size > MAX_TENSOR_SIZE) throw new IOException("Bad size for " + what + ": " + size);
+    }
+
+    public int getWindowLength() {
+        return windowLength;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getOutputSize() {
+        return output.length;
+    }
+
+    /**
+     * Quantize one input value into the model's input buffer.
+     *
+     * @param index position in the [window][channel] input tensor
+     */
+    public void setInput(int index, float value) {
+        input[index] = clamp(Math.round(value / inputScale) + inputZeroPoint);
+    }
+
+    /**
+     * Run the network on the current input buffer.
+     *
+     * @return dequantized outputs of the last layer; the array is reused by the next call
+     */
+    public float[] run() {
+        byte[] src = input;
+        byte[] dst = bufferA;
+        for (Layer layer : layers) {
+            if (layer.type == LAYER_DENSE) {
+                dense(layer, src, dst);
+            } else {
+                conv1d(layer, src, dst);
+            }
+            src = dst;
+            dst = (dst == bufferA) ? bufferB : bufferA;
+        }
+
+        Layer last = layers[layers.length - 1];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = (src[i] - last.outZeroPoint) * last.outScale;
+        }
+        return output;
+    }
+
+    private static void dense(Layer layer, byte[] src, byte[] dst) {
+        int inputs = layer.inChannels;
+        byte[] weights = layer.weights;
+        for (int o = 0, w = 0; o < layer.outChannels; o++) {
+            int acc = layer.biases[o];
+            for (int i = 0; i < inputs; i++, w++) {
+                acc += src[i] * weights[w];
+            }
+            dst[o] = requantize(layer, acc);
+        }
+    }
+
+    private static void conv1d(Layer layer, byte[] src, byte[] dst) {
+        int inCh = layer.inChannels;
+        int span = layer.kernel * inCh;     // Contiguous input run covered by one kernel position
+        byte[] weights = layer.weights;
+        for (int t = 0; t < layer.outLength; t++) {
+            int start = t * layer.stride * inCh;
+            for (int o = 0; o < layer.outChannels; o++) {
+                int acc = layer.biases[o];
+                int w = o * span;
+                for (int k = 0; k < span; k++) {
+                    acc += src[start + k] * weights[w + k];
+                }
+                dst[t * layer.outChannels + o] = requantize(layer, acc);
+            }
+        }
+    }
+
+    private static byte requantize(Layer layer, int acc) {
+        long value = (((long) acc * layer.multiplier + (1L << (layer.shift - 1))) >> layer.shift) + layer.outZeroPoint;
+        if (layer.relu && value < layer.outZeroPoint) value = layer.outZeroPoint;
+        return clamp(value);
+    }
+
+    private static byte clamp(long value) {
+        return (byte) Math.max(-128, Math.min(127, value));
+    }
+}
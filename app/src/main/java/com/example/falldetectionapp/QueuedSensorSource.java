@@ -0,0 +1,194 @@
+package com.example.falldetectionapp;
+
+/**
+ * Base for sources that read samples on their own input thread, such as a
+ * trace file or a network connection.
+ *
+ * The input thread fills batches from a {@link SampleBatchQueue} through
+ * {@link #emit} and {@link #flush}; a delivery thread hands them to the
+ * listener. The queue bounds how far input may run ahead of detection.
+ * When it is full a source either waits, which slows a file reader down and
+ * lets TCP flow control push back on the sender, or drops the new samples,
+ * which is the only option for datagrams.
+ */
+public abstract class QueuedSensorSource implements SensorSource {
+
+    private static final int QUEUE_BATCHES = 8;
+    private static final int BATCH_SIZE = 64;
+    private static final long POLL_INTERVAL = 100;     // Waiting threads check for stop this often (ms)
+
+    private final String name;
+    private final boolean blockWhenFull;
+    private final SampleBatchQueue queue = new SampleBatchQueue(QUEUE_BATCHES, BATCH_SIZE);
+
+    private Thread inputThread, deliveryThread;
+    private volatile boolean running = false;
+    private volatile boolean inputDone = false;
+    private volatile Exception error;
+
+    private SampleBatch current;                // Batch being filled by the input thread
+    private volatile long deliveredSamples = 0; // Written by the delivery thread only
+    private volatile long droppedSamples = 0;   // Written by the input thread only
+
+    /**
+     * @param name          prefix for the thread names
+     * @param blockWhenFull wait for the consumer when the queue is full instead of dropping samples
+     */
+    protected QueuedSensorSource(String name, boolean blockWhenFull) {
+        this.name = name;
+        this.blockWhenFull = blockWhenFull;
+    }
+
+    /**
+     * Read samples and pass them to {@link #emit} until the input ends or
+     * the source is stopped. Runs on the input thread.
+     */
+    protected abstract void produce() throws Exception;
+
+    /**
+     * Unblock a pending read so the input thread notices {@link #stop()},
+     * e.g. by closing a socket.
+     */
+    protected void closeInput() {
+    }
+
+    @Override
+    public synchronized void start(Listener listener) {
+        if (inputThread != null) {
+            throw new IllegalStateException("Source already started");
+        }
+        running = true;
+        inputDone = false;
+        error = null;
+        deliveryThread = new Thread(() -> deliver(listener), name + "-delivery");
+        inputThread = new Thread(this::runInput, name + "-input");
+        deliveryThread.start();
+        inputThread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread input, delivery;
+        synchronized (this) {
+            if (inputThread == null) return;
+            running = false;
+            input = inputThread;
+            delivery = deliveryThread;
+            inputThread = null;
+            deliveryThread = null;
+        }
+        closeInput();
+        input.interrupt();
+        delivery.interrupt();
+        join(input);
+        // Stopping from inside the listener must not wait for itself
+        if (delivery != Thread.currentThread()) join(delivery);
+        // Anything not yet delivered is stale by the next start
+        queue.discardPending();
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected final boolean isRunning() {
+        return running;
+    }
+
+    private void runInput() {
+        try {
+            produce();
+        } catch (InterruptedException e) {
+            // Stopped
+        } catch (Exception e) {
+            if (running) error = e;
+        } finally {
+            // Samples read before the end or an error are still delivered
+            if (current != null) {
+                if (current.count > 0) {
+                    queue.publish(current);
+                } else {
+                    queue.recycle(current);
+                }
+                current = null;
+            }
+            inputDone = true;
+        }
+    }
+
+    private void deliver(Listener listener) {
+        try {
+            while (running) {
+                SampleBatch batch = queue.take(POLL_INTERVAL);
+                if (batch == null) {
+                    if (inputDone && queue.pending() == 0) break;
+                    continue;
+                }
+                try {
+                    listener.onSamples(batch);
+                    deliveredSamples += batch.count;
+                } finally {
+                    queue.recycle(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+        if (running) listener.onSourceEnded(error);
+    }
+
+    /**
+     * Add one sample. Called from {@link #produce()}; a full batch is handed
+     * to the delivery thread straight away.
+     */
+    protected final void emit(long timestampMs, float ax, float ay, float az,
+                              float gx, float gy, float gz) throws InterruptedException {
+        if (current == null && (current = nextBatch()) == null) {
+            droppedSamples++;
+            return;
+        }
+        current.add(timestampMs, ax, ay, az, gx, gy, gz);
+        if (current.isFull()) {
+            queue.publish(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Hand over a partly filled batch, e.g. before waiting for more input,
+     * so samples are not held back.
+     */
+    protected final void flush() {
+        if (current != null && current.count > 0) {
+            queue.publish(current);
+            current = null;
+        }
+    }
+
+    private SampleBatch nextBatch() throws InterruptedException {
+        if (!blockWhenFull) return queue.obtain(0);
+        SampleBatch batch;
+        while ((batch = queue.obtain(POLL_INTERVAL)) == null) {
+            if (!running) throw new InterruptedException();
+        }
+        return batch;
+    }
+
+    /**
+     * @return samples handed to the listener so far
+     */
+    public long getDeliveredSamples() {
+        return deliveredSamples;
+    }
+
+    /**
+     * @return samples dropped because the listener fell behind
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+}
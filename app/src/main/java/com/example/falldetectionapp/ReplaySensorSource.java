@@ -0,0 +1,87 @@
+package com.example.falldetectionapp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Replays a recorded sensor trace from a text file.
+ *
+ * One sample per line, comma separated:
+ * <pre>
+ *   timestamp_ms,ax,ay,az,gx,gy,gz
+ * </pre>
+ * Blank lines and lines starting with {@code #} are skipped. Timestamps are
+ * delivered as recorded. At speed 0 the trace is read as fast as detection
+ * keeps up; otherwise it is paced against the wall clock, e.g. 1 for real
+ * time or 10 for ten times faster.
+ */
+public class ReplaySensorSource extends QueuedSensorSource {
+
+    private final File file;
+    private final float speed;
+
+    /**
+     * @param speed playback speed relative to real time, or 0 for as fast as possible
+     */
+    public ReplaySensorSource(File file, float speed) {
+        super("replay", true);
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative");
+        }
+        this.file = file;
+        this.speed = speed;
+    }
+
+    @Override
+    protected void produce() throws IOException, InterruptedException {
+        long firstTimestamp = Long.MIN_VALUE;
+        long startNanos = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while (isRunning() && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.charAt(0) == '#') continue;
+
+                int c1 = line.indexOf(',');
+                int c2 = line.indexOf(',', c1 + 1);
+                int c3 = line.indexOf(',', c2 + 1);
+                int c4 = line.indexOf(',', c3 + 1);
+                int c5 = line.indexOf(',', c4 + 1);
+                int c6 = line.indexOf(',', c5 + 1);
+                if (c1 < 0 || c2 < 0 || c3 < 0 || c4 < 0 || c5 < 0 || c6 < 0) {
+                    throw new IOException("Expected 7 fields on line " + lineNumber);
+                }
+                long timestamp;
+                float ax, ay, az, gx, gy, gz;
+                try {
+                    timestamp = Long.parseLong(line.substring(0, c1).trim());
+                    ax = Float.parseFloat(line.substring(c1 + 1, c2));
+                    ay = Float.parseFloat(line.substring(c2 + 1, c3));
+                    az = Float.parseFloat(line.substring(c3 + 1, c4));
+                    gx = Float.parseFloat(line.substring(c4 + 1, c5));
+                    gy = Float.parseFloat(line.substring(c5 + 1, c6));
+                    gz = Float.parseFloat(line.substring(c6 + 1));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad number on line " + lineNumber, e);
+                }
+
+                if (speed > 0) {
+                    if (firstTimestamp == Long.MIN_VALUE) {
+                        firstTimestamp = timestamp;
+                        startNanos = System.nanoTime();
+                    }
+                    long dueNanos = startNanos + (long) ((timestamp - firstTimestamp) * 1e6 / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 1000000) {
+                        flush();    // Deliver what is due before waiting
+                        Thread.sleep(waitNanos / 1000000);
+                    }
+                }
+                emit(timestamp, ax, ay, az, gx, gy, gz);
+            }
+        }
+    }
+}
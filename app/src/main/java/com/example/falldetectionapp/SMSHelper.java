@@ -6,7 +6,6 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.telephony.SmsManager;
@@ -19,38 +18,54 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
 
+/**
+ * Sends the emergency SMS. A single instance is shared by the whole
+ * process; its delivery-report receivers are registered on the application
+ * context the first time a message is sent and stay for the process
+ * lifetime.
+ */
 public class SMSHelper {
 
+    private static volatile SMSHelper instance;
+
     private final Context context;
-    private final SharedPreferences prefs;
+    private final SettingsStore settings;
     private static final String TAG = "SMSHelper";
 
-    private static final String PREF_NAME = "FallDetectionPrefs";
-    private static final String CONTACT_KEY = "emergency_contact";
-    private static final String SMS_ENABLED_KEY = "sms_enabled";
-
     // Define your SMS action strings here for PendingIntent
     private static final String SMS_SENT_ACTION = "SMS_SENT";
     private static final String SMS_DELIVERED_ACTION = "SMS_DELIVERED";
 
     private boolean receiversRegistered = false;
-    private boolean hasTriedSimpleMessage = false; // Track if we've already tried simple message
 
-    public SMSHelper(Context context) {
-        this.context = context;
-        this.prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        registerReceivers();
+    private SMSHelper(Context context) {
+        this.context = context.getApplicationContext();
+        this.settings = SettingsStore.get(context);
+    }
+
+    public static SMSHelper get(Context context) {
+        SMSHelper helper = instance;
+        if (helper == null) {
+            synchronized (SMSHelper.class) {
+                helper = instance;
+                if (helper == null) {
+                    helper = new SMSHelper(context);
+                    instance = helper;
+                }
+            }
+        }
+        return helper;
     }
 
     // Save emergency contact phone number
     public void saveContact(String phoneNumber) {
-        prefs.edit().putString(CONTACT_KEY, phoneNumber).apply();
+        settings.setContact(phoneNumber);
         Log.d(TAG, "Emergency contact saved");
     }
 
     // Retrieve saved contact phone number
     public String getContact() {
-        return prefs.getString(CONTACT_KEY, "");
+        return settings.getContact();
     }
 
     // Check if contact has been set
@@ -60,12 +75,12 @@ public class SMSHelper {
 
     // Check if SMS alerts are enabled
     public boolean isSMSEnabled() {
-        return prefs.getBoolean(SMS_ENABLED_KEY, true);
+        return settings.isSmsEnabled();
     }
 
     // Enable or disable SMS alerts
     public void setSMSEnabled(boolean enabled) {
-        prefs.edit().putBoolean(SMS_ENABLED_KEY, enabled).apply();
+        settings.setSmsEnabled(enabled);
     }
 
     // Check if SMS permission is granted
@@ -74,84 +89,83 @@ public class SMSHelper {
                 == PackageManager.PERMISSION_GRANTED;
     }
 
-    // Send fallback SMS (no location available)
-    public void sendAlert() {
-        sendAlert(0, 0, "Location unavailable");
+    // Send SMS with location if available; alerts go through AlertCoordinator, which calls this.
+    // Returns false if the message could not be handed to the SMS service.
+    boolean sendAlert(int alertId, boolean test, boolean hasLocation, double latitude, double longitude,
+                      String address) {
+        return canSend() && sendSMSMessage(alertId, test, hasLocation, latitude, longitude, address, false);
     }
 
-    // Send SMS with location if available
-    public void sendAlert(double latitude, double longitude, String address) {
-        Log.d(TAG, "sendAlert called");
-        hasTriedSimpleMessage = false; // Reset the flag for new alert
+    // Send the short fallback message for an alert whose detailed message failed
+    boolean sendSimpleAlert(int alertId, boolean test) {
+        return canSend() && sendSMSMessage(alertId, test, false, 0, 0, null, true);
+    }
 
+    private boolean canSend() {
         String contact = getContact();
-        Log.d(TAG, "Emergency contact: " + (contact.isEmpty() ? "NOT SET" : "SET - " + maskPhoneNumber(contact)));
-
         if (contact.isEmpty()) {
             String message = "No emergency contact set";
             Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
             Log.e(TAG, message);
-            return;
+            return false;
         }
 
         if (!isSMSEnabled()) {
             String message = "SMS alerts are disabled";
             Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
             Log.w(TAG, message);
-            return;
+            return false;
         }
 
         if (!hasSMSPermission()) {
             String message = "SMS permission not granted";
             Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
             Log.e(TAG, message);
-            return;
+            return false;
         }
-
-        sendSMSMessage(latitude, longitude, address, false);
+        return true;
     }
 
     // Internal method to send SMS with retry logic
-    private void sendSMSMessage(double latitude, double longitude, String address, boolean useSimpleMessage) {
+    private boolean sendSMSMessage(int alertId, boolean test, boolean hasLocation, double latitude,
+                                   double longitude, String address, boolean useSimpleMessage) {
+        registerReceivers();   // Needed only once something has been sent
         try {
             SmsManager smsManager = SmsManager.getDefault();
             String message;
 
             if (useSimpleMessage) {
                 message = buildSimpleEmergencyMessage();
-                Log.d(TAG, "Sending simple emergency message");
             } else {
-                message = buildEmergencyMessage(latitude, longitude, address);
-                Log.d(TAG, "Sending detailed emergency message");
+                message = buildEmergencyMessage(hasLocation, latitude, longitude, address);
             }
+            EventLog.log(useSimpleMessage ? EventLog.Event.SMS_SIMPLE_SEND : EventLog.Event.SMS_SEND,
+                    alertId, message.length());
 
             String contact = getContact();
-            Log.d(TAG, "Attempting to send SMS to: " + maskPhoneNumber(contact));
-            Log.d(TAG, "Message length: " + message.length());
-            Log.d(TAG, "Message content: " + message);
 
-            // Prepare PendingIntents for sent and delivered status
+            // Prepare PendingIntents for sent and delivered status; a request code per message
+            // keeps messages in flight at the same time from overwriting each other's extras
+            int requestCode = alertId * 2 + (useSimpleMessage ? 1 : 0);
             PendingIntent sentPI = PendingIntent.getBroadcast(
                     context,
-                    0,
+                    requestCode,
                     new Intent(SMS_SENT_ACTION)
-                            .putExtra("latitude", latitude)
-                            .putExtra("longitude", longitude)
-                            .putExtra("address", address)
+                            .putExtra("alertId", alertId)
+                            .putExtra("isTest", test)
                             .putExtra("isSimpleMessage", useSimpleMessage),
                     PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
             );
 
             PendingIntent deliveredPI = PendingIntent.getBroadcast(
                     context,
-                    0,
-                    new Intent(SMS_DELIVERED_ACTION),
+                    requestCode,
+                    new Intent(SMS_DELIVERED_ACTION).putExtra("alertId", alertId),
                     PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT
             );
 
             // If message is long, split and send multipart text message
             if (message.length() > 160) {
-                Log.d(TAG, "Sending multipart SMS");
                 ArrayList<String> messageParts = smsManager.divideMessage(message);
                 ArrayList<PendingIntent> sentIntents = new ArrayList<>();
                 ArrayList<PendingIntent> deliveredIntents = new ArrayList<>();
@@ -164,14 +178,13 @@ public class SMSHelper {
 
                 smsManager.sendMultipartTextMessage(contact, null, messageParts, sentIntents, deliveredIntents);
             } else {
-                Log.d(TAG, "Sending single SMS");
                 // Send single part message
                 smsManager.sendTextMessage(contact, null, message, sentPI, deliveredPI);
             }
 
             String successMessage = "Emergency SMS sent to " + maskPhoneNumber(contact);
             Toast.makeText(context, successMessage, Toast.LENGTH_SHORT).show();
-            Log.d(TAG, successMessage);
+            return true;
 
         } catch (SecurityException e) {
             String errorMessage = "SMS permission denied: " + e.getMessage();
@@ -182,10 +195,11 @@ public class SMSHelper {
             Toast.makeText(context, errorMessage, Toast.LENGTH_LONG).show();
             Log.e(TAG, errorMessage, e);
         }
+        return false;
     }
 
     // Compose detailed emergency message
-    private String buildEmergencyMessage(double latitude, double longitude, String address) {
+    private String buildEmergencyMessage(boolean hasLocation, double latitude, double longitude, String address) {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
         String timestamp = sdf.format(new Date());
 
@@ -193,7 +207,7 @@ public class SMSHelper {
         message.append("EMERGENCY: Fall detected!\n");
         message.append("\nTime: ").append(timestamp).append("\n");
 
-        if (latitude != 0 && longitude != 0 && !"Location unavailable".equalsIgnoreCase(address)) {
+        if (hasLocation) {
             message.append("Location: ")
                     .append(String.format(Locale.getDefault(), "%.6f, %.6f", latitude, longitude))
                     .append("\nAddress: ").append(address)
@@ -228,28 +242,24 @@ public class SMSHelper {
     private final BroadcastReceiver smsSentReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            double latitude = intent.getDoubleExtra("latitude", 0);
-            double longitude = intent.getDoubleExtra("longitude", 0);
-            String address = intent.getStringExtra("address");
+            int alertId = intent.getIntExtra("alertId", 0);
+            boolean isTest = intent.getBooleanExtra("isTest", false);
             boolean isSimpleMessage = intent.getBooleanExtra("isSimpleMessage", false);
+            EventLog.log(EventLog.Event.SMS_SENT_RESULT, alertId, getResultCode());
 
             switch (getResultCode()) {
                 case android.app.Activity.RESULT_OK:
                     String successMsg = "SMS sent successfully";
                     Toast.makeText(context, successMsg, Toast.LENGTH_SHORT).show();
-                    Log.d(TAG, successMsg);
-                    hasTriedSimpleMessage = false; // Reset flag on success
                     break;
                 case SmsManager.RESULT_ERROR_GENERIC_FAILURE:
                     String genericError = "SMS failed: Generic failure";
                     Log.e(TAG, genericError);
 
-                    // If this was a detailed message and we haven't tried simple message yet, try simple message
-                    if (!isSimpleMessage && !hasTriedSimpleMessage) {
-                        hasTriedSimpleMessage = true;
-                        Log.d(TAG, "Retrying with simple message");
-                        Toast.makeText(context, "Retrying with simple message...", Toast.LENGTH_SHORT).show();
-                        sendSMSMessage(latitude, longitude, address, true);
+                    // A failed detailed message is retried once as a simple one; the coordinator
+                    // tracks that per alert, so concurrent alerts do not share the retry
+                    if (!isSimpleMessage) {
+                        AlertCoordinator.get(context).onSendFailed(alertId, isTest);
                     } else {
                         Toast.makeText(context, genericError, Toast.LENGTH_SHORT).show();
                     }
@@ -272,7 +282,7 @@ public class SMSHelper {
                 default:
                     String unknownError = "SMS failed: Unknown error (" + getResultCode() + ")";
                     Toast.makeText(context, unknownError, Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, unknownError);
+                    Log.e(TAG, "SMS failed: Unknown error");     // The code is in the event log
                     break;
             }
         }
@@ -282,20 +292,17 @@ public class SMSHelper {
     private final BroadcastReceiver smsDeliveredReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
+            EventLog.log(EventLog.Event.SMS_DELIVERY_RESULT, intent.getIntExtra("alertId", 0), getResultCode());
             switch (getResultCode()) {
                 case android.app.Activity.RESULT_OK:
-                    String deliveredMsg = "SMS delivered";
-                    Toast.makeText(context, deliveredMsg, Toast.LENGTH_SHORT).show();
-                    Log.d(TAG, deliveredMsg);
+                    Toast.makeText(context, "SMS delivered", Toast.LENGTH_SHORT).show();
                     break;
                 case android.app.Activity.RESULT_CANCELED:
-                    String notDeliveredMsg = "SMS not delivered";
-                    Toast.makeText(context, notDeliveredMsg, Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, notDeliveredMsg);
+                    Toast.makeText(context, "SMS not delivered", Toast.LENGTH_SHORT).show();
+                    Log.e(TAG, "SMS not delivered");
                     break;
                 default:
-                    String unknownDeliveryMsg = "SMS delivery status unknown (" + getResultCode() + ")";
-                    Log.w(TAG, unknownDeliveryMsg);
+                    Log.w(TAG, "SMS delivery status unknown");
                     break;
             }
         }
@@ -326,24 +333,10 @@ public class SMSHelper {
         }
     }
 
-    // Unregister broadcast receivers
-    public void unregisterReceivers() {
-        if (receiversRegistered) {
-            try {
-                context.unregisterReceiver(smsSentReceiver);
-                context.unregisterReceiver(smsDeliveredReceiver);
-                receiversRegistered = false;
-                Log.d(TAG, "SMS receivers unregistered");
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering SMS receivers", e);
-            }
-        }
-    }
-
     // Test method to manually send SMS
     public void testSMS() {
         Log.d(TAG, "Testing SMS manually");
         Toast.makeText(context, "Testing SMS...", Toast.LENGTH_SHORT).show();
-        sendAlert(0, 0, "Test location");
+        AlertCoordinator.get(context).sendTest();
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.example.falldetectionapp;
+
+/**
+ * Structure-of-arrays batch of paired accelerometer and gyroscope samples.
+ *
+ * Each index holds one accelerometer sample together with the gyroscope
+ * reading for the same moment. The arrays are allocated once
+ * and reused, so collecting a sensor flush never allocates.
+ */
+public class SampleBatch {
+
+    public final long[] timestamps;     // Sample times in milliseconds
+    public final float[] ax, ay, az;    // Accelerometer (m/s^2)
+    public final float[] gx, gy, gz;    // Gyroscope (rad/s)
+    public int count = 0;
+
+    public SampleBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        timestamps = new long[capacity];
+        ax = new float[capacity];
+        ay = new float[capacity];
+        az = new float[capacity];
+        gx = new float[capacity];
+        gy = new float[capacity];
+        gz = new float[capacity];
+    }
+
+    /**
+     * Append one paired sample.
+     *
+     * @param accel accelerometer X, Y, Z values
+     * @param gyro  gyroscope X, Y, Z values
+     * @return false if the batch is already full and the sample was dropped
+     */
+    public boolean add(long timestampMs, float[] accel, float[] gyro) {
+        if (count == timestamps.length) return false;
+        timestamps[count] = timestampMs;
+        ax[count] = accel[0];
+        ay[count] = accel[1];
+        az[count] = accel[2];
+        gx[count] = gyro[0];
+        gy[count] = gyro[1];
+        gz[count] = gyro[2];
+        count++;
+        return true;
+    }
+
+    /**
+     * Append one paired sample from individual values.
+     *
+     * @return false if the batch is already full and the sample was dropped
+     */
+    public boolean add(long timestampMs, float accelX, float accelY, float accelZ,
+                       float gyroX, float gyroY, float gyroZ) {
+        if (count == timestamps.length) return false;
+        timestamps[count] = timestampMs;
+        ax[count] = accelX;
+        ay[count] = accelY;
+        az[count] = accelZ;
+        gx[count] = gyroX;
+        gy[count] = gyroY;
+        gz[count] = gyroZ;
+        count++;
+        return true;
+    }
+
+    public boolean isFull() {
+        return count == timestamps.length;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.falldetectionapp;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded hand-off of {@link SampleBatch}es from a producer thread to a
+ * consumer thread.
+ *
+ * A fixed pool of batches is allocated up front and circulates between the
+ * producer (which fills them) and the consumer (which drains and recycles
+ * them). When every batch is waiting for the consumer, {@link #obtain}
+ * returns nothing, which is where a producer applies backpressure: it
+ * either waits or drops samples. Nothing is allocated per batch.
+ */
+public class SampleBatchQueue {
+
+    private final ArrayBlockingQueue<SampleBatch> free;
+    private final ArrayBlockingQueue<SampleBatch> filled;
+
+    /**
+     * @param batches       number of batches in circulation
+     * @param batchCapacity samples per batch
+     */
+    public SampleBatchQueue(int batches, int batchCapacity) {
+        if (batches <= 0) {
+            throw new IllegalArgumentException("Need at least one batch");
+        }
+        free = new ArrayBlockingQueue<>(batches);
+        filled = new ArrayBlockingQueue<>(batches);
+        for (int i = 0; i < batches; i++) {
+            free.add(new SampleBatch(batchCapacity));
+        }
+    }
+
+    /**
+     * Producer side: get an empty batch.
+     *
+     * @param timeoutMs how long to wait if all batches are in use, 0 to not wait
+     * @return an empty batch, or null if none became free in time
+     */
+    public SampleBatch obtain(long timeoutMs) throws InterruptedException {
+        return timeoutMs <= 0 ? free.poll() : free.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Producer side: hand a filled batch to the consumer.
+     */
+    public void publish(SampleBatch batch) {
+        filled.add(batch);
+    }
+
+    /**
+     * Consumer side: get the oldest filled batch.
+     *
+     * @return a batch to drain and then {@link #recycle}, or null on timeout
+     */
+    public SampleBatch take(long timeoutMs) throws InterruptedException {
+        return filled.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Consumer side: return a drained batch to the pool.
+     */
+    public void recycle(SampleBatch batch) {
+        batch.clear();
+        free.add(batch);
+    }
+
+    /**
+     * Return every filled batch to the pool unread, e.g. when the source
+     * stops, so a restart does not deliver stale samples.
+     *
+     * @return number of batches discarded
+     */
+    public int discardPending() {
+        int discarded = 0;
+        SampleBatch batch;
+        while ((batch = filled.poll()) != null) {
+            recycle(batch);
+            discarded++;
+        }
+        return discarded;
+    }
+
+    /**
+     * @return number of filled batches waiting for the consumer
+     */
+    public int pending() {
+        return filled.size();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.falldetectionapp;
+
+/**
+ * Watches one sensor stream for the failures that make fall detection go
+ * quiet without an error: no data, a lower rate than requested, long gaps,
+ * timestamps running backwards, values pinned at the range limit, and values
+ * that stop changing.
+ *
+ * {@link #onSample} does a handful of comparisons and counter updates, so it
+ * is cheap enough for every sample. The counters are evaluated and cleared
+ * once per {@link #check} call, which the owner makes on a timer.
+ */
+public class SensorHealthMonitor {
+
+    public enum Status {
+        OK,
+        STARTING,               // Just (re)started, no verdict yet
+        STALLED,                // Nothing delivered for too long
+        STUCK,                  // Identical readings for too long
+        IRREGULAR_TIMESTAMPS,   // Timestamps went backwards or gaps are frequent
+        SLOW,                   // Delivered rate well below the requested one
+        SATURATED               // Readings are pinned at the sensor's range limit
+    }
+
+    private static final long STALL_TIMEOUT = 3000;         // No delivery for 3 s
+    private static final float GAP_PERIODS = 5f;            // A gap is 5 missed sample periods
+    private static final float MAX_GAP_FRACTION = 0.1f;     // Tolerated share of gaps per check
+    private static final float MIN_RATE_FRACTION = 0.6f;    // Rate below 60% of requested is slow
+    private static final float CLIP_LEVEL = 0.98f;          // Share of max range counted as clipped
+    private static final float MAX_CLIP_FRACTION = 0.25f;   // Tolerated share of clipped samples
+    private static final long STUCK_TIME = 5000;            // Real sensors always show some noise within 5 s
+
+    private final float expectedRateHz;
+    private final long gapLimitMs;
+    private final float clipLimit;          // 0 disables the clipping check
+
+    private long startedAt = 0;             // elapsedRealtime of the last reset
+    private long lastDelivery = -1;         // elapsedRealtime of the last delivery
+
+    // Per-sample state
+    private long lastTimestamp = Long.MIN_VALUE;
+    private float lastX, lastY, lastZ;
+    private long unchangedSince = -1;       // Sensor time the readings stopped changing
+
+    // Counters for the current check window
+    private int samples, gaps, regressions, clipped;
+    private long firstTimestamp, newestTimestamp;
+    private boolean stuck;
+
+    // Last evaluation, for display and logging
+    private float measuredRateHz = 0;
+
+    /**
+     * @param samplingPeriodUs requested sampling period
+     * @param maxRange         sensor range from {@code Sensor.getMaximumRange()}, 0 if unknown
+     */
+    public SensorHealthMonitor(int samplingPeriodUs, float maxRange) {
+        expectedRateHz = 1e6f / samplingPeriodUs;
+        gapLimitMs = Math.max(1, (long) (GAP_PERIODS * samplingPeriodUs / 1000));
+        clipLimit = maxRange > 0 ? maxRange * CLIP_LEVEL : 0;
+    }
+
+    /**
+     * Forget all history, e.g. after the listener was re-registered.
+     */
+    public void reset(long nowElapsedMs) {
+        startedAt = nowElapsedMs;
+        lastDelivery = -1;
+        lastTimestamp = Long.MIN_VALUE;
+        unchangedSince = -1;
+        clearWindow();
+    }
+
+    private void clearWindow() {
+        samples = gaps = regressions = clipped = 0;
+        stuck = false;
+    }
+
+    /**
+     * Note that the stream delivered data (once per event or per batch).
+     */
+    public void onDelivery(long nowElapsedMs) {
+        lastDelivery = nowElapsedMs;
+    }
+
+    /**
+     * Account for one sample.
+     *
+     * @param timestampMs sensor timestamp in milliseconds
+     */
+    public void onSample(long timestampMs, float x, float y, float z) {
+        if (samples == 0) firstTimestamp = timestampMs;
+        samples++;
+
+        if (lastTimestamp != Long.MIN_VALUE) {
+            long delta = timestampMs - lastTimestamp;
+            if (delta <= 0) {
+                regressions++;
+            } else if (delta > gapLimitMs) {
+                gaps++;
+            }
+        }
+        if (timestampMs > lastTimestamp) {
+            lastTimestamp = timestampMs;
+            newestTimestamp = timestampMs;
+        }
+
+        if (clipLimit > 0 && (Math.abs(x) >= clipLimit || Math.abs(y) >= clipLimit || Math.abs(z) >= clipLimit)) {
+            clipped++;
+        }
+
+        if (x == lastX && y == lastY && z == lastZ) {
+            if (unchangedSince < 0) unchangedSince = timestampMs;
+            if (timestampMs - unchangedSince >= STUCK_TIME) stuck = true;
+        } else {
+            unchangedSince = -1;
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+        }
+    }
+
+    /**
+     * Evaluate the samples seen since the previous check and start a new window.
+     */
+    public Status check(long nowElapsedMs) {
+        try {
+            long sinceDelivery = nowElapsedMs - (lastDelivery >= 0 ? lastDelivery : startedAt);
+            if (sinceDelivery > STALL_TIMEOUT) {
+                measuredRateHz = 0;
+                return Status.STALLED;
+            }
+            if (samples < 2) return Status.STARTING;
+
+            long span = newestTimestamp - firstTimestamp;
+            measuredRateHz = span > 0 ? (samples - 1) * 1000f / span : 0;
+
+            if (stuck) return Status.STUCK;
+            if (regressions > 0 || gaps > samples * MAX_GAP_FRACTION) return Status.IRREGULAR_TIMESTAMPS;
+            if (measuredRateHz < expectedRateHz * MIN_RATE_FRACTION) return Status.SLOW;
+            if (clipped > samples * MAX_CLIP_FRACTION) return Status.SATURATED;
+            return Status.OK;
+        } finally {
+            clearWindow();
+        }
+    }
+
+    public float getMeasuredRateHz() {
+        return measuredRateHz;
+    }
+
+    public float getExpectedRateHz() {
+        return expectedRateHz;
+    }
+}
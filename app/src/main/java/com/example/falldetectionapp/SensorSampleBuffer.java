@@ -0,0 +1,146 @@
+package com.example.falldetectionapp;
+
+/**
+ * Fixed-size ring buffer of recent three-axis sensor samples.
+ *
+ * Samples are stored as parallel primitive arrays so that adding a sample
+ * never allocates; once full, the oldest sample is overwritten.
+ */
+public class SensorSampleBuffer {
+
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+
+    private int head = 0;   // Index the next sample will be written to
+    private int size = 0;
+
+    public SensorSampleBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        timestamps = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        zs = new float[capacity];
+    }
+
+    /**
+     * Append a sample, overwriting the oldest one when the buffer is full.
+     *
+     * @param timestampMs sample time in milliseconds
+     */
+    public void add(long timestampMs, float x, float y, float z) {
+        timestamps[head] = timestampMs;
+        xs[head] = x;
+        ys[head] = y;
+        zs[head] = z;
+        head = (head + 1) % timestamps.length;
+        if (size < timestamps.length) size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Average the samples whose timestamps fall within [fromMs, toMs).
+     *
+     * @param out receives the mean X, Y, Z values; left untouched if no sample matches
+     * @return number of samples averaged
+     */
+    public int mean(long fromMs, long toMs, float[] out) {
+        float sumX = 0, sumY = 0, sumZ = 0;
+        int count = 0;
+        int index = (head - size + timestamps.length) % timestamps.length;
+        for (int i = 0; i < size; i++) {
+            long t = timestamps[index];
+            if (t >= fromMs && t < toMs) {
+                sumX += xs[index];
+                sumY += ys[index];
+                sumZ += zs[index];
+                count++;
+            }
+            index = (index + 1) % timestamps.length;
+        }
+        if (count > 0) {
+            out[0] = sumX / count;
+            out[1] = sumY / count;
+            out[2] = sumZ / count;
+        }
+        return count;
+    }
+
+    /**
+     * Copy the samples whose timestamps fall within [fromMs, toMs), oldest
+     * first, stopping when the output arrays are full.
+     *
+     * @return number of samples copied
+     */
+    public int copy(long fromMs, long toMs, long[] timestampsOut, float[] xOut, float[] yOut, float[] zOut) {
+        int count = 0;
+        int index = (head - size + timestamps.length) % timestamps.length;
+        for (int i = 0; i < size && count < timestampsOut.length; i++) {
+            long t = timestamps[index];
+            if (t >= fromMs && t < toMs) {
+                timestampsOut[count] = t;
+                xOut[count] = xs[index];
+                yOut[count] = ys[index];
+                zOut[count] = zs[index];
+                count++;
+            }
+            index = (index + 1) % timestamps.length;
+        }
+        return count;
+    }
+
+    /**
+     * Resample the buffer at the given times, interpolating linearly between
+     * the two samples around each time. Times before the oldest or after the
+     * newest sample take that sample's values.
+     *
+     * @param times ascending times to resample at
+     * @return false if the buffer is empty and the outputs were left untouched
+     */
+    public boolean interpolate(long[] times, int count, float[] xOut, float[] yOut, float[] zOut) {
+        if (size == 0) return false;
+        int capacity = timestamps.length;
+        int oldest = (head - size + capacity) % capacity;
+        int j = 0;      // Position after the oldest sample of the last sample at or before the time
+        for (int i = 0; i < count; i++) {
+            long t = times[i];
+            while (j < size - 1 && timestamps[(oldest + j + 1) % capacity] <= t) j++;
+            int a = (oldest + j) % capacity;
+            if (j == size - 1 || timestamps[a] >= t) {
+                xOut[i] = xs[a];
+                yOut[i] = ys[a];
+                zOut[i] = zs[a];
+            } else {
+                int b = (a + 1) % capacity;
+                float f = (float) (t - timestamps[a]) / (timestamps[b] - timestamps[a]);
+                xOut[i] = xs[a] + f * (xs[b] - xs[a]);
+                yOut[i] = ys[a] + f * (ys[b] - ys[a]);
+                zOut[i] = zs[a] + f * (zs[b] - zs[a]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return timestamp of the oldest buffered sample, or -1 if the buffer is empty
+     */
+    public long oldestTimestamp() {
+        if (size == 0) return -1;
+        return timestamps[(head - size + timestamps.length) % timestamps.length];
+    }
+}
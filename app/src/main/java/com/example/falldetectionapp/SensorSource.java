@@ -0,0 +1,37 @@
+package com.example.falldetectionapp;
+
+/**
+ * A stream of paired accelerometer and gyroscope samples feeding the
+ * detection pipeline.
+ *
+ * Samples arrive in {@link SampleBatch}es, always on one delivery thread per
+ * source. A batch belongs to the source and is reused once the listener
+ * returns, so a listener that needs samples later must copy them.
+ */
+public interface SensorSource {
+
+    interface Listener {
+        /**
+         * One batch of samples in timestamp order, valid only during the call.
+         */
+        void onSamples(SampleBatch batch);
+
+        /**
+         * The source stopped by itself: a replay ran out, a connection was
+         * closed or reading failed. Not called after {@link #stop()}.
+         *
+         * @param error cause of the failure, or null at a normal end of data
+         */
+        void onSourceEnded(Exception error);
+    }
+
+    /**
+     * Start delivering samples to the listener.
+     */
+    void start(Listener listener);
+
+    /**
+     * Stop delivering. Once this returns the listener is not called again.
+     */
+    void stop();
+}
@@ -1,29 +1,34 @@
 package com.example.falldetectionapp;
 
-import android.content.SharedPreferences;
+import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.SeekBar;
 import android.widget.Switch;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 public class SettingsActivity extends AppCompatActivity {
 
+    private static final String TAG = "SettingsActivity";
+
     private SeekBar sensitivitySeekBar;
     private Switch smsEnabledSwitch;        // Sound Alerts switch (sms_enabled)
     private Switch vibrationEnabledSwitch;  // Vibration Alerts switch
     private TextView sensitivityText;
     private Button backButton;
-    private SharedPreferences prefs;
+    private Button powerReportButton;
+    private SettingsStore settings;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_settings);
 
-        prefs = getSharedPreferences("FallDetectionPrefs", MODE_PRIVATE);
+        settings = SettingsStore.get(this);
 
         initViews();
         loadSettings();
@@ -36,12 +41,13 @@ public class SettingsActivity extends AppCompatActivity {
         smsEnabledSwitch = findViewById(R.id.soundEnabledSwitch);
         vibrationEnabledSwitch = findViewById(R.id.vibrationEnabledSwitch);
         backButton = findViewById(R.id.backButton);
+        powerReportButton = findViewById(R.id.powerReportButton);
     }
 
     private void loadSettings() {
-        int sensitivity = prefs.getInt("sensitivity", 50);
-        boolean smsEnabled = prefs.getBoolean("sms_enabled", true);
-        boolean vibrationEnabled = prefs.getBoolean("vibration_enabled", true);
+        int sensitivity = settings.getSensitivity();
+        boolean smsEnabled = settings.isSmsEnabled();
+        boolean vibrationEnabled = settings.isVibrationEnabled();
 
         sensitivitySeekBar.setProgress(sensitivity);
         smsEnabledSwitch.setChecked(smsEnabled);
@@ -63,14 +69,15 @@ public class SettingsActivity extends AppCompatActivity {
         });
 
         smsEnabledSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            prefs.edit().putBoolean("sms_enabled", isChecked).apply();
+            settings.setSmsEnabled(isChecked);
         });
 
         vibrationEnabledSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            prefs.edit().putBoolean("vibration_enabled", isChecked).apply();
+            settings.setVibrationEnabled(isChecked);
         });
 
         backButton.setOnClickListener(v -> finish());
+        powerReportButton.setOnClickListener(v -> exportPowerReport());
     }
 
     private void updateSensitivityText(int progress) {
@@ -86,7 +93,37 @@ public class SettingsActivity extends AppCompatActivity {
         sensitivityText.setText("Sensitivity: " + level + " (" + progress + "%)");
     }
 
+    // Saves the report to the app's files directory and offers it to any app that takes text
+    private void exportPowerReport() {
+        PowerStats.get(this).exportReport(report -> runOnUiThread(() -> sharePowerReport(report)));
+    }
+
+    private void sharePowerReport(String report) {
+        if (isFinishing()) return;
+        if (report == null) {
+            Toast.makeText(this, "Unable to save power report", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        try {
+            Intent share = new Intent(Intent.ACTION_SEND);
+            share.setType("text/plain");
+            share.putExtra(Intent.EXTRA_SUBJECT, "Fall Detection power report");
+            share.putExtra(Intent.EXTRA_TEXT, report + "\n" + StartupTrace.getReport() + "\n" + EventLog.getReport());
+            startActivity(Intent.createChooser(share, "Export power report"));
+        } catch (Exception e) {
+            Toast.makeText(this, "No app available to export the report", Toast.LENGTH_SHORT).show();
+            Log.e(TAG, "Power report export failed", e);
+        }
+    }
+
+    // Updates memory at once; the disk write is coalesced across SeekBar ticks
     private void saveSensitivity(int sensitivity) {
-        prefs.edit().putInt("sensitivity", sensitivity).apply();
+        settings.setSensitivity(sensitivity);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        settings.flush();
     }
 }
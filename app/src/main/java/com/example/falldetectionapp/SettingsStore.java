@@ -0,0 +1,212 @@
+package com.example.falldetectionapp;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Process-wide in-memory copy of the user settings and permission state.
+ *
+ * Hot paths (sensor callbacks, alert handling) read plain volatile fields
+ * instead of hitting SharedPreferences or making permission binder calls.
+ * The copy is kept current by a SharedPreferences change listener, and the
+ * permission state is refreshed explicitly when it can change (permission
+ * results, returning to the foreground). Writes update memory immediately
+ * and are coalesced into a single {@code apply()} shortly afterwards; the
+ * emergency contact, saved by an explicit click, is written at once.
+ */
+public class SettingsStore implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+    public static final String PREF_NAME = "FallDetectionPrefs";
+    public static final String CONTACT_KEY = "emergency_contact";
+    public static final String SMS_ENABLED_KEY = "sms_enabled";
+    public static final String SOUND_ENABLED_KEY = "sound_enabled";
+    public static final String VIBRATION_ENABLED_KEY = "vibration_enabled";
+    public static final String SENSITIVITY_KEY = "sensitivity";
+
+    private static final long WRITE_DELAY = 500;    // Coalesce writes made within half a second
+
+    private static volatile SettingsStore instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private volatile String contact;
+    private volatile boolean smsEnabled;
+    private volatile boolean soundEnabled;
+    private volatile boolean vibrationEnabled;
+    private volatile int sensitivity;
+
+    private volatile boolean smsPermission;
+    private volatile boolean locationPermission;
+
+    // Pending writes, guarded by 'this'
+    private SharedPreferences.Editor pendingEdit;
+    private final Runnable flushRunnable = this::flush;
+
+    private SettingsStore(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        reloadAll();
+        refreshPermissions();
+        prefs.registerOnSharedPreferenceChangeListener(this);
+    }
+
+    public static SettingsStore get(Context context) {
+        SettingsStore store = instance;
+        if (store == null) {
+            synchronized (SettingsStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new SettingsStore(context);
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private void reloadAll() {
+        contact = prefs.getString(CONTACT_KEY, "");
+        smsEnabled = prefs.getBoolean(SMS_ENABLED_KEY, true);
+        soundEnabled = prefs.getBoolean(SOUND_ENABLED_KEY, true);
+        vibrationEnabled = prefs.getBoolean(VIBRATION_ENABLED_KEY, true);
+        sensitivity = prefs.getInt(SENSITIVITY_KEY, 50);
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (key == null) {
+            // Preferences were cleared
+            reloadAll();
+            return;
+        }
+        switch (key) {
+            case CONTACT_KEY:
+                contact = sharedPreferences.getString(CONTACT_KEY, "");
+                break;
+            case SMS_ENABLED_KEY:
+                smsEnabled = sharedPreferences.getBoolean(SMS_ENABLED_KEY, true);
+                break;
+            case SOUND_ENABLED_KEY:
+                soundEnabled = sharedPreferences.getBoolean(SOUND_ENABLED_KEY, true);
+                break;
+            case VIBRATION_ENABLED_KEY:
+                vibrationEnabled = sharedPreferences.getBoolean(VIBRATION_ENABLED_KEY, true);
+                break;
+            case SENSITIVITY_KEY:
+                sensitivity = sharedPreferences.getInt(SENSITIVITY_KEY, 50);
+                break;
+        }
+    }
+
+    /**
+     * Re-query the runtime permissions. Call when they may have changed:
+     * after a permission request result and when an activity resumes.
+     */
+    public void refreshPermissions() {
+        smsPermission = isGranted(Manifest.permission.SEND_SMS);
+        locationPermission = isGranted(Manifest.permission.ACCESS_FINE_LOCATION)
+                && isGranted(Manifest.permission.ACCESS_COARSE_LOCATION);
+    }
+
+    private boolean isGranted(String permission) {
+        return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    public boolean hasAllPermissions() {
+        return smsPermission && locationPermission;
+    }
+
+    public boolean hasSmsPermission() {
+        return smsPermission;
+    }
+
+    public boolean hasLocationPermission() {
+        return locationPermission;
+    }
+
+    public String getContact() {
+        return contact;
+    }
+
+    public boolean isSmsEnabled() {
+        return smsEnabled;
+    }
+
+    public boolean isSoundEnabled() {
+        return soundEnabled;
+    }
+
+    public boolean isVibrationEnabled() {
+        return vibrationEnabled;
+    }
+
+    public int getSensitivity() {
+        return sensitivity;
+    }
+
+    public synchronized void setContact(String phoneNumber) {
+        contact = phoneNumber;
+        edit().putString(CONTACT_KEY, phoneNumber);
+        // Without a contact no alert can go out, so don't risk losing it to the delay
+        flush();
+    }
+
+    public synchronized void setSmsEnabled(boolean enabled) {
+        smsEnabled = enabled;
+        edit().putBoolean(SMS_ENABLED_KEY, enabled);
+        scheduleFlush();
+    }
+
+    public synchronized void setSoundEnabled(boolean enabled) {
+        soundEnabled = enabled;
+        edit().putBoolean(SOUND_ENABLED_KEY, enabled);
+        scheduleFlush();
+    }
+
+    public synchronized void setVibrationEnabled(boolean enabled) {
+        vibrationEnabled = enabled;
+        edit().putBoolean(VIBRATION_ENABLED_KEY, enabled);
+        scheduleFlush();
+    }
+
+    public synchronized void setSensitivity(int value) {
+        sensitivity = value;
+        edit().putInt(SENSITIVITY_KEY, value);
+        scheduleFlush();
+    }
+
+    private synchronized SharedPreferences.Editor edit() {
+        if (pendingEdit == null) {
+            pendingEdit = prefs.edit();
+        }
+        return pendingEdit;
+    }
+
+    private void scheduleFlush() {
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, WRITE_DELAY);
+    }
+
+    /**
+     * Write any pending changes now, e.g. when a settings screen is paused.
+     */
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        SharedPreferences.Editor edit;
+        synchronized (this) {
+            edit = pendingEdit;
+            pendingEdit = null;
+        }
+        if (edit != null) {
+            edit.apply();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.falldetectionapp;
+
+/**
+ * Streaming filter applied to one scalar signal, one sample at a time.
+ *
+ * Implementations must bound the work per sample by their configuration
+ * alone: constant time for the averaging filters, at most linear in the
+ * window length for {@link MedianFilter}, never growing with the number of
+ * samples seen. They must not allocate after construction, and must return
+ * a sensible value from the very first sample (no zero-filled warm-up bias).
+ */
+public interface SignalFilter {
+
+    /**
+     * Feed the next sample.
+     *
+     * @param value new input value
+     * @return filtered output for this sample
+     */
+    float filter(float value);
+
+    /**
+     * Forget all history; the next sample is treated as the first one.
+     */
+    void reset();
+}
@@ -0,0 +1,162 @@
+package com.example.falldetectionapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives samples from an external IMU over the network.
+ *
+ * Every sample is a fixed 32-byte record in network byte order:
+ * <pre>
+ *   int64   timestamp (ms)
+ *   float32 ax, ay, az (m/s^2)
+ *   float32 gx, gy, gz (rad/s)
+ * </pre>
+ * Over TCP the records form a continuous stream from a device the source
+ * connects to. When detection falls behind the source stops reading, so TCP
+ * flow control slows the sender down and no sample is lost. Over UDP each
+ * datagram carries whole records; datagrams cannot be held back, so
+ * samples arriving while the queue is full are dropped and counted.
+ */
+public class SocketSensorSource extends QueuedSensorSource {
+
+    public static final int RECORD_SIZE = 32;
+
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int MAX_DATAGRAM = 64 * 1024;
+
+    private final InetSocketAddress tcpAddress;   // null for UDP
+    private final int udpPort;                    // Bound local port, -1 for TCP
+    private volatile DatagramSocket udpSocket;    // null for TCP; closed on stop and reopened on start
+    private volatile Socket tcpSocket;
+
+    private SocketSensorSource(InetSocketAddress tcpAddress, DatagramSocket udpSocket) {
+        super(tcpAddress != null ? "tcp-imu" : "udp-imu", tcpAddress != null);
+        this.tcpAddress = tcpAddress;
+        this.udpSocket = udpSocket;
+        this.udpPort = udpSocket != null ? udpSocket.getLocalPort() : -1;
+    }
+
+    /**
+     * Source that connects to an IMU streaming records over TCP.
+     */
+    public static SocketSensorSource tcp(String host, int port) {
+        return new SocketSensorSource(new InetSocketAddress(host, port), null);
+    }
+
+    /**
+     * Source that receives record datagrams on a local UDP port.
+     *
+     * @param port local port, or 0 to pick a free one (see {@link #getLocalPort()});
+     *             the port is bound now and kept across restarts
+     */
+    public static SocketSensorSource udp(int port) throws SocketException {
+        return new SocketSensorSource(null, new DatagramSocket(port));
+    }
+
+    /**
+     * @return the bound UDP port, or -1 for a TCP source
+     */
+    public int getLocalPort() {
+        return udpPort;
+    }
+
+    /**
+     * Write one record at the buffer's position, e.g. from an IMU simulator.
+     */
+    public static void putRecord(ByteBuffer out, long timestampMs, float ax, float ay, float az,
+                                 float gx, float gy, float gz) {
+        out.putLong(timestampMs);
+        out.putFloat(ax).putFloat(ay).putFloat(az);
+        out.putFloat(gx).putFloat(gy).putFloat(gz);
+    }
+
+    @Override
+    protected void produce() throws IOException, InterruptedException {
+        if (udpSocket != null) {
+            receiveDatagrams();
+        } else {
+            readStream();
+        }
+    }
+
+    private void readStream() throws IOException, InterruptedException {
+        Socket socket = new Socket();
+        tcpSocket = socket;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(tcpAddress, CONNECT_TIMEOUT);
+            InputStream in = socket.getInputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 256);
+            byte[] bytes = buffer.array();
+            while (isRunning()) {
+                int read = in.read(bytes, buffer.position(), buffer.remaining());
+                if (read < 0) break;
+                buffer.position(buffer.position() + read);
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    emitRecord(buffer);
+                }
+                buffer.compact();   // Keep a partial record for the next read
+                flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    private void receiveDatagrams() throws IOException, InterruptedException {
+        DatagramSocket socket = udpSocket;
+        if (socket.isClosed()) {
+            // Restarted after a stop; bind the same port again
+            socket = new DatagramSocket(udpPort);
+            udpSocket = socket;
+            if (!isRunning()) socket.close();   // Stopped while reopening
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        DatagramPacket packet = new DatagramPacket(buffer.array(), buffer.capacity());
+        try {
+            while (isRunning()) {
+                packet.setLength(buffer.capacity());
+                socket.receive(packet);
+                buffer.clear();
+                buffer.limit(packet.getLength());
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    emitRecord(buffer);
+                }
+                flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    private void emitRecord(ByteBuffer buffer) throws InterruptedException {
+        long timestamp = buffer.getLong();
+        float ax = buffer.getFloat();
+        float ay = buffer.getFloat();
+        float az = buffer.getFloat();
+        float gx = buffer.getFloat();
+        float gy = buffer.getFloat();
+        float gz = buffer.getFloat();
+        emit(timestamp, ax, ay, az, gx, gy, gz);
+    }
+
+    @Override
+    protected void closeInput() {
+        try {
+            Socket socket = tcpSocket;
+            if (socket != null) socket.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        DatagramSocket datagrams = udpSocket;
+        if (datagrams != null) datagrams.close();
+    }
+}
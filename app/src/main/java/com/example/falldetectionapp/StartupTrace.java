@@ -0,0 +1,114 @@
+package com.example.falldetectionapp;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Timeline of the app's cold start.
+ *
+ * Phases are marked on the uptime clock relative to the process start
+ * (API 24+; the first mark on older versions). Two milestones are tracked
+ * on their own: the first frame drawn and the first sensor sample reaching
+ * detection, which is when falls are actually being monitored. Once both
+ * have happened the timeline is logged and further marks are ignored, so
+ * later activity recreations do not blur the cold-start numbers.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+    private static final int MAX_MARKS = 32;
+
+    private static final String[] names = new String[MAX_MARKS];
+    private static final long[] times = new long[MAX_MARKS];
+    private static int count = 0;
+    private static long origin = -1;
+
+    private static volatile long firstFrame = -1;
+    private static volatile long firstSample = -1;
+    private static volatile boolean finished = false;
+
+    private StartupTrace() {
+    }
+
+    private static void ensureOrigin(long now) {
+        if (origin >= 0) return;
+        origin = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? Process.getStartUptimeMillis() : now;
+    }
+
+    /**
+     * Record that a start-up phase has completed.
+     */
+    public static synchronized void mark(String phase) {
+        if (finished) return;
+        long now = SystemClock.uptimeMillis();
+        ensureOrigin(now);
+        if (count < MAX_MARKS) {
+            names[count] = phase;
+            times[count] = now;
+            count++;
+        }
+    }
+
+    /**
+     * Record the first frame of the main screen. Only the first call counts.
+     */
+    public static void firstFrame() {
+        if (firstFrame >= 0) return;
+        milestone(true);
+    }
+
+    /**
+     * Record the first sample delivered to detection. Only the first call
+     * counts, and later calls return without locking, so this is safe to
+     * call for every batch.
+     */
+    public static void firstSample() {
+        if (firstSample >= 0) return;
+        milestone(false);
+    }
+
+    private static synchronized void milestone(boolean frame) {
+        long now = SystemClock.uptimeMillis();
+        ensureOrigin(now);
+        if (frame) {
+            if (firstFrame < 0) firstFrame = now;
+        } else {
+            if (firstSample < 0) firstSample = now;
+        }
+        if (!finished && firstFrame >= 0 && firstSample >= 0) {
+            finished = true;
+            Log.i(TAG, getReport());
+        }
+    }
+
+    /**
+     * @return milliseconds from process start to the first sample, or -1 if none yet
+     */
+    public static synchronized long getTimeToFirstSample() {
+        return firstSample < 0 ? -1 : firstSample - origin;
+    }
+
+    /**
+     * @return milliseconds from process start to the first frame, or -1 if none yet
+     */
+    public static synchronized long getTimeToFirstFrame() {
+        return firstFrame < 0 ? -1 : firstFrame - origin;
+    }
+
+    /**
+     * Human-readable timeline, e.g. for a log or a shared report.
+     */
+    public static synchronized String getReport() {
+        StringBuilder sb = new StringBuilder("Startup (ms since process start)\n");
+        for (int i = 0; i < count; i++) {
+            sb.append(String.format(Locale.US, "  %-24s %6d%n", names[i], times[i] - origin));
+        }
+        sb.append(String.format(Locale.US, "  %-24s %6d%n", "first frame", getTimeToFirstFrame()));
+        sb.append(String.format(Locale.US, "  %-24s %6d%n", "first sample", getTimeToFirstSample()));
+        return sb.toString();
+    }
+}
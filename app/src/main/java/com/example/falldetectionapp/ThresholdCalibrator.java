@@ -0,0 +1,219 @@
+package com.example.falldetectionapp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Learns a user's everyday motion and adapts the detector thresholds to it.
+ *
+ * The stream is cut into one-second windows. For each window the peak
+ * (filtered) acceleration magnitude and the peak rotation rate are fed to
+ * P-square sketches of a high quantile, so an active user's jumps and jogs
+ * push the thresholds up and a frail user's gentle movement lets them come
+ * down. Windows around a detection are left out so falls are not learned as
+ * normal activity: the last {@link #HELD_WINDOWS} closed windows are only
+ * learned once no detection has followed them, because a fall is reported
+ * after the window with its impact has closed. Thresholds only move once
+ * enough activity has been seen, change by a bounded step per update and
+ * never leave fixed safe bounds. The upper bounds are where the detection
+ * bench still catches every synthetic fall, so calibration cannot switch
+ * detection off for an active user.
+ *
+ * Memory is constant: two five-marker sketches and a few counters.
+ */
+public class ThresholdCalibrator {
+
+    private static final int FILE_VERSION = 1;
+
+    private static final long WINDOW = 1000;                // Peak taken over 1-second windows
+    private static final double QUANTILE = 0.995;           // Normal-activity peak level to stay above
+    private static final long MIN_WINDOWS = 1800;           // 30 minutes of activity before adapting
+    private static final int UPDATE_INTERVAL = 60;          // Re-evaluate once a minute
+    private static final long EXCLUDE_AFTER_EVENT = 15000;  // Skip windows this long after a detection
+    static final int HELD_WINDOWS = 2;                      // Closed windows waiting to see if a detection follows
+    private static final float MARGIN = 1.15f;              // Threshold sits this far above the quantile
+    private static final float MAX_STEP = 0.03f;            // Max relative change per update
+
+    // Safe bounds around the defaults (15 m/s^2, 12 m/s^2, 3 rad/s). The floors stay well above
+    // gravity (9.81 m/s^2), or ordinary samples after a spike would count as impact confirmations.
+    // Above about 17 m/s^2, or with more rotation required than the default, real falls are missed
+    static final float HIGH_MIN = 14.0f, HIGH_MAX = 17.0f;
+    static final float GYRO_MIN = 2.0f, GYRO_MAX = 3.0f;
+    private static final float IMPACT_RATIO = 0.8f;         // Impact threshold follows the high threshold
+    static final float IMPACT_MIN = 12.0f, IMPACT_MAX = HIGH_MAX * IMPACT_RATIO;
+
+    private final P2Quantile accelPeaks = new P2Quantile(QUANTILE);
+    private final P2Quantile gyroPeaks = new P2Quantile(QUANTILE);
+
+    private float fallThresholdHigh;
+    private float impactThreshold;
+    private float gyroThreshold;
+
+    // Current window
+    private long windowStart = -1;
+    private float windowAccelPeak = 0;
+    private float windowGyroPeakSq = 0;
+    private long excludeUntil = Long.MIN_VALUE;
+    private int windowsSinceUpdate = 0;
+
+    // Closed windows not learned yet, oldest first
+    private final float[] heldAccelPeak = new float[HELD_WINDOWS];
+    private final float[] heldGyroPeakSq = new float[HELD_WINDOWS];
+    private int heldCount = 0;
+
+    public ThresholdCalibrator(DetectorConfig defaults) {
+        fallThresholdHigh = defaults.getFallThresholdHigh();
+        impactThreshold = defaults.getImpactThreshold();
+        gyroThreshold = defaults.getGyroThreshold();
+    }
+
+    /**
+     * Feed one sample.
+     *
+     * @param accelMagnitude filtered acceleration magnitude, as the detector compares it
+     * @param gyroMagnitudeSq squared rotation rate
+     * @return true if the thresholds changed
+     */
+    public boolean addSample(long timestampMs, float accelMagnitude, float gyroMagnitudeSq) {
+        if (windowStart < 0 || timestampMs < windowStart) {
+            startWindow(timestampMs);
+        } else if (timestampMs - windowStart >= WINDOW) {
+            boolean changed = closeWindow();
+            startWindow(timestampMs);
+            update(accelMagnitude, gyroMagnitudeSq);
+            return changed;
+        }
+        update(accelMagnitude, gyroMagnitudeSq);
+        return false;
+    }
+
+    private void update(float accelMagnitude, float gyroMagnitudeSq) {
+        if (accelMagnitude > windowAccelPeak) windowAccelPeak = accelMagnitude;
+        if (gyroMagnitudeSq > windowGyroPeakSq) windowGyroPeakSq = gyroMagnitudeSq;
+    }
+
+    private void startWindow(long timestampMs) {
+        windowStart = timestampMs;
+        windowAccelPeak = 0;
+        windowGyroPeakSq = 0;
+    }
+
+    /**
+     * Leave the windows not learned yet, the current one and the ones after
+     * it out of the learned distribution. Call when a fall is detected.
+     */
+    public void onDetection(long timestampMs) {
+        excludeUntil = timestampMs + EXCLUDE_AFTER_EVENT;
+        windowAccelPeak = 0;
+        windowGyroPeakSq = 0;
+        heldCount = 0;
+    }
+
+    private boolean closeWindow() {
+        if (windowStart < excludeUntil) return false;
+        if (heldCount < HELD_WINDOWS) {
+            heldAccelPeak[heldCount] = windowAccelPeak;
+            heldGyroPeakSq[heldCount] = windowGyroPeakSq;
+            heldCount++;
+            return false;
+        }
+        // No detection came after the oldest held window; learn it and hold this one
+        accelPeaks.add(heldAccelPeak[0]);
+        gyroPeaks.add(Math.sqrt(heldGyroPeakSq[0]));
+        for (int i = 1; i < HELD_WINDOWS; i++) {
+            heldAccelPeak[i - 1] = heldAccelPeak[i];
+            heldGyroPeakSq[i - 1] = heldGyroPeakSq[i];
+        }
+        heldAccelPeak[HELD_WINDOWS - 1] = windowAccelPeak;
+        heldGyroPeakSq[HELD_WINDOWS - 1] = windowGyroPeakSq;
+
+        if (++windowsSinceUpdate < UPDATE_INTERVAL || accelPeaks.getCount() < MIN_WINDOWS) return false;
+        windowsSinceUpdate = 0;
+        return recompute();
+    }
+
+    private boolean recompute() {
+        float high = step(fallThresholdHigh, (float) accelPeaks.get() * MARGIN, HIGH_MIN, HIGH_MAX);
+        float gyro = step(gyroThreshold, (float) gyroPeaks.get() * MARGIN, GYRO_MIN, GYRO_MAX);
+        float impact = clamp(high * IMPACT_RATIO, IMPACT_MIN, IMPACT_MAX);
+        boolean changed = high != fallThresholdHigh || gyro != gyroThreshold || impact != impactThreshold;
+        fallThresholdHigh = high;
+        gyroThreshold = gyro;
+        impactThreshold = impact;
+        return changed;
+    }
+
+    // Move towards the target by at most MAX_STEP, staying inside [min, max]
+    private static float step(float current, float target, float min, float max) {
+        if (Float.isNaN(target)) return current;
+        float limit = current * MAX_STEP;
+        float next = current + Math.max(-limit, Math.min(limit, target - current));
+        return clamp(next, min, max);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public float getFallThresholdHigh() {
+        return fallThresholdHigh;
+    }
+
+    public float getImpactThreshold() {
+        return impactThreshold;
+    }
+
+    public float getGyroThreshold() {
+        return gyroThreshold;
+    }
+
+    /**
+     * @return number of activity windows learned so far
+     */
+    public long getWindowCount() {
+        return accelPeaks.getCount();
+    }
+
+    /**
+     * Save the learned state so calibration carries over between sessions.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(FILE_VERSION);
+            out.writeFloat(fallThresholdHigh);
+            out.writeFloat(impactThreshold);
+            out.writeFloat(gyroThreshold);
+            for (double v : accelPeaks.getState()) out.writeDouble(v);
+            for (double v : gyroPeaks.getState()) out.writeDouble(v);
+        }
+    }
+
+    /**
+     * Restore state written by {@link #save}. Values outside the safe bounds
+     * are clamped; a missing file leaves the defaults in place.
+     */
+    public void load(File file) throws IOException {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            int version = in.readInt();
+            if (version != FILE_VERSION) throw new IOException("Unsupported calibration version " + version);
+            float high = in.readFloat();
+            float impact = in.readFloat();
+            float gyro = in.readFloat();
+            double[] accelState = new double[16];
+            double[] gyroState = new double[16];
+            for (int i = 0; i < accelState.length; i++) accelState[i] = in.readDouble();
+            for (int i = 0; i < gyroState.length; i++) gyroState[i] = in.readDouble();
+
+            fallThresholdHigh = clamp(high, HIGH_MIN, HIGH_MAX);
+            impactThreshold = clamp(impact, IMPACT_MIN, IMPACT_MAX);
+            gyroThreshold = clamp(gyro, GYRO_MIN, GYRO_MAX);
+            accelPeaks.restore(accelState);
+            gyroPeaks.restore(gyroState);
+        }
+    }
+}
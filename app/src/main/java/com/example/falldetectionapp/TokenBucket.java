@@ -0,0 +1,68 @@
+package com.example.falldetectionapp;
+
+/**
+ * Token-bucket rate limiter on a caller-supplied millisecond clock.
+ *
+ * Holds up to {@code capacity} tokens and regains one every
+ * {@code refillInterval} ms, so it allows a burst of {@code capacity}
+ * actions and after that a steady rate of one per interval. Not
+ * thread-safe; used from one thread.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final long refillInterval;
+    private int tokens;
+    private long lastRefill = Long.MIN_VALUE;
+
+    public TokenBucket(int capacity, long refillIntervalMs) {
+        if (capacity <= 0 || refillIntervalMs <= 0) {
+            throw new IllegalArgumentException("Capacity and refill interval must be positive");
+        }
+        this.capacity = capacity;
+        this.refillInterval = refillIntervalMs;
+        this.tokens = capacity;
+    }
+
+    private void refill(long nowMs) {
+        // A full bucket does not bank time towards the next token
+        if (lastRefill == Long.MIN_VALUE || nowMs < lastRefill || tokens == capacity) {
+            lastRefill = nowMs;
+            return;
+        }
+        long earned = (nowMs - lastRefill) / refillInterval;
+        if (earned <= 0) return;
+        if (tokens + earned >= capacity) {
+            tokens = capacity;
+            lastRefill = nowMs;
+        } else {
+            tokens += (int) earned;
+            lastRefill += earned * refillInterval;     // Keep the partial interval
+        }
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return true if the action may go ahead
+     */
+    public boolean tryAcquire(long nowMs) {
+        refill(nowMs);
+        if (tokens == 0) return false;
+        tokens--;
+        return true;
+    }
+
+    /**
+     * @return the earliest time a token is available, which is {@code nowMs} if one is available now
+     */
+    public long nextTokenAt(long nowMs) {
+        refill(nowMs);
+        return tokens > 0 ? nowMs : lastRefill + refillInterval;
+    }
+
+    public int available(long nowMs) {
+        refill(nowMs);
+        return tokens;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ActivityRecognizerTest {
+
+    /** Activity at the end of the trace, or at its key event if {@code atEvent}. */
+    private static ActivityRecognizer.Activity recognize(SyntheticTraceGenerator.Scenario scenario,
+                                                          float sampleRateHz, long seed, boolean atEvent) {
+        SyntheticTraceGenerator.Trace trace = SyntheticTraceGenerator.generate(scenario, sampleRateHz, 0.3f, seed);
+        ActivityRecognizer recognizer = new ActivityRecognizer(sampleRateHz);
+        for (int i = 0; i < trace.count; i++) {
+            if (atEvent && trace.timestamps[i] >= trace.eventTimeMs) break;
+            float magnitude = (float) Math.sqrt(trace.ax[i] * trace.ax[i] + trace.ay[i] * trace.ay[i]
+                    + trace.az[i] * trace.az[i]);
+            float gyroSq = trace.gx[i] * trace.gx[i] + trace.gy[i] * trace.gy[i] + trace.gz[i] * trace.gz[i];
+            recognizer.addSample(trace.timestamps[i], magnitude, gyroSq);
+        }
+        return recognizer.getActivity();
+    }
+
+    /** Signal fed to the recognizer: acceleration magnitude and gyro magnitude at a time. */
+    private interface Signal {
+        void sample(double t, Random random, float[] out);
+    }
+
+    /** Feeds {@code seconds} of the signal at 50 Hz and fails if it is ever taken for a vehicle. */
+    private static void assertNeverVehicle(String what, float seconds, Signal signal) {
+        ActivityRecognizer recognizer = new ActivityRecognizer(50f);
+        Random random = new Random(7);
+        float[] out = new float[2];
+        for (int i = 0; i < seconds * 50; i++) {
+            double t = i / 50.0;
+            signal.sample(t, random, out);
+            recognizer.addSample(i * 20L, out[0], out[1] * out[1]);
+            assertNotEquals(what + " at " + t + " s", ActivityRecognizer.Activity.VEHICLE, recognizer.getActivity());
+        }
+    }
+
+    @Test
+    public void recognizesActivityAtEveryRate() {
+        for (float rate : new float[]{50f, 100f, 200f}) {
+            for (long seed = 0; seed < 3; seed++) {
+                String at = rate + " Hz, seed " + seed;
+                assertEquals(at, ActivityRecognizer.Activity.WALKING,
+                        recognize(SyntheticTraceGenerator.Scenario.WALK, rate, seed, false));
+                assertEquals(at, ActivityRecognizer.Activity.STAIRS,
+                        recognize(SyntheticTraceGenerator.Scenario.STAIRS, rate, seed, false));
+                // What counts is the context the bump lands in
+                assertEquals(at, ActivityRecognizer.Activity.VEHICLE,
+                        recognize(SyntheticTraceGenerator.Scenario.CAR_BUMP, rate, seed, true));
+                assertEquals(at, ActivityRecognizer.Activity.STILL,
+                        recognize(SyntheticTraceGenerator.Scenario.FALL_FORWARD, rate, seed, false));
+            }
+        }
+    }
+
+    @Test
+    public void needsTwoAgreeingClassificationsToChange() {
+        ActivityRecognizer recognizer = new ActivityRecognizer(50f);
+        long t = 0;
+        // Four seconds fill the window; the first classification alone does not decide
+        for (; t < 4000; t += 20) recognizer.addSample(t, 9.81f, 0);
+        assertEquals(ActivityRecognizer.Activity.UNKNOWN, recognizer.getActivity());
+        for (; t < 5100; t += 20) recognizer.addSample(t, 9.81f, 0);
+        assertEquals(ActivityRecognizer.Activity.STILL, recognizer.getActivity());
+    }
+
+    @Test
+    public void vehicleNeedsMinutesOfNarrowVibration() {
+        ActivityRecognizer recognizer = new ActivityRecognizer(50f);
+        long t = 0;
+        for (; t < ActivityRecognizer.VEHICLE_MIN_DURATION; t += 20) {
+            double s = t / 1000.0;
+            recognizer.addSample(t, 9.81f + 1.2f * (float) Math.sin(2 * Math.PI * 13 * s), 0.01f);
+        }
+        // The vibration alone is not enough until it has lasted
+        assertEquals(ActivityRecognizer.Activity.ACTIVE, recognizer.getActivity());
+        assertEquals(13f, recognizer.getPeakHz(), 0.25f);
+        for (; t < ActivityRecognizer.VEHICLE_MIN_DURATION + 10000; t += 20) {
+            double s = t / 1000.0;
+            recognizer.addSample(t, 9.81f + 1.2f * (float) Math.sin(2 * Math.PI * 13 * s), 0.01f);
+        }
+        assertEquals(ActivityRecognizer.Activity.VEHICLE, recognizer.getActivity());
+    }
+
+    @Test
+    public void noiseTremorAndFidgetingAreNotAVehicle() {
+        for (float sigma : new float[]{0.6f, 1.0f, 2.0f}) {
+            assertNeverVehicle("noise " + sigma, 180f, (t, random, out) -> {
+                out[0] = 9.81f + sigma * (float) random.nextGaussian();
+                out[1] = 0.3f * (float) Math.abs(random.nextGaussian());
+            });
+        }
+        // Pathological tremor: a narrow peak, but below the vibration band
+        assertNeverVehicle("tremor", 180f, (t, random, out) -> {
+            out[0] = 9.81f + 1.5f * (float) Math.sin(2 * Math.PI * 5 * t) + 0.2f * (float) random.nextGaussian();
+            out[1] = 0.3f * (float) Math.abs(random.nextGaussian());
+        });
+        // Fidgeting: bursts of jostling of varying strength with short pauses
+        float[] burst = new float[1];
+        assertNeverVehicle("fidgeting", 180f, (t, random, out) -> {
+            if (random.nextInt(25) == 0) burst[0] = random.nextInt(3) == 0 ? 0 : 0.5f + 2f * random.nextFloat();
+            out[0] = 9.81f + burst[0] * (float) random.nextGaussian() + 0.1f * (float) random.nextGaussian();
+            out[1] = 0.3f * burst[0] * (float) Math.abs(random.nextGaussian());
+        });
+    }
+}
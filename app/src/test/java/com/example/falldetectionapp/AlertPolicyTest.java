@@ -0,0 +1,143 @@
+package com.example.falldetectionapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlertPolicyTest {
+
+    /** Records what the policy asked for instead of sending anything. */
+    private static final class FakeActions implements AlertPolicy.Actions {
+        final List<AlertPolicy.Alert> sent = new ArrayList<>();
+        long releaseDelay = -1;
+        int refused = 0;
+        int retries = 0;
+        boolean canSend = true;
+
+        @Override
+        public boolean send(AlertPolicy.Alert alert) {
+            if (canSend) sent.add(alert);
+            return canSend;
+        }
+
+        @Override
+        public void scheduleRelease(long delayMs) {
+            releaseDelay = delayMs;
+        }
+
+        @Override
+        public void testRefused() {
+            refused++;
+        }
+
+        @Override
+        public void retrying(int alertId) {
+            retries++;
+        }
+    }
+
+    private FakeActions actions;
+    private AlertPolicy policy;
+    private final List<AlertCoordinator.Outcome> outcomes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        actions = new FakeActions();
+        policy = new AlertPolicy(actions, new TokenBucket(2, 60000), new TokenBucket(1, 30000));
+    }
+
+    private AlertPolicy.Alert fall(long time, boolean hasLocation) {
+        return new AlertPolicy.Alert(AlertPolicy.Type.FALL, time, hasLocation, hasLocation ? 6.9 : 0,
+                hasLocation ? 79.8 : 0, hasLocation ? "Colombo" : "Location unavailable", 0, false, outcomes::add);
+    }
+
+    private static AlertPolicy.Alert retry(int alertId) {
+        return new AlertPolicy.Alert(AlertPolicy.Type.RETRY_FALL, 0, false, 0, 0, null, alertId, true, null);
+    }
+
+    @Test
+    public void detectionsWithinTheWindowMergeIntoOneAlert() {
+        policy.onFall(fall(1000, true), 0);
+        policy.onFall(fall(5000, true), 10);
+        policy.onFall(fall(9000, false), 20);
+        assertEquals(1, actions.sent.size());
+
+        // A detection after the window is a new incident with its own id
+        policy.onFall(fall(1000 + AlertPolicy.INCIDENT_WINDOW + 1, true), 30);
+        assertEquals(2, actions.sent.size());
+        assertNotEquals(actions.sent.get(0).alertId, actions.sent.get(1).alertId);
+        assertEquals(List.of(AlertCoordinator.Outcome.SENT, AlertCoordinator.Outcome.MERGED,
+                AlertCoordinator.Outcome.MERGED, AlertCoordinator.Outcome.SENT), outcomes);
+    }
+
+    @Test
+    public void laterLocationSendsOneFollowUp() {
+        policy.onFall(fall(1000, false), 0);
+        policy.onFall(fall(2000, false), 0);
+        policy.onFall(fall(3000, true), 0);
+        policy.onFall(fall(4000, true), 0);
+        assertEquals(2, actions.sent.size());
+        assertFalse(actions.sent.get(0).hasLocation);
+        assertTrue(actions.sent.get(1).hasLocation);
+        assertEquals(actions.sent.get(0).alertId, actions.sent.get(1).alertId);
+    }
+
+    @Test
+    public void alertsOverTheLimitAreHeldThenReleased() {
+        policy.onFall(fall(0, true), 0);
+        policy.onFall(fall(AlertPolicy.INCIDENT_WINDOW + 1, true), 0);
+        policy.onFall(fall(2 * AlertPolicy.INCIDENT_WINDOW + 2, false), 0);
+        assertEquals(2, actions.sent.size());
+        assertEquals(1, policy.heldCount());
+        assertEquals(60000, actions.releaseDelay);
+
+        // The same incident's location replaces the held alert rather than queueing a second one
+        policy.onFall(fall(2 * AlertPolicy.INCIDENT_WINDOW + 3, true), 1000);
+        assertEquals(1, policy.heldCount());
+
+        policy.releaseHeld(59999);
+        assertEquals(2, actions.sent.size());
+        policy.releaseHeld(60000);
+        assertEquals(3, actions.sent.size());
+        assertTrue(actions.sent.get(2).hasLocation);
+        assertEquals(0, policy.heldCount());
+        assertEquals(List.of(AlertCoordinator.Outcome.SENT, AlertCoordinator.Outcome.SENT,
+                AlertCoordinator.Outcome.HELD, AlertCoordinator.Outcome.MERGED, AlertCoordinator.Outcome.HELD,
+                AlertCoordinator.Outcome.SENT), outcomes);
+    }
+
+    @Test
+    public void failedAlertIsRetriedOnce() {
+        policy.onFall(fall(0, true), 0);
+        int id = actions.sent.get(0).alertId;
+        // Each part of a multipart message reports its failure
+        policy.onRetry(retry(id), 0);
+        policy.onRetry(retry(id), 0);
+        assertEquals(1, actions.retries);
+        assertEquals(2, actions.sent.size());
+        assertTrue(actions.sent.get(1).simple);
+        assertEquals(id, actions.sent.get(1).alertId);
+    }
+
+    @Test
+    public void testsOverTheirLimitAreRefusedAndUnsentAlertsReported() {
+        AlertPolicy.Alert test = new AlertPolicy.Alert(AlertPolicy.Type.TEST, 0, false, 0, 0, null, 0, false,
+                outcomes::add);
+        policy.onTest(test, 0);
+        policy.onTest(test, 0);
+        assertEquals(1, actions.refused);
+        assertEquals(0, policy.heldCount());
+
+        actions.canSend = false;
+        policy.onFall(fall(0, true), 0);
+        // Nothing went out, so a later detection of the same fall tries again
+        actions.canSend = true;
+        policy.onFall(fall(1000, true), 0);
+        assertEquals(List.of(AlertCoordinator.Outcome.SENT, AlertCoordinator.Outcome.REFUSED,
+                AlertCoordinator.Outcome.NOT_SENT, AlertCoordinator.Outcome.SENT), outcomes);
+    }
+}
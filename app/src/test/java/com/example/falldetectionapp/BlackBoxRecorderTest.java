@@ -0,0 +1,74 @@
+package com.example.falldetectionapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class BlackBoxRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void record(BlackBoxRecorder recorder, SyntheticTraceGenerator.Trace trace, long offset) {
+        for (int i = 0; i < trace.count; i++) {
+            recorder.add(trace.timestamps[i] + offset, trace.ax[i], trace.ay[i], trace.az[i],
+                    trace.gx[i], trace.gy[i], trace.gz[i]);
+        }
+    }
+
+    @Test
+    public void savedWindowDecodesWithinQuantization() throws Exception {
+        SyntheticTraceGenerator.Trace trace = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.FALL_FORWARD, 100f, 0.05f, 0);
+        BlackBoxRecorder recorder = new BlackBoxRecorder(64 * 1024);
+        record(recorder, trace, 0);
+
+        File file = folder.newFile("incident.bin");
+        BlackBoxRecorder.Snapshot snapshot = recorder.freeze(trace.timestamps[0], trace.timestamps[trace.count - 1]);
+        assertEquals(trace.count, snapshot.getSampleCount());
+        snapshot.writeTo(file);
+
+        SampleBatch decoded = BlackBoxRecorder.read(file);
+        assertEquals(trace.count, decoded.count);
+        for (int i = 0; i < trace.count; i++) {
+            assertEquals(trace.timestamps[i], decoded.timestamps[i]);
+            assertEquals(trace.ax[i], decoded.ax[i], 0.5f / BlackBoxRecorder.ACCEL_SCALE + 1e-5f);
+            assertEquals(trace.az[i], decoded.az[i], 0.5f / BlackBoxRecorder.ACCEL_SCALE + 1e-5f);
+            assertEquals(trace.gz[i], decoded.gz[i], 0.5f / BlackBoxRecorder.GYRO_SCALE + 1e-5f);
+        }
+    }
+
+    @Test
+    public void compressesWellBelowRawFloats() {
+        SyntheticTraceGenerator.Trace trace = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.WALK, 100f, 0.05f, 0);
+        BlackBoxRecorder recorder = new BlackBoxRecorder(64 * 1024);
+        record(recorder, trace, 0);
+
+        int rawBytes = trace.count * (8 + 6 * 4);
+        double ratio = (double) recorder.getStoredBytes() / rawBytes;
+        assertTrue("ratio " + ratio, ratio < 0.30);
+    }
+
+    @Test
+    public void keepsNewestSamplesWithinBudget() {
+        SyntheticTraceGenerator.Trace trace = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.STAIRS, 200f, 0.3f, 0);
+        int budget = 32 * 1024;
+        BlackBoxRecorder recorder = new BlackBoxRecorder(budget);
+        long span = trace.timestamps[trace.count - 1] - trace.timestamps[0] + 5;
+        for (int lap = 0; lap < 10; lap++) {
+            record(recorder, trace, lap * span);
+            assertTrue(recorder.getStoredBytes() <= budget);
+        }
+        long newest = trace.timestamps[trace.count - 1] + 9 * span;
+        BlackBoxRecorder.Snapshot snapshot = recorder.freeze(newest - 1000, newest);
+        assertTrue(snapshot.getSampleCount() >= 200);
+        assertTrue(recorder.getOldestTimestamp() > trace.timestamps[0] + 8 * span);
+        assertTrue(recorder.getStoredSamples() > 0);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Detection bench: runs every {@link FallDetector} configuration against the
+ * synthetic fall and ADL traces and reports sensitivity, specificity and
+ * detection latency.
+ *
+ * Traces are fed in flush-sized batches through {@link FallDetector#detectFallBatch}
+ * followed by {@link FallConfirmation}, the same way MainActivity does. The
+ * assertions are floors taken from the current detector; a change to the
+ * detection math that drops below them fails the build. The default
+ * configuration is the one MainActivity runs, with activity gating on.
+ */
+public class DetectionBenchTest {
+
+    private static final float[] SAMPLE_RATES = {50f, 100f, 200f};
+    private static final float[] NOISE_LEVELS = {0.05f, 0.3f};
+    private static final int SEEDS = 4;
+    private static final int FLUSH_SIZE = 25;
+
+    /** Outcome of running one trace through the pipeline. */
+    private static class Outcome {
+        boolean candidate;      // Detector fired
+        boolean alert;          // Confirmation stage confirmed the candidate
+        long latencyMs = -1;    // Detector firing time relative to the scenario event
+    }
+
+    /** Aggregated results for one configuration. */
+    private static class Score {
+        int falls, fallsAlerted;
+        int nonAlerts, nonAlertsQuiet;
+        int impacts, impactsDetected;
+        long latencySum;
+        long latencyMax;
+        final Map<SyntheticTraceGenerator.Scenario, int[]> perScenario = new LinkedHashMap<>();
+
+        void add(SyntheticTraceGenerator.Scenario scenario, Outcome outcome) {
+            if (scenario.expectAlert) {
+                falls++;
+                if (outcome.alert) fallsAlerted++;
+            } else {
+                nonAlerts++;
+                if (!outcome.alert) nonAlertsQuiet++;
+            }
+            if (scenario.isFall) {
+                impacts++;
+                if (outcome.candidate) {
+                    impactsDetected++;
+                    latencySum += outcome.latencyMs;
+                    latencyMax = Math.max(latencyMax, outcome.latencyMs);
+                }
+            }
+            int[] counts = perScenario.computeIfAbsent(scenario, s -> new int[3]);
+            counts[0]++;
+            if (outcome.candidate) counts[1]++;
+            if (outcome.alert) counts[2]++;
+        }
+
+        double sensitivity() {
+            return falls == 0 ? 0 : (double) fallsAlerted / falls;
+        }
+
+        double specificity() {
+            return nonAlerts == 0 ? 0 : (double) nonAlertsQuiet / nonAlerts;
+        }
+
+        double impactRecall() {
+            return impacts == 0 ? 0 : (double) impactsDetected / impacts;
+        }
+
+        double meanLatencyMs() {
+            return impactsDetected == 0 ? 0 : (double) latencySum / impactsDetected;
+        }
+    }
+
+    private static Map<String, DetectorConfig> configurations() {
+        Map<String, DetectorConfig> configs = new LinkedHashMap<>();
+        configs.put("default (box 5)", new DetectorConfig().setActivityGating(true));
+        configs.put("no activity gating", new DetectorConfig());
+        configs.put("unfiltered", new DetectorConfig().setFilterType(DetectorConfig.FilterType.NONE));
+        configs.put("median 5", new DetectorConfig().setFilterType(DetectorConfig.FilterType.MEDIAN));
+        configs.put("exponential 0.3", new DetectorConfig().setFilterType(DetectorConfig.FilterType.EXPONENTIAL));
+        configs.put("low-pass 5 Hz", new DetectorConfig().setFilterType(DetectorConfig.FilterType.LOW_PASS));
+        // Where a ThresholdCalibrator can take the thresholds
+        configs.put("calibrated low", new DetectorConfig().setFallThresholdHigh(ThresholdCalibrator.HIGH_MIN)
+                .setImpactThreshold(ThresholdCalibrator.IMPACT_MIN).setGyroThreshold(ThresholdCalibrator.GYRO_MIN));
+        configs.put("calibrated high", new DetectorConfig().setFallThresholdHigh(ThresholdCalibrator.HIGH_MAX)
+                .setImpactThreshold(ThresholdCalibrator.IMPACT_MAX).setGyroThreshold(ThresholdCalibrator.GYRO_MAX));
+        return configs;
+    }
+
+    private static List<SyntheticTraceGenerator.Trace> traces() {
+        List<SyntheticTraceGenerator.Trace> traces = new ArrayList<>();
+        for (SyntheticTraceGenerator.Scenario scenario : SyntheticTraceGenerator.Scenario.values()) {
+            for (float rate : SAMPLE_RATES) {
+                for (float noise : NOISE_LEVELS) {
+                    for (int seed = 0; seed < SEEDS; seed++) {
+                        traces.add(SyntheticTraceGenerator.generate(scenario, rate, noise, seed));
+                    }
+                }
+            }
+        }
+        return traces;
+    }
+
+    private static Outcome run(DetectorConfig config, SyntheticTraceGenerator.Trace trace) {
+        // Filters that depend on the sample rate are built for the trace's rate
+        FallDetector detector = new FallDetector(config.copy().setSampleRateHz(trace.sampleRateHz));
+        FallConfirmation confirmation = new FallConfirmation();
+        SampleBatch batch = new SampleBatch(FLUSH_SIZE);
+        Outcome outcome = new Outcome();
+        float[] accel = new float[3];
+        float[] gyro = new float[3];
+
+        for (int start = 0; start < trace.count; start += FLUSH_SIZE) {
+            batch.clear();
+            int end = Math.min(trace.count, start + FLUSH_SIZE);
+            for (int i = start; i < end; i++) {
+                accel[0] = trace.ax[i];
+                accel[1] = trace.ay[i];
+                accel[2] = trace.az[i];
+                gyro[0] = trace.gx[i];
+                gyro[1] = trace.gy[i];
+                gyro[2] = trace.gz[i];
+                batch.add(trace.timestamps[i], accel, gyro);
+            }
+
+            boolean confirming = confirmation.isActive();
+            int detectedAt = confirming || outcome.candidate ? -1 : detector.detectFallBatch(batch);
+            for (int i = 0; i < batch.count; i++) {
+                if (i == detectedAt) {
+                    outcome.candidate = true;
+                    outcome.latencyMs = batch.timestamps[i] - trace.eventTimeMs;
+                    confirmation.begin(batch.timestamps[i], detector.raisesEvidenceBar());
+                    confirming = true;
+                }
+                FallConfirmation.State state = confirmation.onSample(
+                        batch.timestamps[i], batch.ax[i], batch.ay[i], batch.az[i]);
+                if (confirming && state == FallConfirmation.State.CONFIRMED) {
+                    outcome.alert = true;
+                }
+            }
+        }
+        if (confirmation.isActive() && confirmation.resolve() == FallConfirmation.State.CONFIRMED) {
+            outcome.alert = true;
+        }
+        return outcome;
+    }
+
+    private static Map<String, Score> runBench() {
+        List<SyntheticTraceGenerator.Trace> traces = traces();
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (Map.Entry<String, DetectorConfig> entry : configurations().entrySet()) {
+            Score score = new Score();
+            for (SyntheticTraceGenerator.Trace trace : traces) {
+                score.add(trace.scenario, run(entry.getValue(), trace));
+            }
+            scores.put(entry.getKey(), score);
+        }
+        return scores;
+    }
+
+    private static void report(Map<String, Score> scores) {
+        StringBuilder sb = new StringBuilder("\nDetection bench\n");
+        sb.append(String.format(Locale.US, "%-18s %11s %11s %13s %12s %11s%n",
+                "config", "sensitivity", "specificity", "impact recall", "latency avg", "latency max"));
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            Score s = entry.getValue();
+            sb.append(String.format(Locale.US, "%-18s %10.1f%% %10.1f%% %12.1f%% %10.0fms %9dms%n",
+                    entry.getKey(), s.sensitivity() * 100, s.specificity() * 100,
+                    s.impactRecall() * 100, s.meanLatencyMs(), s.latencyMax));
+        }
+        sb.append("\nPer scenario (traces / detector fired / alerted)\n");
+        for (Map.Entry<String, Score> entry : scores.entrySet()) {
+            sb.append(String.format(Locale.US, "%-18s", entry.getKey()));
+            for (Map.Entry<SyntheticTraceGenerator.Scenario, int[]> scenario : entry.getValue().perScenario.entrySet()) {
+                int[] c = scenario.getValue();
+                sb.append(String.format(Locale.US, " %s %d/%d/%d", scenario.getKey(), c[0], c[1], c[2]));
+            }
+            sb.append('\n');
+        }
+        System.out.println(sb);
+    }
+
+    @Test
+    public void generator_isDeterministic() {
+        SyntheticTraceGenerator.Trace a = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.FALL_FORWARD, 100f, 0.3f, 42);
+        SyntheticTraceGenerator.Trace b = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.FALL_FORWARD, 100f, 0.3f, 42);
+        assertEquals(a.count, b.count);
+        for (int i = 0; i < a.count; i++) {
+            assertEquals(a.timestamps[i], b.timestamps[i]);
+            assertEquals(a.ax[i], b.ax[i], 0f);
+            assertEquals(a.gz[i], b.gz[i], 0f);
+        }
+    }
+
+    @Test
+    public void bench_defaultConfigMeetsFloors() {
+        Map<String, Score> scores = runBench();
+        report(scores);
+
+        Score defaults = scores.get("default (box 5)");
+        assertTrue("sensitivity " + defaults.sensitivity(), defaults.sensitivity() >= 0.95);
+        assertTrue("specificity " + defaults.specificity(), defaults.specificity() >= 0.85);
+        assertTrue("mean latency " + defaults.meanLatencyMs(), defaults.meanLatencyMs() <= 150);
+
+        // Activity context makes a bump in a car less likely to alert, and costs no fall
+        Score ungated = scores.get("no activity gating");
+        SyntheticTraceGenerator.Scenario carBump = SyntheticTraceGenerator.Scenario.CAR_BUMP;
+        assertTrue("car bump alerts", defaults.perScenario.get(carBump)[2] < ungated.perScenario.get(carBump)[2]);
+        assertEquals(ungated.fallsAlerted, defaults.fallsAlerted);
+        assertEquals(ungated.impactsDetected, defaults.impactsDetected);
+
+        // Calibration may move the thresholds anywhere in its bounds without losing falls
+        for (String bound : new String[]{"calibrated low", "calibrated high"}) {
+            Score calibrated = scores.get(bound);
+            assertTrue(bound + " sensitivity " + calibrated.sensitivity(), calibrated.sensitivity() >= 0.95);
+        }
+    }
+}
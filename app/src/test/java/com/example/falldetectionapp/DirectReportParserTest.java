@@ -0,0 +1,100 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class DirectReportParserTest {
+
+    private static final int ACCEL_TOKEN = 1;
+    private static final int GYRO_TOKEN = 2;
+
+    /** Writes records the way the sensor hub does, counter last. */
+    private static final class RingWriter {
+        final ByteBuffer ring;
+        final int capacity;
+        int counter = 1;
+
+        RingWriter(int capacity) {
+            this.capacity = capacity;
+            ring = ByteBuffer.allocate(capacity * DirectReportParser.RECORD_SIZE).order(ByteOrder.nativeOrder());
+        }
+
+        void write(int token, long timestampNs, float x, float y, float z) {
+            int base = ((counter - 1) % capacity) * DirectReportParser.RECORD_SIZE;
+            ring.putInt(base + DirectReportParser.OFFSET_SIZE, DirectReportParser.RECORD_SIZE);
+            ring.putInt(base + DirectReportParser.OFFSET_TOKEN, token);
+            ring.putInt(base + DirectReportParser.OFFSET_TYPE, token == ACCEL_TOKEN ? 1 : 4);
+            ring.putLong(base + DirectReportParser.OFFSET_TIMESTAMP, timestampNs);
+            ring.putFloat(base + DirectReportParser.OFFSET_DATA, x);
+            ring.putFloat(base + DirectReportParser.OFFSET_DATA + 4, y);
+            ring.putFloat(base + DirectReportParser.OFFSET_DATA + 8, z);
+            ring.putInt(base + DirectReportParser.OFFSET_COUNTER, counter++);
+        }
+    }
+
+    @Test
+    public void readsNewRecordsAcrossTheWrap() {
+        RingWriter writer = new RingWriter(8);
+        DirectReportParser parser = new DirectReportParser(8);
+        assertFalse(parser.next(writer.ring));
+
+        long t = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                writer.write(ACCEL_TOKEN, (t += 20_000_000L), i, 9.81f, -i);
+                writer.write(GYRO_TOKEN, t + 5_000_000L, 0.1f * i, 0, 0);
+            }
+            for (int i = 0; i < 3; i++) {
+                assertTrue(parser.next(writer.ring));
+                assertEquals(ACCEL_TOKEN, parser.token);
+                assertEquals(i, parser.values[0], 0f);
+                assertEquals(9.81f, parser.values[1], 0f);
+                assertTrue(parser.next(writer.ring));
+                assertEquals(GYRO_TOKEN, parser.token);
+                assertEquals(0.1f * i, parser.values[0], 0f);
+            }
+            assertFalse(parser.next(writer.ring));
+        }
+        assertEquals(t / 1_000_000L + 5, parser.timestampMs);
+        assertEquals(30 % 8, parser.getNextSlot());
+        assertEquals(0, parser.getLostRecords());
+    }
+
+    @Test
+    public void countsRecordsLostWhenLapped() {
+        RingWriter writer = new RingWriter(8);
+        DirectReportParser parser = new DirectReportParser(8);
+        writer.write(ACCEL_TOKEN, 1_000_000L, 0, 0, 0);
+        assertTrue(parser.next(writer.ring));
+
+        // The writer goes round the ring and then some before the next read
+        for (int i = 0; i < 11; i++) writer.write(ACCEL_TOKEN, (i + 2) * 1_000_000L, i, 0, 0);
+        int read = 0;
+        while (parser.next(writer.ring)) read++;
+        assertEquals(11 - read, parser.getLostRecords());
+        assertEquals(10f, parser.values[0], 0f);
+        assertEquals(12, parser.timestampMs);
+    }
+
+    @Test
+    public void readsEveryRecordOverManyLaps() {
+        int capacity = 1024;
+        RingWriter writer = new RingWriter(capacity);
+        DirectReportParser parser = new DirectReportParser(capacity);
+        int rounds = 200;
+        int parsed = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < capacity; i++) writer.write(i % 2 == 0 ? ACCEL_TOKEN : GYRO_TOKEN, i, i, 0, 0);
+            while (parser.next(writer.ring)) {
+                assertEquals(parsed % capacity, parser.values[0], 0f);
+                parsed++;
+            }
+        }
+        assertEquals(rounds * capacity, parsed);
+        assertEquals(0, parser.getLostRecords());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.falldetectionapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+
+    @Before
+    public void setUp() {
+        EventLog.clear();
+    }
+
+    @Test
+    public void formatsArgumentsOnlyWhenDumped() {
+        EventLog.log(EventLog.Event.FALL_CANDIDATE, 0.75f);
+        EventLog.log(EventLog.Event.SENSOR_RECOVERY, SensorHealthMonitor.Status.STALLED.ordinal(), 2);
+        EventLog.log(EventLog.Event.FALL_CONFIRMED, true, false);
+
+        String[] lines = EventLog.getReport().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[1].endsWith("Possible fall, score 0.750"));
+        assertTrue(lines[2].endsWith("Sensor stream STALLED, re-registering (attempt 2)"));
+        assertTrue(lines[3].endsWith("Fall confirmed, contact set true, SMS enabled false"));
+    }
+
+    @Test
+    public void keepsNewestEntriesWhenFull() {
+        for (int i = 0; i < EventLog.CAPACITY + 10; i++) {
+            EventLog.log(EventLog.Event.ALERT_RETRY, i);
+        }
+        assertEquals(EventLog.CAPACITY, EventLog.size());
+
+        String[] lines = EventLog.getReport().split("\n");
+        assertEquals("(10 older events overwritten)", lines[1]);
+        assertTrue(lines[2].endsWith("Alert 10 retried as a simple message"));
+        assertTrue(lines[lines.length - 1].endsWith("Alert " + (EventLog.CAPACITY + 9) + " retried as a simple message"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FallCandidateTrackerTest {
+
+    private static final float SPIKE = 20f, LOW = 1f, NORMAL = 9.8f;
+
+    private final FallCandidateTracker tracker = new FallCandidateTracker(
+            FallCandidateTracker.DEFAULT_CAPACITY, 2000, 3);
+
+    private FallCandidateTracker.Candidate sample(long t, float magnitude, boolean rotating) {
+        return tracker.onSample(t, magnitude, magnitude > 15f && rotating, magnitude < 2f, magnitude > 12f);
+    }
+
+    @Test
+    public void separateSpikesDoNotConfirmEachOther() {
+        assertNull(sample(0, SPIKE, true));
+        assertNull(sample(20, NORMAL, false));
+        // A single spike sample earns two confirmations; a second spike a second later
+        // is its own candidate rather than the third confirmation of the first
+        assertNull(sample(1000, SPIKE, true));
+        assertNull(sample(1020, NORMAL, false));
+        assertEquals(2, tracker.activeCount());
+    }
+
+    @Test
+    public void sustainedSpikeOrLaterImpactConfirms() {
+        assertNull(sample(0, SPIKE, true));
+        assertNotNull(sample(20, SPIKE, true));
+
+        tracker.clear();
+        assertNull(sample(5000, SPIKE, true));
+        assertNull(sample(5100, NORMAL, false));
+        FallCandidateTracker.Candidate candidate = sample(5300, LOW, false);
+        assertNotNull(candidate);
+        assertEquals(FallCandidateTracker.Phase.POST_IMPACT, candidate.phase);
+    }
+
+    @Test
+    public void freeFallIsKeptWithTheImpact() {
+        for (long t = 0; t <= 200; t += 20) assertNull(sample(t, LOW, false));
+        sample(400, SPIKE, true);
+        FallCandidateTracker.Candidate candidate = sample(420, SPIKE, true);
+        assertNotNull(candidate);
+        assertEquals(FallCandidateTracker.Phase.IMPACT, candidate.phase);
+        assertEquals(200, candidate.freeFallDuration());
+        assertEquals(1, tracker.activeCount());
+    }
+
+    @Test
+    public void candidatesExpireAndStayWithinThePool() {
+        for (long t = 0; t < 10000; t += 300) {
+            sample(t, SPIKE, true);
+            sample(t + 150, NORMAL, false);
+            assertTrue(tracker.activeCount() <= FallCandidateTracker.DEFAULT_CAPACITY);
+        }
+        sample(20000, NORMAL, false);
+        assertEquals(0, tracker.activeCount());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.falldetectionapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FallEventStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static FallEvent detection(long time) {
+        int count = 150;
+        int[] times = new int[count];
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        float[] zs = new float[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = i * 20 - 2000;
+            xs[i] = (float) Math.sin(i * 0.1) * 3f;
+            ys[i] = 0.5f;
+            zs[i] = 9.81f + (i == 100 ? 25f : 0f);
+        }
+        return new FallEvent(FallEvent.Type.DETECTED, time, time, Double.NaN, Double.NaN, "", 0.87f,
+                times, xs, ys, zs);
+    }
+
+    @Test
+    public void rangeQuery_returnsOnlyEventsInRange() throws IOException {
+        FallEventStore store = new FallEventStore(folder.getRoot());
+        for (long t = 1000; t <= 10000; t += 1000) {
+            store.append(new FallEvent(FallEvent.Type.CANCELLED, t, t, Float.NaN));
+        }
+
+        List<FallEvent> events = store.query(3000, 6000, false);
+        assertEquals(3, events.size());
+        assertEquals(3000, events.get(0).timestampMs);
+        assertEquals(5000, events.get(2).timestampMs);
+        assertEquals(3, store.count(3000, 6000));
+        assertEquals(0, store.count(20000, 30000));
+    }
+
+    @Test
+    public void snippetAndLocation_roundTrip() throws IOException {
+        FallEventStore store = new FallEventStore(folder.getRoot());
+        FallEvent original = detection(5000);
+        store.append(original);
+        store.append(new FallEvent(FallEvent.Type.ALERT_SENT, 6000, 5000, 6.9271, 79.8612,
+                "Colombo, Sri Lanka", 0.87f, null, null, null, null));
+
+        List<FallEvent> events = store.query(0, Long.MAX_VALUE, true);
+        assertEquals(2, events.size());
+        FallEvent restored = events.get(0);
+        assertEquals(FallEvent.Type.DETECTED, restored.type);
+        assertEquals(0.87f, restored.confidence, 0f);
+        assertFalse(restored.hasLocation());
+        assertEquals(original.snippetLength(), restored.snippetLength());
+        for (int i = 0; i < original.snippetLength(); i++) {
+            assertEquals(original.snippetTimes[i], restored.snippetTimes[i]);
+            assertEquals(original.snippetX[i], restored.snippetX[i], 0.006f);
+            assertEquals(original.snippetZ[i], restored.snippetZ[i], 0.006f);
+        }
+
+        FallEvent alert = events.get(1);
+        assertEquals(5000, alert.incidentTimeMs);
+        assertEquals(6.9271, alert.latitude, 0);
+        assertEquals("Colombo, Sri Lanka", alert.address);
+        assertEquals(0, alert.snippetLength());
+
+        // List views skip decoding the snippet
+        assertEquals(0, store.query(0, Long.MAX_VALUE, false).get(0).snippetLength());
+    }
+
+    @Test
+    public void reopen_reindexesRecordsMissingFromIndex() throws IOException {
+        FallEventStore store = new FallEventStore(folder.getRoot());
+        store.append(detection(1000));
+        store.append(detection(2000));
+        store.append(detection(3000));
+
+        // Simulate dying between the data write and the index write
+        try (RandomAccessFile index = new RandomAccessFile(new File(folder.getRoot(), "fall_events.idx"), "rw")) {
+            index.setLength(index.length() - 16);
+        }
+
+        FallEventStore reopened = new FallEventStore(folder.getRoot());
+        assertEquals(3, reopened.count(0, Long.MAX_VALUE));
+        assertEquals(3000, reopened.query(2500, 4000, false).get(0).timestampMs);
+    }
+}
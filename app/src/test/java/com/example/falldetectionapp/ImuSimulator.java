@@ -0,0 +1,162 @@
+package com.example.falldetectionapp;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for an external IMU: streams synthetic traces in the
+ * {@link SocketSensorSource} record format over TCP or UDP.
+ *
+ * Traces are played back to back with timestamps shifted so the stream is
+ * continuous. Without pacing the records are written as fast as the
+ * receiver takes them, which is how the pipeline is load-tested.
+ * <pre>
+ *   ImuSimulator --tcp PORT [--repeat N] [--realtime]
+ *   ImuSimulator --udp HOST:PORT [--repeat N] [--realtime]
+ * </pre>
+ */
+public class ImuSimulator {
+
+    private static final int RECORDS_PER_DATAGRAM = 32;
+
+    private final List<SyntheticTraceGenerator.Trace> traces;
+    private final int repeat;
+    private final boolean realtime;
+    private Thread tcpThread;
+
+    public ImuSimulator(List<SyntheticTraceGenerator.Trace> traces, int repeat, boolean realtime) {
+        this.traces = traces;
+        this.repeat = repeat;
+        this.realtime = realtime;
+    }
+
+    /** Every scenario once at the given rate. */
+    public static List<SyntheticTraceGenerator.Trace> allScenarios(float sampleRateHz) {
+        List<SyntheticTraceGenerator.Trace> traces = new ArrayList<>();
+        for (SyntheticTraceGenerator.Scenario scenario : SyntheticTraceGenerator.Scenario.values()) {
+            traces.add(SyntheticTraceGenerator.generate(scenario, sampleRateHz, 0.05f, 1));
+        }
+        return traces;
+    }
+
+    public long sampleCount() {
+        long count = 0;
+        for (SyntheticTraceGenerator.Trace trace : traces) count += trace.count;
+        return count * repeat;
+    }
+
+    /** Receives each record's bytes; a full buffer is written out by the caller. */
+    private interface RecordSink {
+        void flush(ByteBuffer buffer) throws IOException, InterruptedException;
+    }
+
+    private void stream(ByteBuffer buffer, RecordSink sink) throws IOException, InterruptedException {
+        long offset = 0;
+        long startNanos = System.nanoTime();
+        for (int r = 0; r < repeat; r++) {
+            for (SyntheticTraceGenerator.Trace trace : traces) {
+                long first = trace.timestamps[0];
+                for (int i = 0; i < trace.count; i++) {
+                    long t = trace.timestamps[i] - first + offset;
+                    if (buffer.remaining() < SocketSensorSource.RECORD_SIZE) {
+                        sink.flush(buffer);
+                        if (realtime) {
+                            long ahead = t * 1000000L - (System.nanoTime() - startNanos);
+                            if (ahead > 0) Thread.sleep(ahead / 1000000L);
+                        }
+                    }
+                    SocketSensorSource.putRecord(buffer, t, trace.ax[i], trace.ay[i], trace.az[i],
+                            trace.gx[i], trace.gy[i], trace.gz[i]);
+                }
+                long period = Math.round(1000 / trace.sampleRateHz);
+                offset += trace.timestamps[trace.count - 1] - first + period;
+            }
+        }
+        if (buffer.position() > 0) sink.flush(buffer);
+    }
+
+    /**
+     * Accept one TCP client on a background thread and stream to it.
+     *
+     * @return the listening port
+     */
+    public int serveTcp(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port);
+        Thread thread = new Thread(() -> {
+            try (ServerSocket s = server; Socket client = s.accept()) {
+                OutputStream out = new BufferedOutputStream(client.getOutputStream(), 8192);
+                stream(ByteBuffer.allocate(SocketSensorSource.RECORD_SIZE * 64), buffer -> {
+                    out.write(buffer.array(), 0, buffer.position());
+                    out.flush();
+                    buffer.clear();
+                });
+            } catch (IOException | InterruptedException e) {
+                System.err.println("IMU simulator stopped: " + e);
+            }
+        }, "imu-simulator");
+        thread.setDaemon(true);
+        thread.start();
+        tcpThread = thread;
+        return server.getLocalPort();
+    }
+
+    /** Wait until the TCP client has been served. */
+    public void awaitTcp() throws InterruptedException {
+        if (tcpThread != null) tcpThread.join();
+    }
+
+    /**
+     * Stream to a UDP receiver on the calling thread. Without realtime pacing
+     * a 1 ms pause after each datagram keeps a loopback receiver from being
+     * flooded.
+     */
+    public void sendUdp(String host, int port) throws IOException, InterruptedException {
+        InetAddress address = InetAddress.getByName(host);
+        try (DatagramSocket socket = new DatagramSocket()) {
+            ByteBuffer buffer = ByteBuffer.allocate(SocketSensorSource.RECORD_SIZE * RECORDS_PER_DATAGRAM);
+            DatagramPacket packet = new DatagramPacket(buffer.array(), 0, address, port);
+            stream(buffer, b -> {
+                packet.setLength(b.position());
+                socket.send(packet);
+                b.clear();
+                if (!realtime) Thread.sleep(1);
+            });
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String tcp = null, udp = null;
+        int repeat = 1;
+        boolean realtime = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tcp": tcp = args[++i]; break;
+                case "--udp": udp = args[++i]; break;
+                case "--repeat": repeat = Integer.parseInt(args[++i]); break;
+                case "--realtime": realtime = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        ImuSimulator simulator = new ImuSimulator(allScenarios(50f), repeat, realtime);
+        if (tcp != null) {
+            int port = simulator.serveTcp(Integer.parseInt(tcp));
+            System.out.println("Streaming " + simulator.sampleCount() + " samples to the first client on port " + port);
+            simulator.awaitTcp();
+        } else if (udp != null) {
+            int colon = udp.lastIndexOf(':');
+            simulator.sendUdp(udp.substring(0, colon), Integer.parseInt(udp.substring(colon + 1)));
+            System.out.println("Sent " + simulator.sampleCount() + " samples");
+        } else {
+            throw new IllegalArgumentException("Need --tcp PORT or --udp HOST:PORT");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the int8 engine against a straightforward reference that applies
+ * zero points explicitly instead of folding them into the biases.
+ */
+public class QuantizedModelTest {
+
+    private static final float INPUT_SCALE = 0.5f;
+    private static final int INPUT_ZERO_POINT = -10;
+
+    // conv1d: 2 input channels -> 2 filters, kernel 2, stride 2, relu
+    private static final byte[] CONV_WEIGHTS = {3, -2, 1, 4, -1, 5, 2, -3};
+    private static final int[] CONV_BIASES = {20, -15};
+    private static final int CONV_MULTIPLIER = 1 << 30, CONV_SHIFT = 33;     // x 1/8
+    private static final int CONV_ZERO_POINT = -5;
+
+    // dense: 4 -> 1
+    private static final byte[] DENSE_WEIGHTS = {7, -3, 2, 5};
+    private static final int[] DENSE_BIASES = {-40};
+    private static final int DENSE_MULTIPLIER = 1 << 30, DENSE_SHIFT = 34;   // x 1/16
+    private static final int DENSE_ZERO_POINT = 3;
+    private static final float OUTPUT_SCALE = 0.25f;
+
+    private static byte[] modelBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(QuantizedModel.MAGIC);
+        out.writeInt(QuantizedModel.VERSION);
+        out.writeInt(4);    // window length
+        out.writeInt(2);    // channels
+        out.writeFloat(INPUT_SCALE);
+        out.writeInt(INPUT_ZERO_POINT);
+        out.writeInt(2);    // layers
+
+        out.writeByte(QuantizedModel.LAYER_CONV1D);
+        out.writeByte(QuantizedModel.ACTIVATION_RELU);
+        out.writeInt(2);
+        out.writeInt(2);
+        out.writeInt(2);
+        out.writeInt(2);
+        out.write(CONV_WEIGHTS);
+        for (int b : CONV_BIASES) out.writeInt(b);
+        out.writeInt(CONV_MULTIPLIER);
+        out.writeInt(CONV_SHIFT);
+        out.writeInt(CONV_ZERO_POINT);
+        out.writeFloat(0.1f);
+
+        out.writeByte(QuantizedModel.LAYER_DENSE);
+        out.writeByte(QuantizedModel.ACTIVATION_NONE);
+        out.writeInt(4);
+        out.writeInt(1);
+        out.write(DENSE_WEIGHTS);
+        for (int b : DENSE_BIASES) out.writeInt(b);
+        out.writeInt(DENSE_MULTIPLIER);
+        out.writeInt(DENSE_SHIFT);
+        out.writeInt(DENSE_ZERO_POINT);
+        out.writeFloat(OUTPUT_SCALE);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int requantize(long acc, int multiplier, int shift, int zeroPoint) {
+        long value = ((acc * multiplier + (1L << (shift - 1))) >> shift) + zeroPoint;
+        return (int) Math.max(-128, Math.min(127, value));
+    }
+
+    private static float reference(float[] inputs) {
+        int[] x = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            x[i] = Math.max(-128, Math.min(127, Math.round(inputs[i] / INPUT_SCALE) + INPUT_ZERO_POINT));
+        }
+        int[] hidden = new int[4];
+        for (int t = 0; t < 2; t++) {
+            for (int o = 0; o < 2; o++) {
+                long acc = CONV_BIASES[o];
+                for (int k = 0; k < 4; k++) {
+                    acc += (long) (x[t * 4 + k] - INPUT_ZERO_POINT) * CONV_WEIGHTS[o * 4 + k];
+                }
+                hidden[t * 2 + o] = Math.max(CONV_ZERO_POINT,
+                        requantize(acc, CONV_MULTIPLIER, CONV_SHIFT, CONV_ZERO_POINT));
+            }
+        }
+        long acc = DENSE_BIASES[0];
+        for (int i = 0; i < 4; i++) {
+            acc += (long) (hidden[i] - CONV_ZERO_POINT) * DENSE_WEIGHTS[i];
+        }
+        return (requantize(acc, DENSE_MULTIPLIER, DENSE_SHIFT, DENSE_ZERO_POINT) - DENSE_ZERO_POINT) * OUTPUT_SCALE;
+    }
+
+    @Test
+    public void run_matchesReference() throws IOException {
+        QuantizedModel model = QuantizedModel.load(new ByteArrayInputStream(modelBytes()));
+        float[][] cases = {
+                {9.8f, 0.1f, 10.2f, 0.3f, 25f, 4.5f, 3.0f, 1.2f},
+                {0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f},
+                {-20f, 8f, 40f, -3f, 12f, 60f, -7f, 2f},
+        };
+        for (float[] inputs : cases) {
+            for (int i = 0; i < inputs.length; i++) model.setInput(i, inputs[i]);
+            assertEquals(reference(inputs), model.run()[0], 0f);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void load_rejectsBadMagic() throws IOException {
+        byte[] bytes = modelBytes();
+        bytes[0] ^= 0x7F;
+        QuantizedModel.load(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void classifier_doesNotVetoUntilWindowIsFull() throws IOException {
+        FallClassifier classifier = new FallClassifier(QuantizedModel.load(new ByteArrayInputStream(modelBytes())));
+        classifier.addSample(9.8f, 0.1f);
+        assertEquals(1f, classifier.score(), 0f);
+        for (int i = 0; i < 4; i++) classifier.addSample(9.8f, 0.1f);
+        float score = classifier.score();
+        assertTrue(score >= 0f && score <= 1f);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SensorHealthMonitorTest {
+
+    private static final int PERIOD_US = 20000;    // 50 Hz
+    private static final float RANGE = 39.2f;      // +-4 g
+
+    /** Deliver two seconds of noisy samples at the given interval, returning the next timestamp. */
+    private static long feed(SensorHealthMonitor monitor, long t, long intervalMs, float level) {
+        for (long end = t + 2000; t < end; t += intervalMs) {
+            monitor.onDelivery(t);
+            monitor.onSample(t, level + (t % 7) * 0.01f, 0.1f, 9.81f);
+        }
+        return t;
+    }
+
+    @Test
+    public void steadyStream_isOk() {
+        SensorHealthMonitor monitor = new SensorHealthMonitor(PERIOD_US, RANGE);
+        monitor.reset(0);
+        long t = feed(monitor, 0, 20, 0.5f);
+        assertEquals(SensorHealthMonitor.Status.OK, monitor.check(t));
+        assertEquals(50f, monitor.getMeasuredRateHz(), 1f);
+    }
+
+    @Test
+    public void noDelivery_isStalledAfterTimeout() {
+        SensorHealthMonitor monitor = new SensorHealthMonitor(PERIOD_US, RANGE);
+        monitor.reset(0);
+        assertEquals(SensorHealthMonitor.Status.STARTING, monitor.check(1000));
+        assertEquals(SensorHealthMonitor.Status.STALLED, monitor.check(4000));
+    }
+
+    @Test
+    public void lowRate_isSlow() {
+        SensorHealthMonitor monitor = new SensorHealthMonitor(PERIOD_US, RANGE);
+        monitor.reset(0);
+        long t = feed(monitor, 0, 50, 0.5f);
+        assertEquals(SensorHealthMonitor.Status.SLOW, monitor.check(t));
+    }
+
+    @Test
+    public void backwardsTimestamp_isIrregular() {
+        SensorHealthMonitor monitor = new SensorHealthMonitor(PERIOD_US, RANGE);
+        monitor.reset(0);
+        long t = feed(monitor, 0, 20, 0.5f);
+        monitor.onSample(t - 100, 0.3f, 0.1f, 9.81f);
+        assertEquals(SensorHealthMonitor.Status.IRREGULAR_TIMESTAMPS, monitor.check(t));
+    }
+
+    @Test
+    public void frozenReadings_areStuck() {
+        SensorHealthMonitor monitor = new SensorHealthMonitor(PERIOD_US, RANGE);
+        monitor.reset(0);
+        for (long t = 0; t <= 6000; t += 20) {
+            monitor.onDelivery(t);
+            monitor.onSample(t, 0.5f, 0.1f, 9.81f);
+        }
+        assertEquals(SensorHealthMonitor.Status.STUCK, monitor.check(6000));
+    }
+
+    @Test
+    public void pinnedReadings_areSaturated() {
+        SensorHealthMonitor monitor = new SensorHealthMonitor(PERIOD_US, RANGE);
+        monitor.reset(0);
+        long t = feed(monitor, 0, 20, RANGE);
+        assertEquals(SensorHealthMonitor.Status.SATURATED, monitor.check(t));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorSampleBufferTest {
+
+    @Test
+    public void pairsAFlushByTimestampNotArrivalOrder() {
+        // A flush delivers every accelerometer event before the gyroscope ones
+        SampleBatch batch = new SampleBatch(16);
+        for (int i = 0; i < 10; i++) batch.add(i * 20L, 0, 0, 9.81f, 0, 0, 0);
+        SensorSampleBuffer gyro = new SensorSampleBuffer(32);
+        gyro.add(-20, 0, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            // Rotation only during the impact at 100 ms, sampled 10 ms off the accelerometer
+            gyro.add(i * 20L + 10, 0, 0, i == 4 || i == 5 ? 8f : 0f);
+        }
+
+        assertTrue(gyro.interpolate(batch.timestamps, batch.count, batch.gx, batch.gy, batch.gz));
+        assertEquals(0f, batch.gz[0], 0f);
+        assertEquals(4f, batch.gz[4], 1e-6f);      // Halfway between 0 at 70 ms and 8 at 90 ms
+        assertEquals(8f, batch.gz[5], 1e-6f);
+        assertEquals(4f, batch.gz[6], 1e-6f);
+        assertEquals(0f, batch.gz[9], 0f);
+    }
+
+    @Test
+    public void holdsEndValuesOutsideTheBufferedRange() {
+        SensorSampleBuffer gyro = new SensorSampleBuffer(4);
+        long[] times = {0, 50, 500};
+        float[] x = new float[3], y = new float[3], z = new float[3];
+        assertFalse(gyro.interpolate(times, 3, x, y, z));
+
+        for (int i = 0; i < 6; i++) gyro.add(100 + i * 10L, i, 0, 0);   // Wraps; keeps 120..150
+        assertTrue(gyro.interpolate(times, 3, x, y, z));
+        assertEquals(2f, x[0], 0f);
+        assertEquals(2f, x[1], 0f);
+        assertEquals(5f, x[2], 0f);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.falldetectionapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the detection pipeline from replay and socket sources, with the
+ * IMU simulator standing in for a real device.
+ */
+public class SensorSourceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Records what the pipeline saw, checking that samples arrive in order. */
+    private static class Recorder implements DetectionPipeline.Callback, SensorSource.Listener {
+        final DetectionPipeline pipeline;
+        final FallConfirmation confirmation = new FallConfirmation();
+        final CountDownLatch ended = new CountDownLatch(1);
+        final long delayPerBatchMs;
+        volatile long samples = 0;
+        volatile long candidates = 0;
+        volatile long confirmed = 0;
+        volatile boolean inOrder = true;
+        volatile Exception error;
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        Recorder(float sampleRateHz, long delayPerBatchMs) {
+            this.delayPerBatchMs = delayPerBatchMs;
+            FallDetector detector = new FallDetector(new DetectorConfig().setSampleRateHz(sampleRateHz));
+            pipeline = new DetectionPipeline(detector, confirmation, this, 256, 3000, 1000);
+        }
+
+        @Override
+        public void onSamples(SampleBatch batch) {
+            for (int i = 0; i < batch.count; i++) {
+                if (batch.timestamps[i] <= lastTimestamp) inOrder = false;
+                lastTimestamp = batch.timestamps[i];
+            }
+            pipeline.onSamples(batch);
+            samples += batch.count;
+            if (delayPerBatchMs > 0) {
+                try {
+                    Thread.sleep(delayPerBatchMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onFallCandidate(long timestampMs) {
+            candidates++;
+        }
+
+        @Override
+        public void onConfirmationState(FallConfirmation.State state) {
+            // Settle verdicts straight away, as the countdown in MainActivity eventually does
+            if (state == FallConfirmation.State.CONFIRMED) confirmed++;
+            if (state == FallConfirmation.State.CONFIRMED || state == FallConfirmation.State.REJECTED) {
+                confirmation.reset();
+            }
+        }
+
+        @Override
+        public void onSnippetReady(long candidateTimestampMs) {
+        }
+
+        @Override
+        public void onSourceEnded(Exception error) {
+            this.error = error;
+            ended.countDown();
+        }
+    }
+
+    private File writeTrace(SyntheticTraceGenerator.Trace trace) throws IOException {
+        File file = folder.newFile("trace.csv");
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("# timestamp_ms,ax,ay,az,gx,gy,gz");
+            for (int i = 0; i < trace.count; i++) {
+                out.printf(Locale.US, "%d,%f,%f,%f,%f,%f,%f%n", trace.timestamps[i],
+                        trace.ax[i], trace.ay[i], trace.az[i], trace.gx[i], trace.gy[i], trace.gz[i]);
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void queue_isBoundedByPool() throws InterruptedException {
+        SampleBatchQueue queue = new SampleBatchQueue(2, 8);
+        SampleBatch a = queue.obtain(0);
+        SampleBatch b = queue.obtain(0);
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNull(queue.obtain(0));
+
+        a.add(1, 0, 0, 9.81f, 0, 0, 0);
+        queue.publish(a);
+        assertSame(a, queue.take(10));
+        queue.recycle(a);
+        assertEquals(0, a.count);
+        assertSame(a, queue.obtain(0));
+
+        // Batches left unread on stop go back to the pool
+        a.add(2, 0, 0, 9.81f, 0, 0, 0);
+        queue.publish(a);
+        assertEquals(1, queue.discardPending());
+        assertEquals(0, queue.pending());
+        assertEquals(0, a.count);
+        assertNotNull(queue.obtain(0));
+    }
+
+    @Test
+    public void replay_drivesPipelineToDetection() throws Exception {
+        SyntheticTraceGenerator.Trace trace = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.FALL_FORWARD, 50f, 0.05f, 0);
+        ReplaySensorSource source = new ReplaySensorSource(writeTrace(trace), 0);
+        Recorder recorder = new Recorder(50f, 0);
+
+        source.start(recorder);
+        assertTrue(recorder.ended.await(10, TimeUnit.SECONDS));
+        source.stop();
+
+        assertNull(recorder.error);
+        assertEquals(trace.count, recorder.samples);
+        assertEquals(trace.count, source.getDeliveredSamples());
+        assertEquals(1, recorder.candidates);
+        assertEquals(1, recorder.confirmed);
+        assertTrue(recorder.inOrder);
+    }
+
+    @Test
+    public void tcp_slowConsumerPushesBackWithoutLoss() throws Exception {
+        ImuSimulator simulator = new ImuSimulator(ImuSimulator.allScenarios(50f), 2, false);
+        int port = simulator.serveTcp(0);
+        SocketSensorSource source = SocketSensorSource.tcp("localhost", port);
+        Recorder recorder = new Recorder(50f, 1);
+
+        source.start(recorder);
+        assertTrue(recorder.ended.await(30, TimeUnit.SECONDS));
+        source.stop();
+
+        assertNull(recorder.error);
+        assertEquals(simulator.sampleCount(), recorder.samples);
+        assertEquals(0, source.getDroppedSamples());
+        assertTrue(recorder.inOrder);
+        assertTrue(recorder.confirmed > 0);
+    }
+
+    @Test
+    public void udp_deliversInOrderAndCountsDrops() throws Exception {
+        SyntheticTraceGenerator.Trace trace = SyntheticTraceGenerator.generate(
+                SyntheticTraceGenerator.Scenario.WALK, 100f, 0.05f, 0);
+        ImuSimulator simulator = new ImuSimulator(Collections.singletonList(trace), 1, false);
+        SocketSensorSource source = SocketSensorSource.udp(0);
+        Recorder recorder = new Recorder(100f, 0);
+
+        source.start(recorder);
+        simulator.sendUdp("localhost", source.getLocalPort());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (recorder.samples + source.getDroppedSamples() < simulator.sampleCount()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        source.stop();
+
+        assertTrue(recorder.samples > 0);
+        assertTrue(recorder.samples + source.getDroppedSamples() <= simulator.sampleCount());
+        assertTrue(recorder.inOrder);
+        assertEquals(1, recorder.ended.getCount());     // Stopping is not reported as an end
+
+        // The same port receives again after a restart
+        Recorder again = new Recorder(100f, 0);
+        source.start(again);
+        simulator.sendUdp("localhost", source.getLocalPort());
+        deadline = System.currentTimeMillis() + 5000;
+        while (again.samples == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        source.stop();
+        assertTrue(again.samples > 0);
+        assertTrue(again.inOrder);
+    }
+}
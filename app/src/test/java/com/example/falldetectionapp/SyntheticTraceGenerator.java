@@ -0,0 +1,313 @@
+package com.example.falldetectionapp;
+
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic accelerometer/gyroscope traces for
+ * fall scenarios and activities of daily living (ADLs).
+ *
+ * The device is modelled as carried upright (gravity along +Y). Orientation
+ * is integrated from the generated angular rate, so the gravity component of
+ * the accelerometer always agrees with the gyroscope. Every trace starts with
+ * a few seconds of quiet standing so stateful stages can warm up.
+ */
+public class SyntheticTraceGenerator {
+
+    public enum Scenario {
+        FALL_FORWARD(true, true),
+        FALL_BACKWARD(true, true),
+        FALL_LATERAL(true, true),
+        FALL_FORWARD_RECOVERY(true, false),
+        FALL_LATERAL_RECOVERY(true, false),
+        SIT_HARD(false, false),
+        JUMP(false, false),
+        PHONE_DROP(false, false),
+        WALK(false, false),
+        STAIRS(false, false),
+        CAR_BUMP(false, false);
+
+        public final boolean isFall;        // Trace contains a fall impact
+        public final boolean expectAlert;   // A caregiver should be alerted
+
+        Scenario(boolean isFall, boolean expectAlert) {
+            this.isFall = isFall;
+            this.expectAlert = expectAlert;
+        }
+    }
+
+    /**
+     * One generated trace in structure-of-arrays form.
+     */
+    public static class Trace {
+        public final Scenario scenario;
+        public final float sampleRateHz;
+        public final long[] timestamps;
+        public final float[] ax, ay, az, gx, gy, gz;
+        public int count = 0;
+        public long eventTimeMs = -1;   // Start of the impact (or key event) of the scenario
+
+        Trace(Scenario scenario, float sampleRateHz, int capacity) {
+            this.scenario = scenario;
+            this.sampleRateHz = sampleRateHz;
+            timestamps = new long[capacity];
+            ax = new float[capacity];
+            ay = new float[capacity];
+            az = new float[capacity];
+            gx = new float[capacity];
+            gy = new float[capacity];
+            gz = new float[capacity];
+        }
+    }
+
+    private static final float G = 9.81f;
+    private static final float MAX_DURATION_S = 16f;
+    // The vehicle context needs minutes of driving (ActivityRecognizer.VEHICLE_MIN_DURATION)
+    private static final float DRIVE_DURATION_S = 130f;
+
+    private final Scenario scenario;
+    private final float sampleRateHz;
+    private final float noise;
+    private final Random random;
+    private final Trace trace;
+
+    // Gravity as seen in the device frame, integrated from the angular rate
+    private float gravX = 0, gravY = G, gravZ = 0;
+    private double timeS = 0;
+
+    private SyntheticTraceGenerator(Scenario scenario, float sampleRateHz, float noise, long seed) {
+        this.scenario = scenario;
+        this.sampleRateHz = sampleRateHz;
+        this.noise = noise;
+        this.random = new Random(seed);
+        float duration = scenario == Scenario.CAR_BUMP ? DRIVE_DURATION_S + MAX_DURATION_S : MAX_DURATION_S;
+        this.trace = new Trace(scenario, sampleRateHz, (int) (duration * sampleRateHz) + 1);
+    }
+
+    /**
+     * Generate a trace.
+     *
+     * @param scenario     what happens in the trace
+     * @param sampleRateHz sensor sample rate
+     * @param noise        standard deviation of additive accelerometer noise (m/s^2);
+     *                     gyroscope noise is a tenth of it in rad/s
+     * @param seed         random seed; the same arguments always give the same trace
+     */
+    public static Trace generate(Scenario scenario, float sampleRateHz, float noise, long seed) {
+        SyntheticTraceGenerator generator = new SyntheticTraceGenerator(scenario, sampleRateHz, noise, seed);
+        generator.build();
+        return generator.trace;
+    }
+
+    private void build() {
+        still(3.0f + random.nextFloat());
+        float jitter = 0.9f + 0.2f * random.nextFloat();
+
+        switch (scenario) {
+            case FALL_FORWARD:
+                fall(1, 0, 0, 1, jitter);
+                still(8f);
+                break;
+            case FALL_BACKWARD:
+                fall(1, 0, 0, -1, jitter);
+                still(8f);
+                break;
+            case FALL_LATERAL:
+                fall(0, 0, 1, 1, jitter);
+                still(8f);
+                break;
+            case FALL_FORWARD_RECOVERY:
+                fall(1, 0, 0, 1, jitter);
+                still(1.5f);
+                rotate(1.0f, 1, 0, 0, -(float) Math.PI / 2 * jitter, 3f);
+                walk(5f, 1.9f, 3f);
+                break;
+            case FALL_LATERAL_RECOVERY:
+                fall(0, 0, 1, 1, jitter);
+                still(1.5f);
+                rotate(1.0f, 0, 0, 1, -(float) Math.PI / 2 * jitter, 3f);
+                walk(5f, 1.9f, 3f);
+                break;
+            case SIT_HARD:
+                // Thigh swings to horizontal while the body drops, then lands on the seat
+                segment(0.6f, 1, 0, 0, -(float) Math.PI / 2 * 0.9f * jitter, 0.7f, 0, 0, true);
+                trace.eventTimeMs = nowMs();
+                impact(0.12f, 14f * jitter, 0, 0, 0, 0);
+                still(8f);
+                break;
+            case JUMP:
+                segment(0.25f, 0, 0, 0, 0, 1.8f, 0, 0, false);
+                segment(0.35f, 0, 0, 0, 0, 0.1f, 0, 0, false);
+                trace.eventTimeMs = nowMs();
+                impact(0.1f, 22f * jitter, 1, 0, 0, 0.8f);
+                still(1f);
+                walk(5f, 1.8f, 2.5f);
+                break;
+            case PHONE_DROP:
+                // Tumbling free fall, sharp impact, then the phone lies flat
+                segment(0.45f, 0.6f, 0.5f, 0.6f, 3f * (float) Math.PI / 2 * jitter, 0.05f, 0, 0, false);
+                trace.eventTimeMs = nowMs();
+                impact(0.04f, 45f * jitter, 0.6f, 0.5f, 0.6f, 4f);
+                still(8f);
+                break;
+            case WALK:
+                trace.eventTimeMs = nowMs();
+                walk(10f, 1.8f + 0.3f * random.nextFloat(), 2.5f * jitter);
+                break;
+            case STAIRS:
+                trace.eventTimeMs = nowMs();
+                walk(10f, 1.5f + 0.2f * random.nextFloat(), 4.5f * jitter);
+                break;
+            case CAR_BUMP:
+                // Driving, then a pothole throws the phone off the seat onto the floor
+                drive(DRIVE_DURATION_S);
+                impact(0.08f, 22f * jitter, 1, 0, 0, 5f);
+                segment(0.3f, 1, 0, 0, -(float) Math.PI / 2 * 0.7f * jitter, 0.2f, 0, 0, false);
+                trace.eventTimeMs = nowMs();
+                impact(0.08f, 26f * jitter, 1, 0, 0, -4f);
+                drive(6f);
+                break;
+        }
+    }
+
+    /**
+     * Free fall while the body rotates by about 90 degrees, ending in an impact.
+     */
+    private void fall(float axisX, float axisY, float axisZ, float direction, float jitter) {
+        float angle = direction * (float) Math.PI / 2 * jitter;
+        float freeFallTime = 0.3f;
+        segment(freeFallTime, axisX, axisY, axisZ, angle * 0.8f, 0.25f, 0, 0, false);
+        trace.eventTimeMs = nowMs();
+        // The last 20% of the rotation happens during the impact (quarter-cosine rate profile)
+        impact(0.1f, 26f * jitter, axisX, axisY, axisZ, angle * 0.2f / (0.1f * 2 / (float) Math.PI));
+        // Short damped bounce after the impact
+        for (int i = 0, n = samples(0.3f); i < n; i++) {
+            float decay = 1f - (float) i / n;
+            float bounce = 3f * decay * (float) Math.sin(2 * Math.PI * 8 * i / sampleRateHz);
+            emit(1f, bounce, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Impact spike along the current gravity direction while the remaining
+     * rotation slows to zero over the impact.
+     */
+    private void impact(float seconds, float peak, float axisX, float axisY, float axisZ, float rate) {
+        float norm = norm(axisX, axisY, axisZ);
+        for (int i = 0, n = samples(seconds); i < n; i++) {
+            float phase = (i + 0.5f) / n;
+            float spike = peak * (float) Math.sin(Math.PI * phase);
+            float w = norm == 0 ? 0 : rate * (float) Math.cos(Math.PI / 2 * phase) / norm;
+            rotateGravity(axisX * w, axisY * w, axisZ * w);
+            emit(1f, spike, axisX * w, axisY * w, axisZ * w);
+        }
+    }
+
+    /**
+     * Rotate by the given angle with a smooth (half-sine) angular rate profile.
+     *
+     * @param gravityScale accelerometer reads gravity times this factor (below 1 = falling)
+     * @param linearAmp    amplitude of additional vertical motion
+     * @param smooth       if false the rate is constant instead of half-sine
+     */
+    private void segment(float seconds, float axisX, float axisY, float axisZ, float angle,
+                         float gravityScale, float linearAmp, float linearHz, boolean smooth) {
+        float norm = norm(axisX, axisY, axisZ);
+        for (int i = 0, n = samples(seconds); i < n; i++) {
+            float phase = (i + 0.5f) / n;
+            float rate = smooth
+                    ? angle * (float) Math.PI / (2 * seconds) * (float) Math.sin(Math.PI * phase)
+                    : angle / seconds;
+            float w = norm == 0 ? 0 : rate / norm;
+            rotateGravity(axisX * w, axisY * w, axisZ * w);
+            float linear = linearAmp * (float) Math.sin(2 * Math.PI * linearHz * i / sampleRateHz);
+            emit(gravityScale, linear, axisX * w, axisY * w, axisZ * w);
+        }
+    }
+
+    private void rotate(float seconds, float axisX, float axisY, float axisZ, float angle, float linearAmp) {
+        segment(seconds, axisX, axisY, axisZ, angle, 1f, linearAmp, 2f, true);
+    }
+
+    private void still(float seconds) {
+        for (int i = 0, n = samples(seconds); i < n; i++) {
+            emit(1f, 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Gait: vertical bounce at the step cadence plus a sway rotation at half of it.
+     */
+    private void walk(float seconds, float cadenceHz, float amplitude) {
+        for (int i = 0, n = samples(seconds); i < n; i++) {
+            double t = (double) i / sampleRateHz;
+            float bounce = amplitude * (float) Math.sin(2 * Math.PI * cadenceHz * t);
+            float sway = 0.8f * (float) Math.sin(Math.PI * cadenceHz * t);
+            emit(1f, bounce, 0, 0, sway);
+        }
+    }
+
+    /**
+     * Riding in a car: road and engine vibration plus slow speed changes and turns.
+     */
+    private void drive(float seconds) {
+        double phase = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0, n = samples(seconds); i < n; i++) {
+            double t = (double) i / sampleRateHz;
+            float vibration = 0.7f * (float) Math.sin(2 * Math.PI * 13 * t + phase)
+                    + 0.4f * (float) Math.sin(2 * Math.PI * 7.3 * t);
+            float surge = 0.5f * (float) Math.sin(2 * Math.PI * 0.3 * t);
+            float yaw = 0.1f * (float) Math.sin(2 * Math.PI * 0.2 * t);
+            emit(1f, vibration + surge, 0, 0, yaw);
+        }
+    }
+
+    /**
+     * Append one sample: scaled gravity plus linear acceleration along the gravity direction.
+     */
+    private void emit(float gravityScale, float alongGravity, float wx, float wy, float wz) {
+        int i = trace.count;
+        if (i == trace.timestamps.length) return;
+        float norm = norm(gravX, gravY, gravZ);
+        float k = gravityScale + alongGravity / norm;
+        trace.timestamps[i] = nowMs();
+        trace.ax[i] = gravX * k + gaussian(noise);
+        trace.ay[i] = gravY * k + gaussian(noise);
+        trace.az[i] = gravZ * k + gaussian(noise);
+        trace.gx[i] = wx + gaussian(noise * 0.1f);
+        trace.gy[i] = wy + gaussian(noise * 0.1f);
+        trace.gz[i] = wz + gaussian(noise * 0.1f);
+        trace.count++;
+        timeS += 1.0 / sampleRateHz;
+    }
+
+    /**
+     * Integrate the device-frame gravity vector over one sample: dg/dt = g x omega.
+     */
+    private void rotateGravity(float wx, float wy, float wz) {
+        float dt = 1f / sampleRateHz;
+        float nx = gravX + (gravY * wz - gravZ * wy) * dt;
+        float ny = gravY + (gravZ * wx - gravX * wz) * dt;
+        float nz = gravZ + (gravX * wy - gravY * wx) * dt;
+        float scale = G / norm(nx, ny, nz);
+        gravX = nx * scale;
+        gravY = ny * scale;
+        gravZ = nz * scale;
+    }
+
+    private float gaussian(float sigma) {
+        return sigma == 0 ? 0 : (float) random.nextGaussian() * sigma;
+    }
+
+    private int samples(float seconds) {
+        return Math.max(1, Math.round(seconds * sampleRateHz));
+    }
+
+    private long nowMs() {
+        // Offset so timestamps look like a device clock rather than starting at zero
+        return 1_000_000L + Math.round(timeS * 1000);
+    }
+
+    private static float norm(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.falldetectionapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ThresholdCalibratorTest {
+
+    private static final int RATE_MS = 20;     // 50 Hz
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Feed hours of activity whose per-second peaks are centred on the given values. */
+    private static long feed(ThresholdCalibrator calibrator, long start, int seconds,
+                             float accelPeak, float gyroPeak, long seed) {
+        Random random = new Random(seed);
+        long t = start;
+        for (int s = 0; s < seconds; s++) {
+            int peakAt = random.nextInt(50);
+            float accel = accelPeak * (0.8f + 0.2f * random.nextFloat());
+            float gyro = gyroPeak * (0.8f + 0.2f * random.nextFloat());
+            for (int i = 0; i < 50; i++, t += RATE_MS) {
+                boolean peak = i == peakAt;
+                calibrator.addSample(t, peak ? accel : 9.81f, peak ? gyro * gyro : 0.01f);
+            }
+        }
+        return t;
+    }
+
+    @Test
+    public void p2_tracksQuantileOfStream() {
+        Random random = new Random(7);
+        P2Quantile sketch = new P2Quantile(0.99);
+        double[] values = new double[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian() * 2 + 10;
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values[(int) (0.99 * values.length)], sketch.get(), 0.1);
+    }
+
+    @Test
+    public void activeUser_raisesThresholdsGraduallyWithinBounds() {
+        DetectorConfig defaults = new DetectorConfig();
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(defaults);
+
+        // Nothing changes before enough activity has been seen
+        long t = feed(calibrator, 0, 1500, 30f, 8f, 1);
+        assertEquals(defaults.getFallThresholdHigh(), calibrator.getFallThresholdHigh(), 0f);
+
+        feed(calibrator, t, 4 * 3600, 30f, 8f, 2);
+        assertEquals(ThresholdCalibrator.HIGH_MAX, calibrator.getFallThresholdHigh(), 0f);
+        assertEquals(ThresholdCalibrator.GYRO_MAX, calibrator.getGyroThreshold(), 0f);
+        assertTrue(calibrator.getImpactThreshold() > defaults.getImpactThreshold());
+    }
+
+    @Test
+    public void quietUser_lowersThresholdsToFloor() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(new DetectorConfig());
+        feed(calibrator, 0, 4 * 3600, 10f, 0.5f, 3);
+        assertEquals(ThresholdCalibrator.HIGH_MIN, calibrator.getFallThresholdHigh(), 0f);
+        assertEquals(ThresholdCalibrator.GYRO_MIN, calibrator.getGyroThreshold(), 0f);
+        // Resting at about 1 g must never reach the impact level
+        assertEquals(ThresholdCalibrator.IMPACT_MIN, calibrator.getImpactThreshold(), 0f);
+        assertTrue(calibrator.getImpactThreshold() > 1.2f * 9.81f - 0.1f);
+    }
+
+    @Test
+    public void windowsAfterDetection_areNotLearned() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(new DetectorConfig());
+        long t = feed(calibrator, 0, 100, 12f, 1f, 4);
+        long before = calibrator.getWindowCount();
+        calibrator.onDetection(t);
+        feed(calibrator, t, 10, 40f, 10f, 5);
+        assertEquals(before, calibrator.getWindowCount());
+    }
+
+    @Test
+    public void impactWindowClosedBeforeDetection_isNotLearned() {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(new DetectorConfig());
+        long t = feed(calibrator, 0, 100, 12f, 1f, 4);
+        long before = calibrator.getWindowCount();
+        // 99 windows have closed; the newest are held back
+        assertEquals(99 - ThresholdCalibrator.HELD_WINDOWS, before);
+        // The impact's window closes, and the fall is reported early in the next one
+        t = feed(calibrator, t, 1, 40f, 10f, 5);
+        for (int i = 0; i < 10; i++, t += RATE_MS) calibrator.addSample(t, 9.81f, 0.01f);
+        // The quiet window and the impact's have closed; only older quiet ones were learned
+        long atDetection = calibrator.getWindowCount();
+        assertEquals(before + 2, atDetection);
+        calibrator.onDetection(t);
+        feed(calibrator, t, 30, 12f, 1f, 6);
+        // Held windows are dropped, the excluded ones skipped, and learning resumes after them
+        long learned = calibrator.getWindowCount() - atDetection;
+        assertTrue("learned " + learned, learned > 0 && learned <= 30 - 15 - ThresholdCalibrator.HELD_WINDOWS);
+    }
+
+    @Test
+    public void saveAndLoad_restoresLearnedState() throws IOException {
+        ThresholdCalibrator calibrator = new ThresholdCalibrator(new DetectorConfig());
+        feed(calibrator, 0, 3600, 22f, 5f, 6);
+        File file = folder.newFile("calibration.bin");
+        calibrator.save(file);
+
+        ThresholdCalibrator restored = new ThresholdCalibrator(new DetectorConfig());
+        restored.load(file);
+        assertEquals(calibrator.getFallThresholdHigh(), restored.getFallThresholdHigh(), 0f);
+        assertEquals(calibrator.getGyroThreshold(), restored.getGyroThreshold(), 0f);
+        assertEquals(calibrator.getWindowCount(), restored.getWindowCount());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.falldetectionapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    @Test
+    public void allowsBurstThenSteadyRate() {
+        TokenBucket bucket = new TokenBucket(3, 1000);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(500));
+        assertEquals(1000, bucket.nextTokenAt(500));
+        assertTrue(bucket.tryAcquire(1000));
+        assertFalse(bucket.tryAcquire(1999));
+        assertTrue(bucket.tryAcquire(2000));
+    }
+
+    @Test
+    public void keepsPartialIntervalAndCapsAtCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 1000);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+        assertEquals(1, bucket.available(1500));
+        assertTrue(bucket.tryAcquire(1500));
+        assertEquals(2000, bucket.nextTokenAt(1500));          // The half interval already waited counts
+        assertEquals(2, bucket.available(10000));
+        // A full bucket banks nothing: after spending one, the next comes a full interval later
+        assertTrue(bucket.tryAcquire(20000));
+        assertTrue(bucket.tryAcquire(20000));
+        assertEquals(21000, bucket.nextTokenAt(20000));
+    }
+}
@@ -0,0 +1,24 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+application {
+    mainClass.set("com.example.falldetectionapp.server.AlertServer")
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :server:loadTest --args="--devices 2000 --seconds 30"
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the simulated-device load generator against an embedded server."
+    mainClass.set("com.example.falldetectionapp.server.LoadGenerator")
+    classpath = sourceSets["main"].runtimeClasspath
+}
@@ -0,0 +1,271 @@
+package com.example.falldetectionapp.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ingest server for alerts and heartbeats from many fall-detection devices.
+ *
+ * Built on the JDK's {@link HttpServer}, which multiplexes all connections
+ * on one NIO selector thread. Idle keep-alive connections therefore cost a
+ * socket and no thread; only requests being handled occupy a worker from the
+ * fixed pool. Live state is kept in a {@link DeviceRegistry}.
+ *
+ * Devices send form-encoded POST bodies:
+ * <pre>
+ *   POST /heartbeat   device=ID&amp;battery=0..100
+ *   POST /alert       device=ID&amp;type=ALERT_SENT&amp;lat=..&amp;lon=..&amp;confidence=..
+ * </pre>
+ * and operators read JSON from {@code GET /devices}, {@code GET /alerts?since=ms}
+ * and {@code GET /stats}. Times are the server's receive time.
+ */
+public class AlertServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 4096;                // Pending connections queued by the kernel
+    private static final int MAX_BODY = 4096;               // Device messages are a few dozen bytes
+    private static final long SILENT_TIMEOUT_MS = 5 * 60 * 1000;
+
+    private final DeviceRegistry registry = new DeviceRegistry();
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    /**
+     * @param port    port to listen on, 0 for any free port
+     * @param threads worker threads handling requests
+     */
+    public AlertServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        workers = Executors.newFixedThreadPool(threads);
+        server.setExecutor(workers);
+        server.createContext("/heartbeat", post(this::heartbeat));
+        server.createContext("/alert", post(this::alert));
+        server.createContext("/devices", get(this::devices));
+        server.createContext("/alerts", get(this::alerts));
+        server.createContext("/stats", get(this::stats));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public DeviceRegistry getRegistry() {
+        return registry;
+    }
+
+    /** Handles one parsed request and returns the status code and body to send. */
+    private interface Endpoint {
+        Response handle(Map<String, String> params) throws BadRequest;
+    }
+
+    private static class Response {
+        final int status;
+        final String json;     // Null for an empty body
+
+        Response(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    private static class BadRequest extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        BadRequest(String message) {
+            super(message);
+        }
+    }
+
+    private static HttpHandler post(Endpoint endpoint) {
+        return exchange -> serve(exchange, "POST", endpoint);
+    }
+
+    private static HttpHandler get(Endpoint endpoint) {
+        return exchange -> serve(exchange, "GET", endpoint);
+    }
+
+    private static void serve(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                send(exchange, new Response(405, error("Use " + method)));
+                return;
+            }
+            String query = "POST".equals(method) ? readBody(exchange.getRequestBody())
+                    : exchange.getRequestURI().getRawQuery();
+            send(exchange, endpoint.handle(parseForm(query)));
+        } catch (BadRequest e) {
+            send(exchange, new Response(400, error(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.json == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] body = response.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException, BadRequest {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        byte[] buffer = new byte[512];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+            if (bytes.size() > MAX_BODY) throw new BadRequest("Body too large");
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    static Map<String, String> parseForm(String form) throws BadRequest {
+        Map<String, String> params = new HashMap<>();
+        if (form == null || form.isEmpty()) return params;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            try {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                // Malformed % escape
+                throw new BadRequest("Bad encoding");
+            }
+        }
+        return params;
+    }
+
+    private static String require(Map<String, String> params, String key) throws BadRequest {
+        String value = params.get(key);
+        if (value == null || value.isEmpty()) throw new BadRequest("Missing " + key);
+        return value;
+    }
+
+    private static double number(Map<String, String> params, String key, double fallback) throws BadRequest {
+        String value = params.get(key);
+        if (value == null || value.isEmpty()) return fallback;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest("Bad " + key);
+        }
+    }
+
+    private Response heartbeat(Map<String, String> params) throws BadRequest {
+        String device = require(params, "device");
+        int battery = (int) number(params, "battery", -1);
+        registry.onHeartbeat(device, System.currentTimeMillis(), battery);
+        return new Response(204, null);
+    }
+
+    private Response alert(Map<String, String> params) throws BadRequest {
+        String device = require(params, "device");
+        String type = params.getOrDefault("type", "ALERT");
+        registry.onAlert(device, System.currentTimeMillis(), type,
+                number(params, "lat", Double.NaN), number(params, "lon", Double.NaN),
+                (float) number(params, "confidence", Double.NaN));
+        return new Response(202, null);
+    }
+
+    private Response devices(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder("[");
+        for (DeviceState d : registry.devices()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"device\":").append(quote(d.deviceId))
+                    .append(",\"lastHeartbeat\":").append(d.getLastHeartbeatMs())
+                    .append(",\"battery\":").append(d.getBatteryPercent())
+                    .append(",\"heartbeats\":").append(d.getHeartbeatCount())
+                    .append(",\"alerts\":").append(d.getAlertCount())
+                    .append(",\"lastAlert\":").append(d.getLastAlertMs())
+                    .append(",\"lastAlertType\":").append(quote(d.getLastAlertType()))
+                    .append(",\"lat\":").append(jsonNumber(d.getLatitude()))
+                    .append(",\"lon\":").append(jsonNumber(d.getLongitude()))
+                    .append('}');
+        }
+        return new Response(200, sb.append(']').toString());
+    }
+
+    private Response alerts(Map<String, String> params) throws BadRequest {
+        long since = (long) number(params, "since", 0);
+        StringBuilder sb = new StringBuilder("[");
+        for (DeviceRegistry.Alert a : registry.alertsSince(since)) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append("{\"device\":").append(quote(a.deviceId))
+                    .append(",\"time\":").append(a.timeMs)
+                    .append(",\"type\":").append(quote(a.type))
+                    .append(",\"lat\":").append(jsonNumber(a.latitude))
+                    .append(",\"lon\":").append(jsonNumber(a.longitude))
+                    .append(",\"confidence\":").append(jsonNumber(a.confidence))
+                    .append('}');
+        }
+        return new Response(200, sb.append(']').toString());
+    }
+
+    private Response stats(Map<String, String> params) {
+        long now = System.currentTimeMillis();
+        return new Response(200, "{\"devices\":" + registry.deviceCount()
+                + ",\"silentDevices\":" + registry.silentDevices(now, SILENT_TIMEOUT_MS).size()
+                + ",\"heartbeats\":" + registry.getHeartbeatsReceived()
+                + ",\"alerts\":" + registry.getAlertsReceived() + "}");
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String jsonNumber(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.valueOf(value);
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        AlertServer server = new AlertServer(port, threads);
+        server.start();
+        System.out.println("Alert server listening on port " + server.getPort() + " with " + threads + " workers");
+    }
+}
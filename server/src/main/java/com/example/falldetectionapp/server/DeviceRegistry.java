@@ -0,0 +1,107 @@
+package com.example.falldetectionapp.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent per-device state plus a bounded feed of recent alerts.
+ *
+ * Every request thread updates its device through a {@link ConcurrentHashMap}
+ * lookup and volatile writes; there is no global lock on the ingest path.
+ */
+public class DeviceRegistry {
+
+    /** One received alert, kept in the recent-alerts feed. */
+    public static class Alert {
+        public final String deviceId;
+        public final long timeMs;
+        public final String type;
+        public final double latitude;
+        public final double longitude;
+        public final float confidence;
+
+        Alert(String deviceId, long timeMs, String type, double latitude, double longitude, float confidence) {
+            this.deviceId = deviceId;
+            this.timeMs = timeMs;
+            this.type = type;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.confidence = confidence;
+        }
+    }
+
+    private static final int RECENT_ALERTS = 1000;
+
+    private final ConcurrentHashMap<String, DeviceState> devices = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Alert> recentAlerts = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recentAlertCount = new AtomicInteger();
+    private final LongAdder heartbeatsReceived = new LongAdder();
+    private final LongAdder alertsReceived = new LongAdder();
+
+    private DeviceState device(String deviceId) {
+        DeviceState state = devices.get(deviceId);
+        return state != null ? state : devices.computeIfAbsent(deviceId, DeviceState::new);
+    }
+
+    public void onHeartbeat(String deviceId, long timeMs, int battery) {
+        heartbeatsReceived.increment();
+        device(deviceId).onHeartbeat(timeMs, battery);
+    }
+
+    public void onAlert(String deviceId, long timeMs, String type, double lat, double lon, float confidence) {
+        alertsReceived.increment();
+        device(deviceId).onAlert(timeMs, type, lat, lon);
+        recentAlerts.addFirst(new Alert(deviceId, timeMs, type, lat, lon, confidence));
+        // Trim from the old end; a few extra entries under contention are harmless
+        if (recentAlertCount.incrementAndGet() > RECENT_ALERTS && recentAlerts.pollLast() != null) {
+            recentAlertCount.decrementAndGet();
+        }
+    }
+
+    public DeviceState get(String deviceId) {
+        return devices.get(deviceId);
+    }
+
+    public Collection<DeviceState> devices() {
+        return devices.values();
+    }
+
+    public int deviceCount() {
+        return devices.size();
+    }
+
+    /**
+     * Alerts received at or after {@code sinceMs}, newest first.
+     */
+    public List<Alert> alertsSince(long sinceMs) {
+        List<Alert> result = new ArrayList<>();
+        for (Alert alert : recentAlerts) {
+            if (alert.timeMs >= sinceMs) result.add(alert);
+        }
+        return result;
+    }
+
+    /**
+     * Devices whose last heartbeat is older than {@code timeoutMs}.
+     */
+    public List<DeviceState> silentDevices(long nowMs, long timeoutMs) {
+        List<DeviceState> result = new ArrayList<>();
+        for (DeviceState state : devices.values()) {
+            if (nowMs - state.getLastHeartbeatMs() > timeoutMs) result.add(state);
+        }
+        return result;
+    }
+
+    public long getHeartbeatsReceived() {
+        return heartbeatsReceived.sum();
+    }
+
+    public long getAlertsReceived() {
+        return alertsReceived.sum();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.falldetectionapp.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live state of one monitored device.
+ *
+ * Fields are written by whichever request thread handles the device's latest
+ * message and read by status queries, so each one is volatile or atomic.
+ * A device's messages are not ordered against each other; the newest
+ * timestamp wins.
+ */
+public class DeviceState {
+
+    public final String deviceId;
+
+    private volatile long lastHeartbeatMs = 0;
+    private volatile int batteryPercent = -1;       // -1 if never reported
+    private volatile long lastAlertMs = 0;
+    private volatile String lastAlertType = "";
+    private volatile double latitude = Double.NaN;
+    private volatile double longitude = Double.NaN;
+
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong alerts = new AtomicLong();
+
+    public DeviceState(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    void onHeartbeat(long timeMs, int battery) {
+        heartbeats.incrementAndGet();
+        if (timeMs >= lastHeartbeatMs) {
+            lastHeartbeatMs = timeMs;
+            if (battery >= 0) batteryPercent = battery;
+        }
+    }
+
+    void onAlert(long timeMs, String type, double lat, double lon) {
+        alerts.incrementAndGet();
+        if (timeMs >= lastAlertMs) {
+            lastAlertMs = timeMs;
+            lastAlertType = type;
+            if (!Double.isNaN(lat) && !Double.isNaN(lon)) {
+                latitude = lat;
+                longitude = lon;
+            }
+        }
+        // An alert also proves the device is alive
+        if (timeMs > lastHeartbeatMs) lastHeartbeatMs = timeMs;
+    }
+
+    public long getLastHeartbeatMs() {
+        return lastHeartbeatMs;
+    }
+
+    public int getBatteryPercent() {
+        return batteryPercent;
+    }
+
+    public long getLastAlertMs() {
+        return lastAlertMs;
+    }
+
+    public String getLastAlertType() {
+        return lastAlertType;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public long getHeartbeatCount() {
+        return heartbeats.get();
+    }
+
+    public long getAlertCount() {
+        return alerts.get();
+    }
+}
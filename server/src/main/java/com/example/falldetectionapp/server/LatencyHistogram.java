@@ -0,0 +1,62 @@
+package com.example.falldetectionapp.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ *
+ * Each power-of-two range of microseconds is split into {@link #SUB_BUCKETS}
+ * linear buckets, so the relative error stays below 1/SUB_BUCKETS (~3%) from
+ * one microsecond up to minutes while the whole table is a few KB. Many
+ * threads can record concurrently.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int RANGES = 64 - SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(RANGES * SUB_BUCKETS);
+
+    public void record(long micros) {
+        counts.incrementAndGet(index(Math.max(0, micros)));
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        // Shift so the leading one lands on bit SUB_BUCKET_BITS; the bits below pick the sub-bucket
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that lands in the bucket
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (((long) SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        return total;
+    }
+
+    /**
+     * @param quantile in [0, 1], e.g. 0.99
+     * @return the bucket upper bound at that quantile in microseconds, 0 if empty
+     */
+    public long percentile(double quantile) {
+        long total = count();
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) return upperBound(i);
+        }
+        return upperBound(counts.length() - 1);
+    }
+}
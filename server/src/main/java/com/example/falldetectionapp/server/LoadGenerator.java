@@ -0,0 +1,187 @@
+package com.example.falldetectionapp.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays many simulated devices against an {@link AlertServer} and reports
+ * ingest throughput and latency percentiles.
+ *
+ * Each device sends a heartbeat on a fixed interval (with a random phase)
+ * and occasionally an alert instead. Requests are issued open-loop: a slow
+ * server does not slow the generator down, so queueing shows up in the
+ * latency numbers instead of being hidden. If more than
+ * {@code --max-in-flight} requests are outstanding, new ones are counted as
+ * dropped rather than queued on the client.
+ *
+ * Without {@code --host} the server is started in-process on a free port.
+ * <pre>
+ *   --host H --port P      target server (default: embedded)
+ *   --devices N            simulated devices (1000)
+ *   --interval-ms MS       heartbeat interval per device (1000)
+ *   --alert-ratio R        fraction of messages that are alerts (0.01)
+ *   --seconds S            measured duration (20)
+ *   --warmup S             unmeasured warm-up (3)
+ *   --max-in-flight N      client-side cap on outstanding requests (10000)
+ *   --server-threads N     worker threads for the embedded server (2 x cores)
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicReference<LatencyHistogram> histogram = new AtomicReference<>(new LatencyHistogram());
+
+    private final HttpClient client;
+    private final URI heartbeatUri;
+    private final URI alertUri;
+    private final Semaphore inFlight;
+    private final double alertRatio;
+
+    LoadGenerator(String baseUrl, int maxInFlight, double alertRatio, ExecutorService clientExecutor) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+        this.heartbeatUri = URI.create(baseUrl + "/heartbeat");
+        this.alertUri = URI.create(baseUrl + "/alert");
+        this.inFlight = new Semaphore(maxInFlight);
+        this.alertRatio = alertRatio;
+    }
+
+    /** Send one message for the given device. */
+    void tick(int device, Random random) {
+        if (!inFlight.tryAcquire()) {
+            dropped.increment();
+            return;
+        }
+        boolean alert = random.nextDouble() < alertRatio;
+        String body = alert
+                ? String.format(Locale.US, "device=dev-%d&type=ALERT_SENT&lat=%.5f&lon=%.5f&confidence=%.2f",
+                        device, 6.9 + random.nextDouble() * 0.1, 79.8 + random.nextDouble() * 0.1, random.nextFloat())
+                : "device=dev-" + device + "&battery=" + (device % 100);
+        HttpRequest request = HttpRequest.newBuilder(alert ? alertUri : heartbeatUri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        LatencyHistogram latencies = histogram.get();
+        long start = System.nanoTime();
+        sent.increment();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            inFlight.release();
+            if (latencies != histogram.get()) return;   // Sent before the stats were reset
+            if (error != null || response.statusCode() >= 300) {
+                failed.increment();
+                return;
+            }
+            latencies.record((System.nanoTime() - start) / 1000);
+            completed.increment();
+        });
+    }
+
+    /** Start counting from zero, e.g. once the warm-up is over. */
+    void resetStats() {
+        histogram.set(new LatencyHistogram());
+        sent.reset();
+        completed.reset();
+        failed.reset();
+        dropped.reset();
+    }
+
+    String report(double seconds, int devices) {
+        LatencyHistogram h = histogram.get();
+        return String.format(Locale.US,
+                "devices %d, %.1f s measured%n"
+                        + "sent %d, completed %d, failed %d, dropped %d%n"
+                        + "throughput %.0f req/s%n"
+                        + "latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms",
+                devices, seconds, sent.sum(), completed.sum(), failed.sum(), dropped.sum(),
+                completed.sum() / seconds,
+                h.percentile(0.50) / 1000.0, h.percentile(0.90) / 1000.0,
+                h.percentile(0.99) / 1000.0, h.percentile(0.999) / 1000.0);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = null;
+        int port = AlertServer.DEFAULT_PORT;
+        int devices = 1000;
+        long intervalMs = 1000;
+        double alertRatio = 0.01;
+        int seconds = 20;
+        int warmup = 3;
+        int maxInFlight = 10000;
+        int serverThreads = Runtime.getRuntime().availableProcessors() * 2;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host": host = value; break;
+                case "--port": port = Integer.parseInt(value); break;
+                case "--devices": devices = Integer.parseInt(value); break;
+                case "--interval-ms": intervalMs = Long.parseLong(value); break;
+                case "--alert-ratio": alertRatio = Double.parseDouble(value); break;
+                case "--seconds": seconds = Integer.parseInt(value); break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--max-in-flight": maxInFlight = Integer.parseInt(value); break;
+                case "--server-threads": serverThreads = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        AlertServer embedded = null;
+        if (host == null) {
+            embedded = new AlertServer(0, serverThreads);
+            embedded.start();
+            host = "localhost";
+            port = embedded.getPort();
+            System.out.println("Embedded server on port " + port + " with " + serverThreads + " workers");
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(cores);
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Math.max(1, cores / 2));
+        LoadGenerator generator = new LoadGenerator("http://" + host + ":" + port, maxInFlight, alertRatio,
+                clientExecutor);
+
+        Random phases = new Random(1);
+        for (int d = 0; d < devices; d++) {
+            final int device = d;
+            final Random random = new Random(d);
+            scheduler.scheduleAtFixedRate(() -> generator.tick(device, random),
+                    (long) (phases.nextDouble() * intervalMs), intervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(warmup * 1000L);
+        generator.resetStats();
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        double measured = (System.nanoTime() - start) / 1e9;
+        scheduler.shutdownNow();
+        System.out.println(generator.report(measured, devices));
+
+        if (embedded != null) {
+            DeviceRegistry registry = embedded.getRegistry();
+            System.out.println("server saw " + registry.deviceCount() + " devices, "
+                    + registry.getHeartbeatsReceived() + " heartbeats, " + registry.getAlertsReceived() + " alerts");
+            embedded.stop();
+        }
+        clientExecutor.shutdownNow();
+    }
+}
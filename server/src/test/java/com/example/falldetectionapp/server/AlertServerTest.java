@@ -0,0 +1,86 @@
+package com.example.falldetectionapp.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.Assert.*;
+
+public class AlertServerTest {
+
+    private AlertServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new AlertServer(0, 2);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void heartbeatAndAlert_updateDeviceState() throws Exception {
+        assertEquals(204, post("/heartbeat", "device=resident-7&battery=64").statusCode());
+        assertEquals(202, post("/alert", "device=resident-7&type=ALERT_SENT&lat=6.9271&lon=79.8612&confidence=0.9")
+                .statusCode());
+
+        DeviceState state = server.getRegistry().get("resident-7");
+        assertNotNull(state);
+        assertEquals(64, state.getBatteryPercent());
+        assertEquals(1, state.getHeartbeatCount());
+        assertEquals(1, state.getAlertCount());
+        assertEquals("ALERT_SENT", state.getLastAlertType());
+        assertEquals(6.9271, state.getLatitude(), 0);
+
+        String alerts = get("/alerts?since=0").body();
+        assertTrue(alerts, alerts.contains("\"device\":\"resident-7\""));
+        assertTrue(get("/stats").body().contains("\"devices\":1"));
+    }
+
+    @Test
+    public void badRequests_areRejected() throws Exception {
+        assertEquals(400, post("/heartbeat", "battery=50").statusCode());
+        assertEquals(400, post("/alert", "device=x&lat=north").statusCode());
+        assertEquals(400, post("/heartbeat", "device=%zz&battery=50").statusCode());
+        assertEquals(400, post("/alert", "device=x&type=%").statusCode());
+        assertEquals(405, get("/heartbeat").statusCode());
+        assertEquals(0, server.getRegistry().deviceCount());
+    }
+
+    @Test
+    public void histogram_percentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) histogram.record(i);
+        assertEquals(10000, histogram.count());
+        long p99 = histogram.percentile(0.99);
+        assertTrue("p99 " + p99, p99 >= 9900 && p99 <= 9900 * 1.04);
+        long p50 = histogram.percentile(0.50);
+        assertTrue("p50 " + p50, p50 >= 5000 && p50 <= 5000 * 1.04);
+        for (long v : new long[]{0, 31, 32, 33, 1000, 123456789}) {
+            assertTrue(LatencyHistogram.upperBound(LatencyHistogram.index(v)) >= v);
+        }
+    }
+}
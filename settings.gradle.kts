@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "FallDetectionApp"
 include(":app")
+include(":server")
  
\ No newline at end of file